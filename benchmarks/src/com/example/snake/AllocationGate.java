@@ -0,0 +1,148 @@
+package com.example.snake;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Allocation budget gate for the game tick. Plays seeded headless games with the
+ * {@link GreedyBot}, so they eat, grow, level up and pick up power-ups, restarting each
+ * as it ends, and measures the heap every tick and each {@link GameEngine.Phase} of it
+ * allocates on the ticking thread. Prints a per-phase breakdown and exits with status 1
+ * if any mean exceeds its budget, so an allocation creeping back into the hot path fails
+ * the build instead of showing up as GC pauses.
+ *
+ * <p>The first {@code --warmup} ticks are not counted: the figures are for JIT-compiled
+ * code, where escape analysis has already removed objects that never leave a method.
+ * Restarting a game allocates a new board and is outside the measurement.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.snake.AllocationGate --ticks 200000 --budget SPAWN=16
+ * mvn -f benchmarks/pom.xml verify -Palloc-gate
+ * </pre>
+ */
+public class AllocationGate {
+    private static final GameEngine.Phase[] PHASES = GameEngine.Phase.values();
+    private static final String TICK = "TICK";
+
+    /**
+     * Mean bytes per tick allowed for the whole tick and for each phase. Food and power-up
+     * spawns create one small immutable object each, and the body array doubles as the
+     * snake grows; nothing else in a tick should allocate.
+     */
+    static Map<String, Long> defaultBudgets() {
+        Map<String, Long> budgets = new LinkedHashMap<>();
+        budgets.put(TICK, 16L);
+        budgets.put(GameEngine.Phase.MOVE.name(), 0L);
+        budgets.put(GameEngine.Phase.COLLISION.name(), 0L);
+        budgets.put(GameEngine.Phase.EAT.name(), 8L);
+        budgets.put(GameEngine.Phase.SPAWN.name(), 8L);
+        budgets.put(GameEngine.Phase.POWER_UP.name(), 4L);
+        return budgets;
+    }
+
+    /** Bytes allocated per measured tick, for the whole tick and each phase. */
+    static final class Breakdown {
+        final LatencyHistogram tick = new LatencyHistogram();
+        final Map<GameEngine.Phase, LatencyHistogram> phases = new EnumMap<>(GameEngine.Phase.class);
+        long worstSeed, worstTick;
+
+        Breakdown() {
+            for (GameEngine.Phase p : PHASES) {
+                phases.put(p, new LatencyHistogram());
+            }
+        }
+
+        LatencyHistogram of(String name) {
+            return name.equals(TICK) ? tick : phases.get(GameEngine.Phase.valueOf(name));
+        }
+    }
+
+    /**
+     * Plays warmup + ticks ticks of games with seeds from baseSeed on, on the calling
+     * thread, and returns what the last {@code ticks} of them allocated.
+     */
+    static Breakdown measure(long baseSeed, long warmup, long ticks) {
+        GameMetrics metrics = new GameMetrics();
+        if (metrics.threadAllocatedBytes() < 0) {
+            throw new IllegalStateException("This JVM cannot measure per-thread allocation");
+        }
+        LongSupplier allocated = metrics::threadAllocatedBytes;
+        long bias = metrics.allocationBias();
+        Breakdown b = new Breakdown();
+
+        Bot bot = new GreedyBot();
+        long seed = baseSeed;
+        GameEngine engine = newGame(seed, allocated);
+        for (long i = 0; i < warmup + ticks; i++) {
+            if (engine.isOver()) {
+                engine = newGame(++seed, allocated);
+            }
+            engine.steer(bot.decide(engine));
+            long before = allocated.getAsLong();
+            engine.tick();
+            long bytes = Math.max(0, allocated.getAsLong() - before - bias);
+            if (i < warmup) continue;
+
+            if (bytes > b.tick.max()) {
+                b.worstSeed = seed;
+                b.worstTick = engine.ticks();
+            }
+            b.tick.record(bytes);
+            for (GameEngine.Phase p : PHASES) {
+                b.phases.get(p).record(Math.max(0, engine.phaseBytes(p) - bias));
+            }
+        }
+        return b;
+    }
+
+    private static GameEngine newGame(long seed, LongSupplier allocated) {
+        GameEngine engine = new GameEngine(seed);
+        engine.setPhaseAllocation(allocated);
+        return engine;
+    }
+
+    public static void main(String[] args) {
+        long seed = 1, warmup = 50_000, ticks = 200_000;
+        Map<String, Long> budgets = defaultBudgets();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--seed": seed = Long.parseLong(args[i + 1]); break;
+                case "--warmup": warmup = Long.parseLong(args[i + 1]); break;
+                case "--ticks": ticks = Long.parseLong(args[i + 1]); break;
+                case "--budget": {
+                    String[] kv = args[i + 1].split("=", 2);
+                    String name = kv[0].toUpperCase();
+                    if (kv.length != 2 || !budgets.containsKey(name)) {
+                        throw new IllegalArgumentException("Budget must be <phase>=<bytes> for one of " + budgets.keySet());
+                    }
+                    budgets.put(name, Long.parseLong(kv[1]));
+                    break;
+                }
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (ticks < 1) throw new IllegalArgumentException("ticks must be positive");
+
+        Breakdown b = measure(seed, warmup, ticks);
+        System.out.printf("%d ticks after %d warm-up, seeds from %d%n", ticks, warmup, seed);
+        System.out.printf("%-10s %10s %8s %8s %10s %8s%n", "phase", "mean B", "p99 B", "max B", "budget B", "");
+        int failed = 0;
+        for (Map.Entry<String, Long> e : budgets.entrySet()) {
+            LatencyHistogram h = b.of(e.getKey());
+            boolean ok = h.mean() <= e.getValue();
+            if (!ok) failed++;
+            System.out.printf("%-10s %10.2f %8d %8d %10d %8s%n",
+                e.getKey(), h.mean(), h.percentile(99), h.max(), e.getValue(), ok ? "ok" : "OVER");
+        }
+        if (b.tick.max() > 0) {
+            System.out.printf("most allocated in one tick: %d B, seed %d tick %d%n", b.tick.max(), b.worstSeed, b.worstTick);
+        }
+        if (failed > 0) {
+            System.out.printf("FAILED: %d allocation budget(s) exceeded%n", failed);
+            System.exit(1);
+        }
+        System.out.println("all allocation budgets met");
+    }
+}
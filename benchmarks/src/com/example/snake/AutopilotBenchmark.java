@@ -0,0 +1,57 @@
+package com.example.snake;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Autopilot planning on square boards of growing size. {@code decide} plans from a fresh
+ * game, {@code decideUnreachable} walls the food in first, so the food search exhausts
+ * the board before falling back to the tail (the worst case), and {@code playTick} plans
+ * and ticks a live game. With the GC profiler the bytes/op column should read zero.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AutopilotBenchmark {
+    @Param({"64", "256", "1024"})
+    public int boardSize;
+
+    private AutopilotBot bot;
+    private GameEngine fresh, walled, live;
+    private long seed = 42;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bot = new AutopilotBot(AutopilotBot.DEFAULT_MAX_EXPANSIONS, boardSize, boardSize);
+        fresh = new GameEngine(boardSize, boardSize, seed);
+        walled = new GameEngine(boardSize, boardSize, seed);
+        Food food = walled.food();
+        for (Direction d : Direction.values()) {
+            walled.grid().setObstacle(food.pos.x + d.dx, food.pos.y + d.dy, true);
+        }
+        live = new GameEngine(boardSize, boardSize, seed);
+    }
+
+    @Benchmark
+    public Direction decide() {
+        return bot.decide(fresh);
+    }
+
+    @Benchmark
+    public Direction decideUnreachable() {
+        return bot.decide(walled);
+    }
+
+    @Benchmark
+    public boolean playTick() {
+        if (live.isOver()) {
+            live = new GameEngine(boardSize, boardSize, ++seed);
+        }
+        live.steer(bot.decide(live));
+        return live.tick();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.snake;
+
+/**
+ * Board fixtures shared by the benchmarks.
+ */
+final class Boards {
+    private Boards() {}
+
+    /**
+     * Direction of a Hamiltonian cycle through a board with an even number of rows:
+     * serpentine rows over columns 1..cols-1, returning up column 0. A snake that
+     * follows it never collides, whatever its length.
+     */
+    static Direction cycleDirection(int x, int y, int cols, int rows) {
+        if (x == 0) return y == 0 ? Direction.RIGHT : Direction.UP;
+        if ((y & 1) == 0) return x < cols - 1 ? Direction.RIGHT : Direction.DOWN;
+        if (x > 1) return Direction.LEFT;
+        return y == rows - 1 ? Direction.LEFT : Direction.DOWN;
+    }
+
+    /** Builds a snake of the given length lying on the cycle, heading along it. */
+    static Snake snakeOnCycle(OccupancyGrid grid, int length) {
+        if (length >= grid.cols() * grid.rows()) {
+            throw new IllegalArgumentException("Snake of length " + length + " does not fit the board");
+        }
+        Snake snake = new Snake(3, 0, grid);
+        while (snake.length() < length) {
+            step(snake, grid);
+            snake.grow(1);
+        }
+        return snake;
+    }
+
+    /** Queues the next cycle direction and moves the snake one cell. */
+    static void step(Snake snake, OccupancyGrid grid) {
+        snake.queueDirection(cycleDirection(snake.headX(), snake.headY(), grid.cols(), grid.rows()));
+        snake.update();
+    }
+
+    /** Queues the first direction whose next cell is open, if the current heading is blocked. */
+    static void steerToFreeCell(Snake snake, OccupancyGrid grid, Direction heading) {
+        int hx = snake.headX(), hy = snake.headY();
+        if (isOpen(grid, hx + heading.dx, hy + heading.dy)) return;
+        for (Direction d : Direction.values()) {
+            if (!d.isOpposite(heading) && isOpen(grid, hx + d.dx, hy + d.dy)) {
+                snake.queueDirection(d);
+                return;
+            }
+        }
+    }
+
+    // Open means the snake survives moving there; food and power-ups are fine
+    private static boolean isOpen(OccupancyGrid grid, int x, int y) {
+        return grid.inBounds(x, y) && !grid.isObstacle(x, y) && !grid.hasSnake(x, y);
+    }
+}
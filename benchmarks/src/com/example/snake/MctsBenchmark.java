@@ -0,0 +1,42 @@
+package com.example.snake;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A lookahead search of a fixed number of playouts from the start of a default game,
+ * on a growing number of threads. Playouts per second are {@link #PLAYOUTS} divided by
+ * the score, and should grow with the threads up to the number of cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MctsBenchmark {
+    public static final int PLAYOUTS = 20_000;
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    private MctsAdvisor advisor;
+    private GameEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        advisor = new MctsAdvisor(threads, MctsAdvisor.DEFAULT_BUDGET_SHARE, MctsAdvisor.DEFAULT_TABLE_SIZE);
+        engine = new GameEngine(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        advisor.close();
+    }
+
+    @Benchmark
+    public Direction search() {
+        return advisor.search(engine, TimeUnit.SECONDS.toNanos(10), PLAYOUTS);
+    }
+}
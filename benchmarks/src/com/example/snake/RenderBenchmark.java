@@ -0,0 +1,74 @@
+package com.example.snake;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An offscreen GamePanel.paintComponent into a BufferedImage, with the snake grown to
+ * the given length first. In CACHED mode a paint with nothing changed is a single blit;
+ * {@code tickAndPaint} adds one tick so the dirty-cell redraw is measured as well.
+ * {@code boardSize} 0 is the default board; larger square boards are drawn through the
+ * viewport, so paint time should not grow with them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RenderBenchmark {
+    @Param({"3", "100", "400"})
+    public int snakeLength;
+
+    @Param({"FULL", "CACHED"})
+    public GamePanel.RenderMode mode;
+
+    @Param({"0", "1024"})
+    public int boardSize;
+
+    private GamePanel panel;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        panel = boardSize == 0 ? new GamePanel(false) : new GamePanel(boardSize, boardSize);
+        panel.setSize(panel.getPreferredSize());
+        panel.setRenderMode(mode);
+        // Follow the cycle with growth; obstacles in the way are irrelevant to painting
+        Snake snake = panel.engine().snake();
+        OccupancyGrid grid = panel.engine().grid();
+        while (snake.length() < snakeLength) {
+            Boards.step(snake, grid);
+            snake.grow(1);
+        }
+        image = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        panel.paintComponent(g);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage tickAndPaint() {
+        if (!panel.isRunning()) {
+            panel.restart();
+        }
+        Snake snake = panel.engine().snake();
+        Boards.steerToFreeCell(snake, panel.engine().grid(), snake.direction());
+        panel.tick();
+        panel.paintComponent(g);
+        return image;
+    }
+}
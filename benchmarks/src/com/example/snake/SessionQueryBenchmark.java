@@ -0,0 +1,73 @@
+package com.example.snake;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregate queries over a session history of {@code games} recorded games, one a minute
+ * over the time before the setup: whole-history scans of one and two columns, and a
+ * filtered one that the chunk summaries narrow to the last day.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionQueryBenchmark {
+    private static final long MINUTE = 60_000L;
+    private static final GameEngine.Outcome[] OUTCOMES = GameEngine.Outcome.values();
+
+    @Param({"1000000"})
+    public int games;
+
+    private Path file;
+    private SessionStore store;
+    private long dayAgo;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("sessions", ".snks");
+        store = new SessionStore(file);
+        Random rnd = new Random(42);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < games; i++) {
+            int score = (int) Math.abs(rnd.nextGaussian() * 60);
+            store.append(now - (games - i) * MINUTE, score, 1 + score / GameConfig.LEVEL_UP_SCORE, 3 + score + rnd.nextInt(5),
+                rnd.nextInt(5000), rnd.nextInt(4), rnd.nextInt(3) == 0 ? rnd.nextInt(500) : 0, OUTCOMES[1 + rnd.nextInt(3)]);
+        }
+        store.flush();
+        dayAgo = now - 24 * 60 * MINUTE;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public double meanScore() {
+        return store.query().mean(SessionStore.Column.SCORE);
+    }
+
+    @Benchmark
+    public long[] scorePercentiles() {
+        return store.query().percentiles(SessionStore.Column.SCORE, 50, 90, 99);
+    }
+
+    @Benchmark
+    public double[] meanScoreByLevel() {
+        return store.query().means(SessionStore.Column.LEVEL, SessionStore.Column.SCORE);
+    }
+
+    @Benchmark
+    public long[] lastDayHistogram() {
+        return store.query().since(dayAgo).histogram(SessionStore.Column.SCORE, 10);
+    }
+}
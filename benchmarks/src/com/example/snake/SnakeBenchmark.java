@@ -0,0 +1,57 @@
+package com.example.snake;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Point;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snake movement and collision queries at different snake lengths and board sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class SnakeBenchmark {
+    @Param({"16", "256", "4096"})
+    public int length;
+
+    @Param({"128", "512"})
+    public int boardSize;
+
+    private OccupancyGrid grid;
+    private Snake snake;
+    private Point[] probes;
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        grid = new OccupancyGrid(boardSize, boardSize);
+        snake = Boards.snakeOnCycle(grid, length);
+        Random rnd = new Random(42);
+        probes = new Point[1024];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = new Point(rnd.nextInt(boardSize), rnd.nextInt(boardSize));
+        }
+    }
+
+    @Benchmark
+    public int update() {
+        Boards.step(snake, grid);
+        return snake.headX();
+    }
+
+    @Benchmark
+    public boolean occupies() {
+        Point p = probes[probe++ & (probes.length - 1)];
+        return snake.occupies(p);
+    }
+
+    @Benchmark
+    public boolean selfCollision() {
+        return snake.selfCollision();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.snake;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Point;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Food spawning and obstacle lookups on the game board as the snake fills it. The
+ * snake is laid out as occupied cells on a GameConfig-sized board.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class SpawnBenchmark {
+    @Param({"3", "300", "600"})
+    public int snakeLength;
+
+    private GameEngine engine;
+    private Point[] probes;
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new GameEngine(42);
+        OccupancyGrid grid = engine.grid();
+        int placed = engine.snake().length();
+        for (int i = 0; placed < snakeLength && i < grid.cols() * grid.rows(); i++) {
+            int x = i % grid.cols(), y = i / grid.cols();
+            if (grid.isFree(x, y)) {
+                grid.addSnake(x, y);
+                placed++;
+            }
+        }
+        Random rnd = new Random(42);
+        probes = new Point[1024];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = new Point(rnd.nextInt(grid.cols()), rnd.nextInt(grid.rows()));
+        }
+    }
+
+    @Benchmark
+    public boolean spawnFood() {
+        return engine.spawnFood();
+    }
+
+    @Benchmark
+    public boolean obstaclesContains() {
+        return engine.obstaclesContains(probes[probe++ & (probes.length - 1)]);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.snake;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Time to first frame of a cold start. JMH measures inside a running JVM, so this
+ * launches the game jar in a fresh JVM per sample with {@code --startup-probe}, which
+ * prints how long after JVM start the game was ready and its first frame painted, and
+ * reports the spread with and without an AppCDS archive. A missing archive is created
+ * first by a training run with {@code -XX:ArchiveClassesAtExit} (JDK 13+).
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.snake.StartupBenchmark [--runs 10]
+ *     [--jar target/SnakeGame-1.0-SNAPSHOT.jar] [--archive target/snake.jsa] [--no-cds]
+ * </pre>
+ */
+public class StartupBenchmark {
+    private static final Pattern REPORT = Pattern.compile("startup: ready (\\d+) ms, first frame (\\d+) ms");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path jar = Paths.get("target/SnakeGame-1.0-SNAPSHOT.jar");
+        Path archive = Paths.get("target/snake.jsa");
+        int runs = 10;
+        boolean cds = true;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--jar": jar = Paths.get(args[++i]); break;
+                case "--archive": archive = Paths.get(args[++i]); break;
+                case "--runs": runs = Integer.parseInt(args[++i]); break;
+                case "--no-cds": cds = false; break;
+                default:
+                    System.err.println("Usage: StartupBenchmark [--runs <n>] [--jar <game jar>] [--archive <file>] [--no-cds]");
+                    System.exit(2);
+            }
+        }
+        if (!Files.isRegularFile(jar)) {
+            System.err.println(jar + " not found; build the game with mvn package first");
+            System.exit(2);
+        }
+
+        if (cds && !Files.exists(archive)) {
+            System.out.println("Creating " + archive);
+            probe(jar, "-XX:ArchiveClassesAtExit=" + archive, "-Xlog:cds=off");
+        }
+        measure("default", jar, runs);
+        if (cds) {
+            measure("AppCDS", jar, runs, "-XX:SharedArchiveFile=" + archive);
+        }
+    }
+
+    private static void measure(String name, Path jar, int runs, String... jvmArgs)
+            throws IOException, InterruptedException {
+        long[] ready = new long[runs], frame = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long[] times = probe(jar, jvmArgs);
+            ready[i] = times[0];
+            frame[i] = times[1];
+        }
+        System.out.printf("%-8s ready       %s%n", name, summary(ready));
+        System.out.printf("%-8s first frame %s%n", name, summary(frame));
+    }
+
+    /** One cold start; returns the ready and first-frame times in ms after JVM start. */
+    private static long[] probe(Path jar, String... jvmArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(jvmArgs));
+        command.add("-jar");
+        command.add(jar.toString());
+        command.add("--startup-probe");
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long[] times = null;
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                Matcher m = REPORT.matcher(line);
+                if (m.find()) {
+                    times = new long[] { Long.parseLong(m.group(1)), Long.parseLong(m.group(2)) };
+                } else {
+                    output.append(line).append('\n');
+                }
+            }
+        }
+        int exit = process.waitFor();
+        if (exit != 0 || times == null) {
+            throw new IOException("Startup probe failed (exit " + exit + "):\n" + output);
+        }
+        return times;
+    }
+
+    private static String summary(long[] ms) {
+        long[] sorted = ms.clone();
+        Arrays.sort(sorted);
+        return String.format("min %5d  median %5d  max %5d ms", sorted[0], sorted[sorted.length / 2],
+            sorted[sorted.length - 1]);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.snake;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full game tick: move, collisions, eating, spawning and power-ups, through the
+ * headless GameEngine and through GamePanel.tick, which adds the dirty-cell redraw.
+ * The snake is steered away from blocked cells and the game is restarted when it ends,
+ * so restarts are part of the measured cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class TickBenchmark {
+    private GameEngine engine;
+    private GamePanel panel;
+    private long seed = 42;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new GameEngine(seed);
+        panel = new GamePanel(false);
+    }
+
+    @Benchmark
+    public boolean engineTick() {
+        if (engine.isOver()) {
+            engine = new GameEngine(++seed);
+        }
+        Snake snake = engine.snake();
+        Boards.steerToFreeCell(snake, engine.grid(), snake.direction());
+        return engine.tick();
+    }
+
+    @Benchmark
+    public boolean panelTick() {
+        if (!panel.isRunning()) {
+            panel.restart();
+        }
+        Snake snake = panel.engine().snake();
+        Boards.steerToFreeCell(snake, panel.engine().grid(), snake.direction());
+        return panel.tick();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.snake;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One step of the vectorized environment: every board advanced by a tick, with finished
+ * games reset in place. Each snake is steered to an open neighbouring cell, read from the
+ * environment's own observations, so games run long enough to eat, level up and collect
+ * power-ups. Environment steps per second are {@code boards} divided by the score.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorEnvBenchmark {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    @Param({"1024", "16384"})
+    public int boards;
+
+    @Param({"1"})
+    public int threads;
+
+    private VectorEnv env;
+    private int[] actions;
+    private int turn = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        env = new VectorEnv(boards, GameConfig.COLS, GameConfig.ROWS, 42, threads);
+        actions = new int[boards];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        env.close();
+    }
+
+    @Benchmark
+    public float[] step() {
+        int[] obs = env.observations();
+        byte[] cells = env.cells();
+        int cols = env.cols(), rows = env.rows();
+        turn++;
+        for (int b = 0; b < boards; b++) {
+            int o = b * VectorEnv.FEATURES;
+            int hx = obs[o + VectorEnv.OBS_HEAD_X], hy = obs[o + VectorEnv.OBS_HEAD_Y];
+            int action = VectorEnv.NO_OP;
+            for (int i = 0; i < 4 && action == VectorEnv.NO_OP; i++) {
+                int d = (b + turn + i) & 3; // vary the preference so snakes wander
+                int x = hx + DIRECTIONS[d].dx, y = hy + DIRECTIONS[d].dy;
+                // open: no snake or obstacle, food and power-ups welcome
+                if (x >= 0 && x < cols && y >= 0 && y < rows && (cells[b * cols * rows + y * cols + x] & 0xBF) == 0) {
+                    action = d;
+                }
+            }
+            actions[b] = action;
+        }
+        env.step(actions);
+        return env.rewards();
+    }
+}
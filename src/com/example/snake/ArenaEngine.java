@@ -0,0 +1,208 @@
+package com.example.snake;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Multiplayer rules: any number of snakes on one shared board. All snakes move first and
+ * collisions are judged afterwards, so the order snakes are processed in never matters: a
+ * head on any other segment, its own or another snake's, kills it (both, head to head),
+ * and moving into a cell a tail leaves in the same tick is safe. Dead snakes leave the
+ * board and come back {@link #RESPAWN_TICKS} later at a random clear spot.
+ *
+ * <p>There is no wrap, levelling or power-ups; food is kept at a fixed density and
+ * obstacles are placed once, scaled to the board like {@link GameEngine} does.
+ *
+ * <p>Not thread-safe: joins, leaves, steering and ticks must come from one thread.
+ */
+public class ArenaEngine {
+    public static final int RESPAWN_TICKS = 20;
+    private static final int CELLS_PER_FOOD = 150;
+    private static final int SPAWN_ATTEMPTS = 64;
+    private static final int SPAWN_CLEARANCE = 4; // free cells ahead of a new head
+
+    /** One connected player; its snake is null while it waits to respawn. */
+    public static final class Player {
+        public final int id;
+        private Snake snake;
+        private int score = 0;
+        private int deaths = 0;
+        private long respawnAt;
+
+        Player(int id) { this.id = id; }
+
+        public Snake snake() { return snake; }
+        public boolean isAlive() { return snake != null; }
+        public int score() { return score; }
+        public int deaths() { return deaths; }
+    }
+
+    private final int cols, rows;
+    private final GameRandom rnd;
+    private final OccupancyGrid grid;
+    private final ObstacleMap obstacles;
+    private final List<Player> players = new ArrayList<>();    // in join order, hence by id
+    private final List<Player> view = Collections.unmodifiableList(players);
+    private final List<Player> dying = new ArrayList<>();
+    private int nextId = 1;
+    private long ticks = 0;
+
+    // Food as board cell indices (y * cols + x) in a dense array, with each cell's slot in
+    // it, so eating and respawning food are constant time
+    private final int[] food;
+    private final boolean[] special;
+    private final int[] foodSlot;
+    private int foodCount = 0;
+
+    public ArenaEngine(int cols, int rows, long seed) {
+        this.cols = cols;
+        this.rows = rows;
+        this.rnd = new GameRandom(seed);
+        this.grid = new OccupancyGrid(cols, rows);
+        this.obstacles = new ObstacleMap(cols, rows);
+        int scale = (int) Math.max(1, (long) cols * rows / (GameConfig.COLS * GameConfig.ROWS));
+        for (int i = 0; i < GameConfig.INITIAL_OBSTACLES * scale; i++) {
+            int cell = grid.randomFreeIndex(rnd);
+            if (cell < 0) break;
+            obstacles.add(grid.indexX(cell), grid.indexY(cell));
+            grid.setObstacle(grid.indexX(cell), grid.indexY(cell), true);
+        }
+        int target = Math.max(1, cols * rows / CELLS_PER_FOOD);
+        this.food = new int[target];
+        this.special = new boolean[target];
+        this.foodSlot = new int[cols * rows];
+        Arrays.fill(foodSlot, -1);
+        while (foodCount < target && spawnFood()) {
+            // fill up to the target density
+        }
+    }
+
+    public int cols() { return cols; }
+    public int rows() { return rows; }
+    public long ticks() { return ticks; }
+    public OccupancyGrid grid() { return grid; }
+    public ObstacleMap obstacles() { return obstacles; }
+    /** Connected players in id order; read-only. */
+    public List<Player> players() { return view; }
+
+    public int foodCount() { return foodCount; }
+    /** Board cell index ({@code y * cols + x}) of the i-th food. */
+    public int food(int i) { return food[i]; }
+    public boolean isSpecialFood(int i) { return special[i]; }
+
+    /** Adds a player, who enters the board on the next tick with room for it. */
+    public Player join() {
+        Player p = new Player(nextId++);
+        p.respawnAt = ticks + 1;
+        players.add(p);
+        return p;
+    }
+
+    public void leave(Player p) {
+        if (!players.remove(p)) return;
+        if (p.snake != null) {
+            p.snake.removeFromGrid();
+            p.snake = null;
+        }
+    }
+
+    /** Queues a turn for the player's next move; ignored while it is dead. */
+    public void steer(Player p, Direction d) {
+        if (p.snake != null) p.snake.queueDirection(d);
+    }
+
+    public void tick() {
+        ticks++;
+
+        // move everyone before judging anyone
+        for (int i = 0; i < players.size(); i++) {
+            Snake s = players.get(i).snake;
+            if (s != null) s.update();
+        }
+
+        // judge on the settled board, then clear the dead together so a head-on
+        // collision takes out both snakes
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            Snake s = p.snake;
+            if (s == null) continue;
+            int hx = s.headX(), hy = s.headY();
+            if (s.outOfBounds() || grid.isObstacle(hx, hy) || grid.snakeCount(hx, hy) > 1) {
+                dying.add(p);
+            }
+        }
+        for (int i = 0; i < dying.size(); i++) {
+            Player p = dying.get(i);
+            p.snake.removeFromGrid();
+            p.snake = null;
+            p.score = 0;
+            p.deaths++;
+            p.respawnAt = ticks + RESPAWN_TICKS;
+        }
+        dying.clear();
+
+        // eat; no two live heads share a cell, so each food goes to one snake
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            if (p.snake == null) continue;
+            int cell = p.snake.headY() * cols + p.snake.headX();
+            int slot = foodSlot[cell];
+            if (slot < 0) continue;
+            boolean big = special[slot];
+            removeFood(slot);
+            p.snake.grow(big ? 3 : 1);
+            p.score += big ? 5 : 1;
+            spawnFood();
+        }
+
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            if (p.snake == null && ticks >= p.respawnAt) {
+                spawn(p);
+            }
+        }
+    }
+
+    /** Places the player's snake on a clear run of cells, or retries next tick if none is found. */
+    private void spawn(Player p) {
+        for (int attempt = 0; attempt < SPAWN_ATTEMPTS; attempt++) {
+            int cell = grid.randomFreeIndex(rnd);
+            if (cell < 0) return;
+            int x = grid.indexX(cell), y = grid.indexY(cell);
+            // the body starts at x, x-1, x-2 heading right; keep room in front of it too
+            if (x < 2 || x + SPAWN_CLEARANCE >= cols) continue;
+            boolean clear = true;
+            for (int cx = x - 2; cx <= x + SPAWN_CLEARANCE && clear; cx++) {
+                clear = grid.isFree(cx, y);
+            }
+            if (!clear) continue;
+            p.snake = new Snake(x, y, grid);
+            return;
+        }
+    }
+
+    private boolean spawnFood() {
+        int cell = grid.randomFreeIndex(rnd);
+        if (cell < 0) return false;
+        int slot = foodCount++;
+        food[slot] = cell;
+        special[slot] = rnd.nextDouble() < 0.12;
+        foodSlot[cell] = slot;
+        grid.setItem(grid.indexX(cell), grid.indexY(cell), true);
+        return true;
+    }
+
+    private void removeFood(int slot) {
+        int cell = food[slot];
+        grid.setItem(grid.indexX(cell), grid.indexY(cell), false);
+        foodSlot[cell] = -1;
+        int last = --foodCount;
+        if (slot != last) {
+            food[slot] = food[last];
+            special[slot] = special[last];
+            foodSlot[food[slot]] = slot;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.snake;
+
+import java.util.Arrays;
+
+/**
+ * Autopilot: A* to the food over the occupancy grid, chasing its own tail when the food
+ * cannot be reached safely, and otherwise turning towards the most open space. A path to
+ * the food counts as safe when its first move leaves at least as many reachable cells as
+ * the snake is long.
+ *
+ * <p>Body cells are not treated as walls for good: a segment {@code i} places from the
+ * tail leaves its cell after {@code i + 1} moves, so a path may cross it if it gets there
+ * no sooner. Searches run on primitive arrays sized to the board when the bot is created
+ * or {@link #resize resized}, with per-search stamps instead of clearing, so planning
+ * never allocates. Each search stops after a fixed number of expanded cells, so a tick's
+ * planning stays bounded on huge boards (and, unlike a time limit, deterministic): a food
+ * search that runs out of budget is treated like unreachable food.
+ *
+ * <p>A decision runs at most six searches: A* to the food, a flood fill of the room its
+ * first move leaves, A* to the tail, and a flood fill for each of the three legal moves
+ * when falling back to the roomiest one.
+ *
+ * <p>Not thread-safe; use one instance per game.
+ */
+public class AutopilotBot implements Bot {
+    /**
+     * Expansions per search, so at most 300,000 cells a decision across its six searches.
+     */
+    public static final int DEFAULT_MAX_EXPANSIONS = 50_000;
+
+    private static final Direction[] DIRS = Direction.values();
+    private static final int NONE = -1;
+
+    private final int maxExpansions;
+
+    private int cols = -1, rows = -1;
+    // Open set as a binary heap keyed on (f << 32) | (MAX - g): smallest f first, and the
+    // deepest node among equal f, which keeps A* from fanning out across open ground
+    private long[] heapKey = new long[0];
+    private int[] heapCell = new int[0];
+    private int heapSize;
+    private int[] queue = new int[0];  // BFS frontier for flood fills
+    private int[] g = new int[0];      // moves from the head, valid when seen == stamp
+    private int[] firstMove = new int[0];
+    private int[] seen = new int[0];
+    private int[] closed = new int[0];
+    private int[] vacate = new int[0]; // moves until the snake leaves a body cell
+    private int stamp = 0;
+
+    // Planning time, for reporting
+    private long lastPlanNanos, maxPlanNanos, totalPlanNanos, plans;
+    private int lastExpanded;
+
+    /** A bot for the default board size. */
+    public AutopilotBot() {
+        this(DEFAULT_MAX_EXPANSIONS, GameConfig.COLS, GameConfig.ROWS);
+    }
+
+    /** A bot for boards of cols x rows cells. */
+    public AutopilotBot(int maxExpansions, int cols, int rows) {
+        if (maxExpansions <= 0) {
+            throw new IllegalArgumentException("Expansion budget must be positive");
+        }
+        this.maxExpansions = maxExpansions;
+        resize(cols, rows);
+    }
+
+    @Override
+    public Direction decide(GameEngine engine) {
+        long start = System.nanoTime();
+        Snake snake = engine.snake();
+        OccupancyGrid grid = engine.grid();
+        if (grid.cols() != cols || grid.rows() != rows) {
+            throw new IllegalStateException("Autopilot is sized for a " + cols + "x" + rows
+                + " board, not " + grid.cols() + "x" + grid.rows());
+        }
+        boolean wrap = snake.isWrap();
+        int len = snake.length();
+        for (int i = len - 1; i >= 0; i--) {
+            // the segment nearest the head decides when a shared cell clears
+            int seg = snake.segment(i);
+            vacate[Cell.y(seg) * cols + Cell.x(seg)] = len - i;
+        }
+        int head = snake.headY() * cols + snake.headX();
+        Direction heading = snake.direction();
+        Food food = engine.food();
+        int tail = snake.segment(len - 1);
+
+        int move = search(grid, head, heading, food.pos.y * cols + food.pos.x, wrap);
+        if (move != NONE && roomAfter(grid, head, move, wrap, len) < len) {
+            move = NONE; // the food is reachable but the move leads into a pocket too small for the body
+        }
+        if (move == NONE && len > 1) {
+            move = search(grid, head, heading, Cell.y(tail) * cols + Cell.x(tail), wrap);
+        }
+        if (move == NONE) {
+            move = roomiestMove(grid, head, heading, wrap);
+        }
+
+        lastPlanNanos = System.nanoTime() - start;
+        maxPlanNanos = Math.max(maxPlanNanos, lastPlanNanos);
+        totalPlanNanos += lastPlanNanos;
+        plans++;
+        return move == NONE ? heading : DIRS[move];
+    }
+
+    public long lastPlanNanos() { return lastPlanNanos; }
+    public long maxPlanNanos() { return maxPlanNanos; }
+    public double averagePlanNanos() { return plans == 0 ? 0 : (double) totalPlanNanos / plans; }
+    /** Cells expanded by the last search, food or tail. */
+    public int lastExpanded() { return lastExpanded; }
+
+    /**
+     * A* from the head to the target cell.
+     * @return The ordinal of the first move on a shortest safe path, or NONE if there is
+     *         none within the expansion budget.
+     */
+    private int search(OccupancyGrid grid, int start, Direction heading, int target, boolean wrap) {
+        int s = nextStamp();
+        int tx = target % cols, ty = target / cols;
+        heapSize = 0;
+        lastExpanded = 0;
+        seen[start] = s;
+        g[start] = 0;
+        firstMove[start] = NONE;
+        push(heuristic(start % cols, start / cols, tx, ty, wrap), 0, start);
+        while (heapSize > 0 && lastExpanded < maxExpansions) {
+            int cell = pop();
+            if (closed[cell] == s) continue; // stale entry
+            closed[cell] = s;
+            if (cell == target) return firstMove[cell];
+            lastExpanded++;
+            int cx = cell % cols, cy = cell / cols;
+            int ng = g[cell] + 1;
+            for (int d = 0; d < DIRS.length; d++) {
+                if (cell == start && DIRS[d].isOpposite(heading)) continue;
+                int nx = cx + DIRS[d].dx, ny = cy + DIRS[d].dy;
+                if (wrap) {
+                    nx = wrapX(nx);
+                    ny = wrapY(ny);
+                } else if (nx < 0 || nx >= cols || ny < 0 || ny >= rows) {
+                    continue;
+                }
+                int n = ny * cols + nx;
+                if (closed[n] == s || !passable(grid, nx, ny, n, ng)) continue;
+                if (seen[n] != s || ng < g[n]) {
+                    seen[n] = s;
+                    g[n] = ng;
+                    firstMove[n] = cell == start ? d : firstMove[cell];
+                    push(ng + heuristic(nx, ny, tx, ty, wrap), ng, n);
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /** The legal first move with the most cells reachable from it, or NONE if all are blocked. */
+    private int roomiestMove(OccupancyGrid grid, int head, Direction heading, boolean wrap) {
+        int best = NONE, bestRoom = -1;
+        for (int d = 0; d < DIRS.length; d++) {
+            if (DIRS[d].isOpposite(heading)) continue;
+            int room = roomAfter(grid, head, d, wrap, maxExpansions);
+            if (room > bestRoom) {
+                bestRoom = room;
+                best = d;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Cells reachable after making the move, counting no further than the limit, or -1 if
+     * the move itself is blocked.
+     */
+    private int roomAfter(OccupancyGrid grid, int head, int move, boolean wrap, int limit) {
+        int nx = head % cols + DIRS[move].dx, ny = head / cols + DIRS[move].dy;
+        if (wrap) {
+            nx = wrapX(nx);
+            ny = wrapY(ny);
+        } else if (nx < 0 || nx >= cols || ny < 0 || ny >= rows) {
+            return -1;
+        }
+        int n = ny * cols + nx;
+        if (!passable(grid, nx, ny, n, 1)) return -1;
+        return floodCount(grid, head, n, wrap, limit);
+    }
+
+    // Breadth-first count of the cells reachable from 'from' one move after leaving 'head'
+    private int floodCount(OccupancyGrid grid, int head, int from, boolean wrap, int limit) {
+        int s = nextStamp();
+        int qHead = 0, qTail = 0;
+        seen[head] = s;
+        seen[from] = s;
+        g[from] = 1;
+        queue[qTail++] = from;
+        while (qHead < qTail && qTail < limit) {
+            int cell = queue[qHead++];
+            int cx = cell % cols, cy = cell / cols;
+            int ng = g[cell] + 1;
+            for (Direction dir : DIRS) {
+                int nx = cx + dir.dx, ny = cy + dir.dy;
+                if (wrap) {
+                    nx = wrapX(nx);
+                    ny = wrapY(ny);
+                } else if (nx < 0 || nx >= cols || ny < 0 || ny >= rows) {
+                    continue;
+                }
+                int n = ny * cols + nx;
+                if (seen[n] == s || !passable(grid, nx, ny, n, ng)) continue;
+                seen[n] = s;
+                g[n] = ng;
+                queue[qTail++] = n;
+            }
+        }
+        return qTail;
+    }
+
+    /** Whether the head can be on the in-bounds cell after the given number of moves. */
+    private boolean passable(OccupancyGrid grid, int x, int y, int cell, int moves) {
+        if (grid.isObstacle(x, y)) return false;
+        return !grid.hasSnake(x, y) || vacate[cell] <= moves;
+    }
+
+    private int wrapX(int x) { return x < 0 ? x + cols : x >= cols ? x - cols : x; }
+    private int wrapY(int y) { return y < 0 ? y + rows : y >= rows ? y - rows : y; }
+
+    // Manhattan distance, the short way round on a wrapping board
+    private int heuristic(int x, int y, int tx, int ty, boolean wrap) {
+        int dx = Math.abs(x - tx);
+        int dy = Math.abs(y - ty);
+        if (wrap) {
+            dx = Math.min(dx, cols - dx);
+            dy = Math.min(dy, rows - dy);
+        }
+        return dx + dy;
+    }
+
+    private int nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            // stamps wrapped: clear once so old marks cannot match
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            stamp = 1;
+        }
+        return stamp;
+    }
+
+    /**
+     * Sizes the search arrays for boards of cols x rows cells; call it when the board size
+     * changes, before the next {@link #decide}. Does nothing if the size is unchanged.
+     */
+    public void resize(int cols, int rows) {
+        if (cols == this.cols && rows == this.rows) return;
+        this.cols = cols;
+        this.rows = rows;
+        int size = cols * rows;
+        // a cell enters the open set at most once per neighbour that improves it
+        heapKey = new long[4 * size + 1];
+        heapCell = new int[4 * size + 1];
+        queue = new int[size];
+        g = new int[size];
+        firstMove = new int[size];
+        seen = new int[size];
+        closed = new int[size];
+        vacate = new int[size];
+        stamp = 0;
+    }
+
+    // Binary min-heap over heapKey, with heapCell moved alongside
+
+    private void push(int f, int g, int cell) {
+        long key = ((long) f << 32) | (Integer.MAX_VALUE - g);
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapKey[parent] <= key) break;
+            heapKey[i] = heapKey[parent];
+            heapCell[i] = heapCell[parent];
+            i = parent;
+        }
+        heapKey[i] = key;
+        heapCell[i] = cell;
+    }
+
+    private int pop() {
+        int top = heapCell[0];
+        long key = heapKey[--heapSize];
+        int cell = heapCell[heapSize];
+        int i = 0;
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) child++;
+            if (key <= heapKey[child]) break;
+            heapKey[i] = heapKey[child];
+            heapCell[i] = heapCell[child];
+            i = child;
+        }
+        heapKey[i] = key;
+        heapCell[i] = cell;
+        return top;
+    }
+}
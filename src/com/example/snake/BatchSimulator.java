@@ -0,0 +1,160 @@
+package com.example.snake;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Plays many seeded headless games across all cores and aggregates the results.
+ * Game {@code i} uses seed {@code baseSeed + i}, and each game runs start to finish on
+ * one thread, so results are identical for the same seeds whatever the thread count.
+ *
+ * <pre>
+ * java -cp target/classes com.example.snake.BatchSimulator --games 10000 --seed 1 --threads 8 --bot autopilot
+ * </pre>
+ *
+ * <p>With {@code --sessions <file>} every game is also appended to that {@link SessionStore}.
+ */
+public class BatchSimulator {
+    /** Final state of one game. */
+    public static final class Result {
+        public final long seed;
+        public final GameEngine.Outcome outcome; // RUNNING means the tick limit was hit
+        public final int score, level, length, maxLength, powerUps;
+        public final long ticks, wrapTicks;
+
+        Result(long seed, GameEngine engine) {
+            this.seed = seed;
+            this.outcome = engine.outcome();
+            this.score = engine.score();
+            this.level = engine.level();
+            this.length = engine.snake().length();
+            this.maxLength = engine.maxLength();
+            this.powerUps = engine.powerUpsUsed();
+            this.ticks = engine.ticks();
+            this.wrapTicks = engine.wrapTicks();
+        }
+    }
+
+    /** Plays one game until it ends or reaches maxTicks. */
+    public static Result play(long seed, Bot bot, long maxTicks) {
+        GameEngine engine = new GameEngine(seed);
+        Snake snake = engine.snake();
+        while (!engine.isOver() && engine.ticks() < maxTicks) {
+            snake.queueDirection(bot.decide(engine));
+            engine.tick();
+        }
+        return new Result(seed, engine);
+    }
+
+    /** Plays games with seeds baseSeed .. baseSeed + games - 1 on a pool of the given size. */
+    public static Result[] run(long baseSeed, int games, Supplier<Bot> bots, long maxTicks, int threads) {
+        Result[] results = new Result[games];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, games).parallel()
+                    .forEach(i -> results[i] = play(baseSeed + i, bots.get(), maxTicks)))
+                .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    /** Order-sensitive hash over all results; equal for bit-identical batches. */
+    public static long checksum(Result[] results) {
+        long h = 1125899906842597L;
+        for (Result r : results) {
+            h = 31 * h + r.seed;
+            h = 31 * h + r.outcome.ordinal();
+            h = 31 * h + r.score;
+            h = 31 * h + r.level;
+            h = 31 * h + r.length;
+            h = 31 * h + r.ticks;
+        }
+        return h;
+    }
+
+    private static final int MCTS_PLAYOUTS = 2000; // per move
+
+    private static Supplier<Bot> botNamed(String name) {
+        switch (name) {
+            case "greedy": return GreedyBot::new;
+            case "autopilot": return AutopilotBot::new;
+            case "mcts": return () -> {
+                // games already run in parallel, so one thread each, and a playout budget
+                // rather than a time one so a batch does not run at wall-clock speed
+                MctsAdvisor advisor = new MctsAdvisor(1, MctsAdvisor.DEFAULT_BUDGET_SHARE, 1 << 16);
+                return engine -> advisor.search(engine, 1_000_000_000L, MCTS_PLAYOUTS);
+            };
+            default: throw new IllegalArgumentException("Unknown bot " + name + " (greedy, autopilot, mcts)");
+        }
+    }
+
+    /** Appends the results to a session history as games that ended now. */
+    public static void record(Result[] results, SessionStore sessions) throws IOException {
+        long now = System.currentTimeMillis();
+        for (Result r : results) {
+            sessions.append(now, r.score, r.level, r.maxLength, r.ticks, r.powerUps, r.wrapTicks, r.outcome);
+        }
+        sessions.flush();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int games = 1000;
+        long seed = 1;
+        long maxTicks = 100_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Supplier<Bot> bots = GreedyBot::new;
+        String sessions = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(args[i + 1]); break;
+                case "--seed": seed = Long.parseLong(args[i + 1]); break;
+                case "--max-ticks": maxTicks = Long.parseLong(args[i + 1]); break;
+                case "--threads": threads = Integer.parseInt(args[i + 1]); break;
+                case "--bot": bots = botNamed(args[i + 1]); break;
+                case "--sessions": sessions = args[i + 1]; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        long start = System.nanoTime();
+        Result[] results = run(seed, games, bots, maxTicks, threads);
+        double secs = (System.nanoTime() - start) / 1e9;
+
+        long totalTicks = 0, totalScore = 0, totalLength = 0;
+        int maxScore = 0;
+        Map<GameEngine.Outcome, Integer> outcomes = new EnumMap<>(GameEngine.Outcome.class);
+        for (Result r : results) {
+            totalTicks += r.ticks;
+            totalScore += r.score;
+            totalLength += r.length;
+            maxScore = Math.max(maxScore, r.score);
+            outcomes.merge(r.outcome, 1, Integer::sum);
+        }
+        System.out.printf("%d games on %d threads in %.3f s%n", games, threads, secs);
+        System.out.printf("%.0f games/s, %.0f ticks/s%n", games / secs, totalTicks / secs);
+        System.out.printf("score avg %.2f max %d, length avg %.2f, ticks avg %.1f%n",
+            (double) totalScore / games, maxScore, (double) totalLength / games, (double) totalTicks / games);
+        System.out.println("outcomes " + outcomes);
+        System.out.printf("checksum %016x%n", checksum(results));
+
+        if (sessions != null) {
+            try (SessionStore store = new SessionStore(Paths.get(sessions))) {
+                record(results, store);
+                System.out.printf("recorded to %s, %d games in all%n", sessions, store.size());
+            }
+        }
+    }
+}
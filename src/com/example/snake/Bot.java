@@ -0,0 +1,9 @@
+package com.example.snake;
+
+/**
+ * Steers a snake in a headless game. Called once before every tick; the returned
+ * direction is queued on the snake like a key press, so reversals are ignored.
+ */
+public interface Bot {
+    Direction decide(GameEngine engine);
+}
@@ -0,0 +1,22 @@
+package com.example.snake;
+
+/**
+ * Packs a board cell into a single int (x in the high half, y in the low half) so
+ * positions can live in primitive arrays instead of {@link java.awt.Point} objects.
+ * Both halves are signed, which keeps off-board heads representable.
+ */
+public final class Cell {
+    private Cell() {}
+
+    public static int pack(int x, int y) {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    public static int x(int cell) {
+        return cell >> 16;
+    }
+
+    public static int y(int cell) {
+        return (short) cell;
+    }
+}
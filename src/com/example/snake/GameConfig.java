@@ -10,6 +10,8 @@ public final class GameConfig {
     public static final int COLS = 28;
     public static final int ROWS = 24;
     public static final Dimension PREF_SIZE = new Dimension(COLS * TILE_SIZE, ROWS * TILE_SIZE);
+    public static final int VIEW_COLS = 40;            // most cells shown at once; larger boards scroll
+    public static final int VIEW_ROWS = 30;
     
     // Game timing and speed
     public static final int BASE_TICK_MS = 100;        // base tick (decrease for faster)
@@ -28,5 +30,8 @@ public final class GameConfig {
     public static final int SHRINK_AMOUNT = 3;                // Number of segments to shrink by
     
     // File paths
-    public static final String HIGH_SCORE_FILE = System.getProperty("user.home") + "/.advanced_snake_highscore";
+    public static final String HIGH_SCORE_FILE = System.getProperty("user.home") + "/.advanced_snake_highscore"; // old format, imported once
+    public static final String LEADERBOARD_FILE = System.getProperty("user.home") + "/.advanced_snake_leaderboard";
+    public static final String SESSIONS_FILE = System.getProperty("user.home") + "/.advanced_snake_sessions"; // every game, for the history screen
+    public static final int LEADERBOARD_SIZE = 100;           // best games indexed; the log keeps every game
 }
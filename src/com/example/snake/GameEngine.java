@@ -0,0 +1,462 @@
+package com.example.snake;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * The game rules without any UI: movement, wrap, collisions, food, power-ups and level
+ * progression on one board. All randomness comes from a {@link GameRandom} seeded in the
+ * constructor, and timed effects run on a {@link TimingWheel} that counts ticks rather than
+ * wall-clock time, so the same seed and the same inputs always produce the same game, and
+ * pausing the game pauses its effects.
+ *
+ * <p>Board size is set per engine. Obstacles are either random, with counts that scale with
+ * the board area relative to the default board so a large map is as cluttered as the
+ * classic one, or come from a {@link LevelPack}, one layout per level. Either way no
+ * obstacle lands on the snake, an item or the few cells straight ahead of the head.
+ *
+ * <p>Not thread-safe: one thread drives {@link #tick} and applies input; other threads
+ * hand input over through something like an {@link InputRing}.
+ */
+public class GameEngine {
+    /** How the game stands after the last tick. */
+    public enum Outcome { RUNNING, WALL, OBSTACLE, SELF, WON }
+
+    /** Parts of a tick that {@link #setPhaseTiming phase timing} measures separately. */
+    public enum Phase { MOVE, COLLISION, EAT, SPAWN, POWER_UP }
+
+    private final int cols, rows;
+    private final long seed;
+    private final GameRandom rnd;
+    private final OccupancyGrid grid;
+    private final Snake snake;
+    private final ObstacleMap obstacles;
+    private final int obstacleScale; // board area in default boards, at least 1
+    private final LevelPack levels;  // null for random obstacles
+    private Food food;
+    private PowerUp activePower;
+    private Outcome outcome = Outcome.RUNNING;
+    private int score = 0;
+    private int level = 1;
+    private int tickMs = GameConfig.BASE_TICK_MS;
+    private long ticks = 0;
+    private int maxLength;        // longest the snake has been
+    private int powerUpsUsed = 0;
+    private long wrapTicks = 0;   // ticks moved with wrap-around on
+    private int obstacleVersion = 0;
+
+    // Timed effects; any number may overlap
+    private static final int POWER_UP_DESPAWN = 0;
+    private static final int SPEED_BOOST_END = 1;
+    private static final int TIMER_SLOTS = 256;
+    private static final int HEAD_CLEARANCE = 3; // cells ahead of the head kept free of new obstacles
+    private final TimingWheel timers;
+    private final TimingWheel.Handler onTimer = this::expire;
+    private long powerUpDespawn = TimingWheel.NONE;
+    private int speedBoosts = 0; // active boosts, each taking SPEED_BOOST_AMOUNT off the level's tick time
+
+    // Where food, power-up, level and end-of-game events go, if anywhere; not copied
+    private GameEventBus events;
+
+    // Nanoseconds per phase of the last tick, while phase timing is on
+    private boolean timePhases = false;
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long phaseStart;
+
+    // Heap allocated per phase of the last tick, while allocation tracking is on
+    private LongSupplier allocatedBytes;
+    private final long[] phaseBytes = new long[Phase.values().length];
+    private long phaseAllocStart;
+
+    public GameEngine(long seed) {
+        this(GameConfig.COLS, GameConfig.ROWS, seed);
+    }
+
+    public GameEngine(int cols, int rows, long seed) {
+        this(cols, rows, seed, null);
+    }
+
+    /**
+     * @param levels layouts for level 1, 2, ... in turn, starting over after the last; null
+     *               for random obstacles. Must match the board size.
+     */
+    public GameEngine(int cols, int rows, long seed, LevelPack levels) {
+        if (levels != null && (levels.cols() != cols || levels.rows() != rows)) {
+            throw new IllegalArgumentException("Level pack is for a " + levels.cols() + "x" + levels.rows()
+                + " board, not " + cols + "x" + rows);
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.seed = seed;
+        this.rnd = new GameRandom(seed);
+        this.grid = new OccupancyGrid(cols, rows);
+        this.obstacles = new ObstacleMap(cols, rows);
+        this.obstacleScale = (int) Math.max(1, (long) cols * rows / (GameConfig.COLS * GameConfig.ROWS));
+        this.levels = levels;
+        this.timers = new TimingWheel(TIMER_SLOTS);
+        this.snake = new Snake(cols / 2, rows / 2, grid);
+        this.maxLength = snake.length();
+        spawnFood();
+        if (levels != null) {
+            loadLayout();
+        } else {
+            spawnObstacles(GameConfig.INITIAL_OBSTACLES * obstacleScale);
+        }
+    }
+
+    /** Snapshot constructor: a deep copy that plays on independently of the original. */
+    private GameEngine(GameEngine o) {
+        this.cols = o.cols;
+        this.rows = o.rows;
+        this.seed = o.seed;
+        this.rnd = new GameRandom(0);
+        this.rnd.restore(o.rnd.state());
+        this.grid = new OccupancyGrid(o.grid);
+        this.snake = new Snake(o.snake, grid);
+        this.obstacles = new ObstacleMap(o.obstacles);
+        this.obstacleScale = o.obstacleScale;
+        this.levels = o.levels;
+        this.food = o.food;                  // food and power-ups are never mutated
+        this.activePower = o.activePower;
+        this.outcome = o.outcome;
+        this.score = o.score;
+        this.level = o.level;
+        this.tickMs = o.tickMs;
+        this.ticks = o.ticks;
+        this.maxLength = o.maxLength;
+        this.powerUpsUsed = o.powerUpsUsed;
+        this.wrapTicks = o.wrapTicks;
+        this.obstacleVersion = o.obstacleVersion;
+        this.timers = new TimingWheel(o.timers);
+        this.powerUpDespawn = o.powerUpDespawn;
+        this.speedBoosts = o.speedBoosts;
+    }
+
+    /**
+     * Copies the whole game state, including the random generator, e.g. for replay
+     * checkpoints. The copy publishes no events.
+     */
+    public GameEngine copy() {
+        return new GameEngine(this);
+    }
+
+    public int cols() { return cols; }
+    public int rows() { return rows; }
+    public long seed() { return seed; }
+    /** The level pack in play, or null for random obstacles. */
+    public LevelPack levels() { return levels; }
+    public Snake snake() { return snake; }
+    public OccupancyGrid grid() { return grid; }
+    public Food food() { return food; }
+    public PowerUp powerUp() { return activePower; }
+    /** Live obstacle storage; read it only from the thread that ticks. */
+    public ObstacleMap obstacles() { return obstacles; }
+    public int score() { return score; }
+    public int level() { return level; }
+    public int tickMs() { return tickMs; }
+    public long ticks() { return ticks; }
+    public int maxLength() { return maxLength; }
+    public int powerUpsUsed() { return powerUpsUsed; }
+
+    /** Ticks the snake has moved with wrap-around on. */
+    public long wrapTicks() { return wrapTicks; }
+    public Outcome outcome() { return outcome; }
+    public boolean isOver() { return outcome != Outcome.RUNNING; }
+
+    /** Changes whenever the obstacle layout changes, so renderers know when to redraw it. */
+    public int obstacleVersion() { return obstacleVersion; }
+
+    /**
+     * Times each {@link Phase} of every tick from now on. Off by default, since it costs a
+     * few clock reads per tick.
+     */
+    public void setPhaseTiming(boolean on) { timePhases = on; }
+
+    /** Time the phase took in the last tick, or 0 if the tick ended before it or timing is off. */
+    public long phaseNanos(Phase phase) { return phaseNanos[phase.ordinal()]; }
+
+    /**
+     * Measures the heap each {@link Phase} of every tick allocates from now on, as the
+     * difference between readings of a per-thread allocation counter such as
+     * {@link GameMetrics#threadAllocatedBytes} taken at the phase boundaries; null to stop.
+     */
+    public void setPhaseAllocation(LongSupplier threadAllocatedBytes) { allocatedBytes = threadAllocatedBytes; }
+
+    /**
+     * Heap the phase allocated in the last tick, including one counter reading, or 0 if
+     * the tick ended before it or allocation tracking is off.
+     */
+    public long phaseBytes(Phase phase) { return phaseBytes[phase.ordinal()]; }
+
+    /** Publishes this game's events to the bus from now on; null to stop. */
+    public void setEvents(GameEventBus bus) { events = bus; }
+
+    /** Player input: queues a turn that takes effect on the next tick. */
+    public void steer(Direction d) {
+        snake.queueDirection(d);
+    }
+
+    /** Player input: switches wrap-around mode, effective from the next tick. */
+    public void toggleWrap() {
+        snake.setWrap(!snake.isWrap());
+    }
+
+    /**
+     * Advances the game by one tick.
+     * @return false if the game was already over and nothing changed.
+     */
+    public boolean tick() {
+        if (isOver()) return false;
+        ticks++;
+        if (timePhases) {
+            Arrays.fill(phaseNanos, 0);
+            phaseStart = System.nanoTime();
+        }
+        if (allocatedBytes != null) {
+            Arrays.fill(phaseBytes, 0);
+            phaseAllocStart = allocatedBytes.getAsLong();
+        }
+        timers.advance(onTimer);
+
+        // move snake
+        snake.update();
+
+        // handle wrap vs wall collision
+        if (!snake.isWrap()) {
+            if (snake.outOfBounds()) {
+                return end(Outcome.WALL);
+            }
+        } else {
+            snake.wrapPosition(cols, rows);
+            wrapTicks++;
+        }
+        if (snake.length() > maxLength) maxLength = snake.length();
+        endPhase(Phase.MOVE);
+
+        // obstacle collision
+        if (grid.isObstacle(snake.headX(), snake.headY())) {
+            return end(Outcome.OBSTACLE);
+        }
+
+        // self-collision
+        if (snake.selfCollision()) {
+            return end(Outcome.SELF);
+        }
+        endPhase(Phase.COLLISION);
+
+        // food eaten
+        if (snake.headAt(food.pos)) {
+            snake.grow(food.isSpecial ? 3 : 1); // special gives extra growth
+            score += food.isSpecial ? 5 : 1;
+            publish(GameEvent.Type.FOOD_EATEN, food.isSpecial ? 1 : 0);
+            endPhase(Phase.EAT);
+            maybeLevelUp();
+            if (!spawnFood()) {
+                // nowhere left to put food: the snake has filled the board
+                return end(Outcome.WON);
+            }
+            endPhase(Phase.SPAWN);
+        } else {
+            endPhase(Phase.EAT);
+        }
+
+        // power-up pickup
+        if (activePower != null && snake.headAt(activePower.pos)) {
+            grid.setItem(activePower.pos.x, activePower.pos.y, false);
+            applyPowerUp(activePower);
+            powerUpsUsed++;
+            publish(GameEvent.Type.POWER_UP, activePower.type.ordinal());
+            activePower = null;
+            timers.cancel(powerUpDespawn);
+            powerUpDespawn = TimingWheel.NONE;
+        }
+
+        // occasionally spawn power-up
+        maybeSpawnPowerUp();
+        endPhase(Phase.POWER_UP);
+        return true;
+    }
+
+    private boolean end(Outcome how) {
+        outcome = how;
+        if (how != Outcome.WON) {
+            publish(GameEvent.Type.COLLISION, how.ordinal());
+        }
+        publish(GameEvent.Type.GAME_OVER, how.ordinal());
+        return true;
+    }
+
+    private void publish(GameEvent.Type type, int detail) {
+        if (events != null) events.publish(type, this, detail);
+    }
+
+    private void endPhase(Phase phase) {
+        if (timePhases) {
+            long now = System.nanoTime();
+            phaseNanos[phase.ordinal()] = now - phaseStart;
+            phaseStart = now;
+        }
+        if (allocatedBytes != null) {
+            long now = allocatedBytes.getAsLong();
+            phaseBytes[phase.ordinal()] = now - phaseAllocStart;
+            phaseAllocStart = now;
+        }
+    }
+
+    /**
+     * Places food on a uniformly random free cell.
+     * @return false if the board is full, which means the player has won.
+     */
+    boolean spawnFood() {
+        if (food != null) {
+            grid.setItem(food.pos.x, food.pos.y, false);
+        }
+        int cell = grid.randomFreeIndex(rnd);
+        if (cell < 0) {
+            return false;
+        }
+        boolean isSpecial = rnd.nextDouble() < 0.12; // 12% special
+        food = new Food(grid.indexX(cell), grid.indexY(cell), isSpecial);
+        grid.setItem(food.pos.x, food.pos.y, true);
+        return true;
+    }
+
+    boolean obstaclesContains(Point p) {
+        if (p == null) return false;
+        return obstacles.contains(p.x, p.y);
+    }
+
+    private void spawnObstacles(int n) {
+        clearObstacles();
+        for (int placed = 0, tries = 0; placed < n && tries < 4 * n; tries++) {
+            int cell = grid.randomFreeIndex(rnd);
+            if (cell < 0) break; // no room left
+            int x = grid.indexX(cell), y = grid.indexY(cell);
+            if (aheadOfHead(x, y)) continue;
+            obstacles.add(x, y);
+            grid.setObstacle(x, y, true);
+            placed++;
+        }
+    }
+
+    // Copies the level's layout in, then opens up the cells it must not take
+    private void loadLayout() {
+        clearObstacles();
+        levels.load((level - 1) % levels.size(), obstacles);
+        for (int i = 0; i < snake.length(); i++) {
+            obstacles.remove(snake.segmentX(i), snake.segmentY(i));
+        }
+        obstacles.remove(food.pos.x, food.pos.y);
+        if (activePower != null) {
+            obstacles.remove(activePower.pos.x, activePower.pos.y);
+        }
+        for (int k = 1; k <= HEAD_CLEARANCE; k++) {
+            int cell = cellAhead(k);
+            obstacles.remove(Cell.x(cell), Cell.y(cell));
+        }
+        grid.setObstacles(obstacles, true);
+    }
+
+    private boolean aheadOfHead(int x, int y) {
+        int target = Cell.pack(x, y);
+        for (int k = 1; k <= HEAD_CLEARANCE; k++) {
+            if (cellAhead(k) == target) return true;
+        }
+        return false;
+    }
+
+    // The cell k steps straight ahead of the head, wrapped if wrap is on (else maybe off the board)
+    private int cellAhead(int k) {
+        Direction d = snake.direction();
+        int x = snake.headX() + k * d.dx, y = snake.headY() + k * d.dy;
+        if (snake.isWrap()) {
+            x = Math.floorMod(x, cols);
+            y = Math.floorMod(y, rows);
+        }
+        return Cell.pack(x, y);
+    }
+
+    // Unmarks only the obstacle cells, so the cost follows the obstacle count, not the board
+    private void clearObstacles() {
+        grid.setObstacles(obstacles, false);
+        obstacles.clear();
+        obstacleVersion++;
+    }
+
+    private void maybeSpawnPowerUp() {
+        if (activePower != null || food == null) return;
+        if (rnd.nextDouble() < GameConfig.POWER_UP_SPAWN_CHANCE) {
+            int cell = grid.randomFreeIndex(rnd); // food is marked, so it is never picked
+            if (cell < 0) return;
+
+            activePower = new PowerUp(grid.indexX(cell), grid.indexY(cell), PowerUp.Type.randomType(rnd));
+            grid.setItem(activePower.pos.x, activePower.pos.y, true);
+
+            // Auto-remove power-up after some time if not collected
+            powerUpDespawn = timers.schedule(ticksFor(GameConfig.POWER_UP_DURATION), POWER_UP_DESPAWN, 0);
+        }
+    }
+
+    private void applyPowerUp(PowerUp p) {
+        switch (p.type) {
+            case SPEED_BOOST:
+                speedBoosts++;
+                updateSpeed();
+                // schedule restoring speed after duration
+                timers.schedule(ticksFor(GameConfig.SPEED_BOOST_DURATION), SPEED_BOOST_END, 0);
+                break;
+
+            case SHRINK:
+                snake.shrink(GameConfig.SHRINK_AMOUNT);
+                break;
+
+            case CLEAR_OBSTACLES:
+                // Add some score for clearing obstacles, as counted on a default board
+                score += obstacles.size() / obstacleScale;
+                clearObstacles();
+                break;
+        }
+    }
+
+    private void expire(int kind, int arg) {
+        switch (kind) {
+            case POWER_UP_DESPAWN:
+                grid.setItem(activePower.pos.x, activePower.pos.y, false);
+                activePower = null;
+                powerUpDespawn = TimingWheel.NONE;
+                break;
+
+            case SPEED_BOOST_END:
+                speedBoosts--;
+                updateSpeed();
+                break;
+        }
+    }
+
+    // Tick time follows the level, less whatever boosts are running
+    private void updateSpeed() {
+        int levelMs = Math.max(GameConfig.MIN_TICK_MS, GameConfig.BASE_TICK_MS - (level - 1) * GameConfig.SPEEDUP_STEP);
+        tickMs = Math.max(GameConfig.MIN_TICK_MS, levelMs - speedBoosts * GameConfig.SPEED_BOOST_AMOUNT);
+    }
+
+    private void maybeLevelUp() {
+        int newLevel = 1 + score / GameConfig.LEVEL_UP_SCORE;
+        if (newLevel > level) {
+            level = newLevel;
+            updateSpeed();
+            publish(GameEvent.Type.LEVEL_UP, level);
+            if (levels != null) {
+                loadLayout();
+            } else {
+                // add an obstacle each level
+                spawnObstacles(Math.min(30 * obstacleScale, obstacles.size() + obstacleScale));
+            }
+        }
+    }
+
+    // Durations are configured in milliseconds; convert at the current tick speed
+    private int ticksFor(int millis) {
+        return Math.max(1, Math.round((float) millis / tickMs));
+    }
+}
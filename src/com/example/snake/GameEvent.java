@@ -0,0 +1,54 @@
+package com.example.snake;
+
+/**
+ * Something that happened in a tick, as delivered by a {@link GameEventBus}, with the
+ * game's figures right after it. A subscriber gets every event in the same instance,
+ * refilled each time, so keep nothing from it past the handler.
+ */
+public final class GameEvent {
+    public enum Type { FOOD_EATEN, POWER_UP, LEVEL_UP, COLLISION, GAME_OVER }
+
+    static final Type[] TYPES = Type.values();
+    private static final PowerUp.Type[] POWER_UPS = PowerUp.Type.values();
+    private static final GameEngine.Outcome[] OUTCOMES = GameEngine.Outcome.values();
+
+    Type type;
+    long sequence, tick, time, seed;
+    int score, level, length, maxLength, powerUps, wrapTicks, detail;
+
+    public Type type() { return type; }
+
+    /** Position in the bus's stream; a gap means the subscriber missed events. */
+    public long sequence() { return sequence; }
+
+    public long tick() { return tick; }
+
+    /** Wall-clock time of publishing, in epoch millis. */
+    public long time() { return time; }
+
+    public long seed() { return seed; }
+    public int score() { return score; }
+    public int level() { return level; }
+    public int length() { return length; }
+    public int maxLength() { return maxLength; }
+
+    /** Power-ups collected so far this game. */
+    public int powerUps() { return powerUps; }
+
+    /** Ticks moved with wrap-around on so far this game, capped at Integer.MAX_VALUE. */
+    public int wrapTicks() { return wrapTicks; }
+
+    /** For {@link Type#FOOD_EATEN}: whether it was special food. */
+    public boolean special() { return detail != 0; }
+
+    /** For {@link Type#POWER_UP}: what was collected. */
+    public PowerUp.Type powerUp() { return POWER_UPS[detail]; }
+
+    /** For {@link Type#COLLISION} and {@link Type#GAME_OVER}: how the game ended. */
+    public GameEngine.Outcome outcome() { return OUTCOMES[detail]; }
+
+    @Override
+    public String toString() {
+        return type + "@" + tick + " score " + score + " level " + level + " length " + length;
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.snake;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Carries {@link GameEvent}s from the game loop to subscribers on their own threads, so
+ * side effects such as saving, statistics and sound never run inside a tick.
+ *
+ * <p>Events go into a preallocated ring of primitive slots, each stamped with the sequence
+ * number of the event in it. Publishing never blocks and never waits for a subscriber: the
+ * ring overwrites its oldest slot. Each subscriber has a thread and a cursor of its own
+ * and handles whatever was published since its last batch; one that falls a whole ring
+ * behind skips ahead and counts what it missed, without holding back the publisher or
+ * the other subscribers. A slot is copied out and its stamp checked again afterwards, so
+ * an event overwritten mid-read is counted as missed rather than delivered torn. An idle
+ * subscriber parks, and the publisher unparks it only if it is parked.
+ *
+ * <p>Events are published from one thread.
+ */
+public final class GameEventBus implements AutoCloseable {
+    /** Handles events on its subscription's thread. */
+    public interface Subscriber {
+        void onEvent(GameEvent event);
+
+        /** Called after the last event of each batch, e.g. to flush. */
+        default void endOfBatch() {}
+    }
+
+    private static final VarHandle STAMPS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long WRITING = -1;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100); // in case a wake-up is missed
+
+    private final int mask;
+    private final long[] stamps, ticks, times, seeds;
+    private final int[] types, scores, levels, lengths, maxLengths, powerUps, wrapTicks, details;
+    private volatile long published = 0; // sequence of the next event; written by the publisher only
+    private volatile Subscription[] subscriptions = new Subscription[0];
+    private volatile boolean closed = false;
+
+    /** @param capacity events kept for slow subscribers, rounded up to a power of two */
+    public GameEventBus(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        stamps = new long[size];
+        Arrays.fill(stamps, WRITING);
+        ticks = new long[size];
+        times = new long[size];
+        seeds = new long[size];
+        types = new int[size];
+        scores = new int[size];
+        levels = new int[size];
+        lengths = new int[size];
+        maxLengths = new int[size];
+        powerUps = new int[size];
+        wrapTicks = new int[size];
+        details = new int[size];
+    }
+
+    public int capacity() { return stamps.length; }
+
+    /** Events published so far. */
+    public long published() { return published; }
+
+    /** Events overwritten before a subscriber got to them, summed over the subscribers. */
+    public long missed() {
+        long n = 0;
+        for (Subscription s : subscriptions) n += s.missed();
+        return n;
+    }
+
+    /**
+     * Starts a thread delivering events published from now on to the subscriber.
+     * @param name for the thread
+     */
+    public synchronized Subscription subscribe(String name, Subscriber subscriber) {
+        if (closed) throw new IllegalStateException("GameEventBus has been closed");
+        Subscription s = new Subscription(name, subscriber);
+        Subscription[] now = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        now[now.length - 1] = s;
+        subscriptions = now;
+        s.thread.start();
+        return s;
+    }
+
+    /**
+     * Publishes an event with the engine's current figures. Never blocks; allocates
+     * nothing.
+     * @param detail see the accessors of {@link GameEvent}
+     */
+    public void publish(GameEvent.Type type, GameEngine engine, int detail) {
+        if (closed) return;
+        long seq = published;
+        int i = (int) seq & mask;
+        STAMPS.setOpaque(stamps, i, WRITING);
+        VarHandle.storeStoreFence(); // readers must not see the new fields under the old stamp
+        types[i] = type.ordinal();
+        ticks[i] = engine.ticks();
+        times[i] = System.currentTimeMillis();
+        seeds[i] = engine.seed();
+        scores[i] = engine.score();
+        levels[i] = engine.level();
+        lengths[i] = engine.snake().length();
+        maxLengths[i] = engine.maxLength();
+        powerUps[i] = engine.powerUpsUsed();
+        wrapTicks[i] = (int) Math.min(Integer.MAX_VALUE, engine.wrapTicks());
+        details[i] = detail;
+        STAMPS.setRelease(stamps, i, seq);
+        published = seq + 1;
+        for (Subscription s : subscriptions) {
+            s.wake();
+        }
+    }
+
+    /** Copies event seq into e; false if its slot has been overwritten since. */
+    private boolean read(long seq, GameEvent e) {
+        int i = (int) seq & mask;
+        if ((long) STAMPS.getAcquire(stamps, i) != seq) return false;
+        e.type = GameEvent.TYPES[types[i]];
+        e.sequence = seq;
+        e.tick = ticks[i];
+        e.time = times[i];
+        e.seed = seeds[i];
+        e.score = scores[i];
+        e.level = levels[i];
+        e.length = lengths[i];
+        e.maxLength = maxLengths[i];
+        e.powerUps = powerUps[i];
+        e.wrapTicks = wrapTicks[i];
+        e.detail = details[i];
+        VarHandle.loadLoadFence();
+        return (long) STAMPS.getOpaque(stamps, i) == seq;
+    }
+
+    /**
+     * Delivers the events still queued to every subscriber, then stops their threads and
+     * reports any subscriber that missed events.
+     */
+    @Override
+    public void close() {
+        Subscription[] all;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            all = subscriptions;
+        }
+        for (Subscription s : all) {
+            LockSupport.unpark(s.thread);
+        }
+        for (Subscription s : all) {
+            try {
+                s.thread.join(TimeUnit.SECONDS.toMillis(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (s.missed() > 0) {
+                System.err.println(s.thread.getName() + " missed " + s.missed() + " of " + published + " events");
+            }
+        }
+    }
+
+    /** One subscriber's thread and position in the stream. */
+    public final class Subscription {
+        private final Subscriber subscriber;
+        private final Thread thread;
+        private final GameEvent event = new GameEvent();
+        private long cursor = published;
+        private volatile boolean parked = false;
+        private volatile long delivered = 0, missed = 0;
+
+        private Subscription(String name, Subscriber subscriber) {
+            this.subscriber = subscriber;
+            thread = new Thread(this::run, "events-" + name);
+            thread.setDaemon(true);
+        }
+
+        /** Events handed to the subscriber. */
+        public long delivered() { return delivered; }
+
+        /** Events overwritten before the subscriber got to them. */
+        public long missed() { return missed; }
+
+        /** Events published but not yet handled. */
+        public long backlog() { return Math.max(0, published - cursor); }
+
+        private void wake() {
+            if (parked) {
+                parked = false;
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void run() {
+            while (true) {
+                long available = published;
+                if (cursor == available) {
+                    if (closed) return;
+                    parked = true;
+                    // re-check after announcing the park, so a publish in between is not slept through
+                    if (published == cursor && !closed) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    parked = false;
+                    continue;
+                }
+                if (available - cursor > stamps.length) {
+                    missed += available - stamps.length - cursor;
+                    cursor = available - stamps.length;
+                }
+                for (; cursor < available; cursor++) {
+                    if (!read(cursor, event)) {
+                        missed++; // lapped while reading
+                        continue;
+                    }
+                    try {
+                        subscriber.onEvent(event);
+                    } catch (RuntimeException e) {
+                        System.err.println(thread.getName() + " failed on " + event + ": " + e);
+                    }
+                    delivered++;
+                }
+                try {
+                    subscriber.endOfBatch();
+                } catch (RuntimeException e) {
+                    System.err.println(thread.getName() + " failed at end of batch: " + e);
+                }
+            }
+        }
+    }
+}
@@ -1,16 +1,38 @@
 package com.example.snake;
 
 import javax.swing.JFrame;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Path;
 
 public class GameFrame extends JFrame {
+    private final GamePanel panel;
+
     public GameFrame() {
-        setTitle("Advanced Snake");
+        this(GameConfig.COLS, GameConfig.ROWS, null, null, null, false, null);
+    }
+
+    public GameFrame(int cols, int rows, LevelPack levels, Path recordTo, Path replayFrom, boolean fast,
+                     SpectatorFeed spectators) {
+        setTitle(replayFrom == null ? "Advanced Snake" : "Advanced Snake - Replay");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setResizable(false);
 
-        GamePanel panel = new GamePanel();
+        panel = new GamePanel(cols, rows, levels, recordTo, replayFrom, spectators);
+        if (fast) {
+            panel.setFastForward(true);
+        }
         add(panel);
         pack();
         setLocationRelativeTo(null);
+
+        // flush the recording before exit
+        addWindowListener(new WindowAdapter() {
+            @Override public void windowClosing(WindowEvent e) {
+                panel.dispose();
+            }
+        });
     }
+
+    public GamePanel panel() { return panel; }
 }
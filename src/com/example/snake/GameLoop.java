@@ -0,0 +1,177 @@
+package com.example.snake;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Fixed-timestep game loop on a dedicated thread, driven by {@link System#nanoTime}.
+ * Elapsed time goes into an accumulator that is drained in whole ticks, so the tick
+ * rate does not depend on the frame rate or on Swing timer jitter. Frames are rendered
+ * at most {@code fps} times a second with the fraction of the next tick already elapsed,
+ * which lets the renderer interpolate between the last two states.
+ *
+ * <p>Anything that touches game state from another thread should go through {@link #post}
+ * so it runs on the loop thread between ticks.
+ */
+public class GameLoop implements Runnable {
+    private static final int MAX_CATCH_UP_TICKS = 5; // beyond this the backlog is dropped
+
+    private final BooleanSupplier tick;      // returns false when the game did not advance
+    private final LongSupplier tickNanos;
+    private final DoubleConsumer render;     // receives the interpolation alpha in [0, 1]
+    private final long frameNanos;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = false;
+    private volatile boolean fastForward = false;
+    private volatile boolean resetClock = false;
+    private volatile Thread thread;
+
+    // Rates over the last full second, for the HUD
+    private volatile int ticksPerSecond, framesPerSecond;
+
+    // How far behind its due time the running tick started; loop thread only
+    private long tickLateness;
+
+    public GameLoop(BooleanSupplier tick, LongSupplier tickNanos, DoubleConsumer render, int fps) {
+        this.tick = tick;
+        this.tickNanos = tickNanos;
+        this.render = render;
+        this.frameNanos = 1_000_000_000L / fps;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "snake-game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the loop. Called from any other thread, it returns only once the loop thread
+     * has finished its tick or frame and exited, so the caller may then release what the
+     * callbacks use; called from a callback, it just ends the loop after it.
+     */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = thread;
+            thread = null;
+        }
+        if (t == null) return;
+        LockSupport.unpark(t);
+        if (t == Thread.currentThread()) return;
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Runs the task on the loop thread before the next tick. */
+    public void post(Runnable task) {
+        tasks.offer(task);
+        Thread t = thread;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    /** Drops any accumulated time, e.g. after a restart, so the loop does not try to catch up. */
+    public void resetClock() { resetClock = true; }
+
+    /** When on, ticks run back to back as fast as possible, and frames still render at the frame rate. */
+    public void setFastForward(boolean on) { fastForward = on; }
+    public boolean isFastForward() { return fastForward; }
+
+    public int ticksPerSecond() { return ticksPerSecond; }
+    public int framesPerSecond() { return framesPerSecond; }
+
+    /**
+     * How long after its due time the current tick started, for the tick callback to read.
+     * Always 0 in fast-forward, where ticks have no schedule.
+     */
+    public long tickLatenessNanos() { return tickLateness; }
+
+    @Override
+    public void run() {
+        long prev = System.nanoTime();
+        long acc = 0;
+        long nextFrame = prev;
+        long rateWindowStart = prev;
+        int ticks = 0, frames = 0;
+
+        while (running) {
+            runTasks();
+            long now = System.nanoTime();
+            if (resetClock) {
+                resetClock = false;
+                acc = 0;
+            } else {
+                acc += now - prev;
+            }
+            prev = now;
+            long step = Math.max(1, tickNanos.getAsLong());
+            boolean busy = false;
+
+            if (fastForward) {
+                // unthrottled: tick back to back until the next frame is due
+                tickLateness = 0;
+                do {
+                    if (!tick.getAsBoolean()) break;
+                    busy = true;
+                    ticks++;
+                    runTasks();
+                } while (running && System.nanoTime() < nextFrame);
+                acc = 0;
+            } else {
+                int caughtUp = 0;
+                while (acc >= step) {
+                    if (caughtUp == MAX_CATCH_UP_TICKS) {
+                        acc = 0; // too far behind: skip time rather than spiral
+                        break;
+                    }
+                    // the tick fell due when the accumulator reached one step
+                    tickLateness = acc - step;
+                    tick.getAsBoolean();
+                    acc -= step;
+                    ticks++;
+                    caughtUp++;
+                }
+            }
+
+            now = System.nanoTime();
+            if (now >= nextFrame) {
+                render.accept(fastForward ? 1.0 : Math.min(1.0, (double) acc / step));
+                frames++;
+                // schedule from the previous deadline, but never more than a frame behind
+                nextFrame = Math.max(nextFrame + frameNanos, now);
+            }
+
+            if (now - rateWindowStart >= 1_000_000_000L) {
+                ticksPerSecond = ticks;
+                framesPerSecond = frames;
+                ticks = frames = 0;
+                rateWindowStart = now;
+            }
+
+            // sleep until the next tick or frame, whichever comes first; a paused
+            // fast-forward has no ticks to run and just waits for the next frame
+            long untilTick = fastForward ? Long.MAX_VALUE : step - acc - (now - prev);
+            long wait = Math.min(untilTick, nextFrame - now);
+            if (!busy && wait > 0 && tasks.isEmpty()) {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable r;
+        while ((r = tasks.poll()) != null) {
+            r.run();
+        }
+    }
+}
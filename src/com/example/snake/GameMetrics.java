@@ -0,0 +1,264 @@
+package com.example.snake;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tick and paint instrumentation for the game loop: latency distributions for whole ticks,
+ * each {@link GameEngine.Phase}, paints, tick lateness and key-to-tick input delay, plus
+ * heap allocated per tick. The same numbers feed the F3 overlay, JFR (as
+ * {@code com.example.snake.Tick} and {@code com.example.snake.Paint} events, when a
+ * recording is running) and JMX.
+ *
+ * <p>Recording allocates nothing and must happen on one thread, the game loop. Readers
+ * on other threads, such as JMX, see slightly stale figures.
+ */
+public class GameMetrics implements GameMetricsMXBean {
+    public static final String OBJECT_NAME = "com.example.snake:type=GameMetrics";
+
+    private static final GameEngine.Phase[] PHASES = GameEngine.Phase.values();
+    private static final EventType TICK_EVENT = EventType.getEventType(TickEvent.class);
+    private static final EventType PAINT_EVENT = EventType.getEventType(PaintEvent.class);
+
+    private final LatencyHistogram tick = new LatencyHistogram();
+    private final LatencyHistogram[] phases = new LatencyHistogram[PHASES.length];
+    private final LatencyHistogram paint = new LatencyHistogram();
+    private final LatencyHistogram lateness = new LatencyHistogram();
+    private final LatencyHistogram allocated = new LatencyHistogram();
+    private final LatencyHistogram input = new LatencyHistogram();
+    private volatile boolean resetRequested = false;
+    private ObjectName registeredAs;
+
+    // Per-thread allocation counter: com.sun.management's current-thread query where the
+    // JDK has it (14+), else the by-id query, minus what the query itself allocates
+    private final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MethodHandle currentThreadAllocated;
+    private final boolean allocationSupported;
+    private long allocationBias = 0;
+
+    public GameMetrics() {
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+        MethodHandle current = null;
+        boolean supported = false;
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                supported = true;
+                try {
+                    current = MethodHandles.publicLookup()
+                        .findVirtual(com.sun.management.ThreadMXBean.class, "getCurrentThreadAllocatedBytes",
+                            MethodType.methodType(long.class))
+                        .bindTo(bean);
+                } catch (ReflectiveOperationException e) {
+                    // before JDK 14: fall back to the by-id query
+                }
+            }
+        }
+        currentThreadAllocated = current;
+        allocationSupported = supported;
+        if (supported) {
+            long bias = Long.MAX_VALUE;
+            for (int i = 0; i < 16; i++) {
+                long a = threadAllocatedBytes();
+                bias = Math.min(bias, threadAllocatedBytes() - a);
+            }
+            allocationBias = Math.max(0, bias);
+        }
+    }
+
+    /**
+     * Heap allocated so far by the calling thread, for differences around a tick, or -1
+     * where the JVM cannot tell.
+     */
+    public long threadAllocatedBytes() {
+        if (!allocationSupported) return -1;
+        if (currentThreadAllocated != null) {
+            try {
+                return (long) currentThreadAllocated.invokeExact();
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** Heap one {@link #threadAllocatedBytes} reading allocates itself, usually 0. */
+    public long allocationBias() { return allocationBias; }
+
+    /**
+     * Records one tick: its total time, the engine's phase times (if phase timing is on),
+     * how late it started, and the heap allocated across it as two
+     * {@link #threadAllocatedBytes} readings taken before and after.
+     */
+    public void recordTick(GameEngine engine, long nanos, long latenessNanos, long allocStart, long allocEnd) {
+        applyReset();
+        tick.record(nanos);
+        for (int i = 0; i < PHASES.length; i++) {
+            phases[i].record(engine.phaseNanos(PHASES[i]));
+        }
+        lateness.record(latenessNanos);
+        long bytes = allocStart < 0 ? -1 : Math.max(0, allocEnd - allocStart - allocationBias);
+        if (bytes >= 0) allocated.record(bytes);
+
+        if (TICK_EVENT.isEnabled()) {
+            TickEvent e = new TickEvent();
+            e.tick = engine.ticks();
+            e.tickTime = nanos;
+            e.move = engine.phaseNanos(GameEngine.Phase.MOVE);
+            e.collision = engine.phaseNanos(GameEngine.Phase.COLLISION);
+            e.eat = engine.phaseNanos(GameEngine.Phase.EAT);
+            e.spawn = engine.phaseNanos(GameEngine.Phase.SPAWN);
+            e.powerUp = engine.phaseNanos(GameEngine.Phase.POWER_UP);
+            e.lateness = latenessNanos;
+            e.allocated = bytes;
+            e.commit();
+        }
+    }
+
+    public void recordPaint(long nanos, String mode) {
+        applyReset();
+        paint.record(nanos);
+        if (PAINT_EVENT.isEnabled()) {
+            PaintEvent e = new PaintEvent();
+            e.paintTime = nanos;
+            e.mode = mode;
+            e.commit();
+        }
+    }
+
+    /** Records how long a key press waited for the tick that applied it. */
+    public void recordInput(long nanos) {
+        applyReset();
+        input.record(nanos);
+    }
+
+    private void applyReset() {
+        if (!resetRequested) return;
+        resetRequested = false;
+        tick.reset();
+        for (LatencyHistogram h : phases) h.reset();
+        paint.reset();
+        lateness.reset();
+        allocated.reset();
+        input.reset();
+    }
+
+    LatencyHistogram tick() { return tick; }
+    LatencyHistogram phase(GameEngine.Phase phase) { return phases[phase.ordinal()]; }
+    LatencyHistogram paint() { return paint; }
+    LatencyHistogram lateness() { return lateness; }
+    LatencyHistogram input() { return input; }
+    /** Empty where allocation cannot be measured. */
+    LatencyHistogram allocated() { return allocated; }
+
+    /** Publishes these metrics on the platform MBean server; failures are reported, not thrown. */
+    public void register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredAs = name;
+        } catch (JMException e) {
+            System.err.println("Metrics not published over JMX: " + e.getMessage());
+        }
+    }
+
+    public void unregister() {
+        if (registeredAs == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredAs);
+        } catch (JMException e) {
+            System.err.println("Error unpublishing metrics: " + e.getMessage());
+        }
+        registeredAs = null;
+    }
+
+    // JMX view
+
+    private static double micros(long nanos) { return nanos / 1e3; }
+
+    @Override public long getTickCount() { return tick.count(); }
+    @Override public double getTickP50Micros() { return micros(tick.percentile(50)); }
+    @Override public double getTickP99Micros() { return micros(tick.percentile(99)); }
+    @Override public double getTickMaxMicros() { return micros(tick.max()); }
+
+    @Override
+    public Map<String, Double> getPhaseMicros() {
+        Map<String, Double> out = new LinkedHashMap<>();
+        for (GameEngine.Phase p : PHASES) {
+            out.put(p + ".p50", micros(phases[p.ordinal()].percentile(50)));
+            out.put(p + ".p99", micros(phases[p.ordinal()].percentile(99)));
+        }
+        return out;
+    }
+
+    @Override public long getPaintCount() { return paint.count(); }
+    @Override public double getPaintP50Micros() { return micros(paint.percentile(50)); }
+    @Override public double getPaintP99Micros() { return micros(paint.percentile(99)); }
+    @Override public double getPaintMaxMicros() { return micros(paint.max()); }
+
+    @Override public double getLatenessP50Micros() { return micros(lateness.percentile(50)); }
+    @Override public double getLatenessP99Micros() { return micros(lateness.percentile(99)); }
+    @Override public double getLatenessMaxMicros() { return micros(lateness.max()); }
+
+    @Override public long getInputCount() { return input.count(); }
+    @Override public double getInputLatencyP50Micros() { return micros(input.percentile(50)); }
+    @Override public double getInputLatencyP99Micros() { return micros(input.percentile(99)); }
+    @Override public double getInputLatencyMaxMicros() { return micros(input.max()); }
+
+    @Override
+    public double getAllocatedBytesPerTickMean() {
+        return allocationSupported ? allocated.mean() : -1;
+    }
+
+    @Override
+    public long getAllocatedBytesPerTickP99() {
+        return allocationSupported ? allocated.percentile(99) : -1;
+    }
+
+    @Override public void reset() { resetRequested = true; }
+
+    // JFR events; only created while a recording has them enabled
+
+    @Name("com.example.snake.Tick")
+    @Label("Game Tick")
+    @Category("Snake")
+    @StackTrace(false)
+    static class TickEvent extends Event {
+        @Label("Tick") long tick;
+        @Label("Tick Time") @Timespan long tickTime;
+        @Label("Move") @Timespan long move;
+        @Label("Collision") @Timespan long collision;
+        @Label("Eat") @Timespan long eat;
+        @Label("Spawn") @Timespan long spawn;
+        @Label("Power-up") @Timespan long powerUp;
+        @Label("Lateness") @Timespan long lateness;
+        @Label("Allocated") @DataAmount long allocated;
+    }
+
+    @Name("com.example.snake.Paint")
+    @Label("Frame Paint")
+    @Category("Snake")
+    @StackTrace(false)
+    static class PaintEvent extends Event {
+        @Label("Paint Time") @Timespan long paintTime;
+        @Label("Render Mode") String mode;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.snake;
+
+import java.util.Map;
+
+/**
+ * Tick and paint timings of the running game, as published over JMX under
+ * {@value GameMetrics#OBJECT_NAME}. Times are in microseconds; all figures cover
+ * everything since start or the last {@link #reset}.
+ */
+public interface GameMetricsMXBean {
+    long getTickCount();
+    double getTickP50Micros();
+    double getTickP99Micros();
+    double getTickMaxMicros();
+
+    /** p50 and p99 of each {@link GameEngine.Phase}, keyed like {@code "MOVE.p99"}. */
+    Map<String, Double> getPhaseMicros();
+
+    long getPaintCount();
+    double getPaintP50Micros();
+    double getPaintP99Micros();
+    double getPaintMaxMicros();
+
+    /** How late ticks start against the {@code tickMs} schedule. */
+    double getLatenessP50Micros();
+    double getLatenessP99Micros();
+    double getLatenessMaxMicros();
+
+    /** From a key press to the start of the tick that applied it. */
+    long getInputCount();
+    double getInputLatencyP50Micros();
+    double getInputLatencyP99Micros();
+    double getInputLatencyMaxMicros();
+
+    /** Heap allocated on the loop thread per tick, or -1 where the JVM cannot measure it. */
+    double getAllocatedBytesPerTickMean();
+    long getAllocatedBytesPerTickP99();
+
+    /** Clears all distributions; takes effect on the next tick. */
+    void reset();
+}
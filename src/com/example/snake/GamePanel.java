@@ -1,80 +1,417 @@
 package com.example.snake;
 
-import javax.swing.Timer;
 import javax.swing.JOptionPane;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.*;
-import java.util.List;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.*;      
-import java.util.Random;       
-
-
-public class GamePanel extends JPanel implements ActionListener {
-    private Snake snake;
-    private Food food;
-    private final List<Obstacle> obstacles = Collections.synchronizedList(new ArrayList<>());
-    private PowerUp activePower = null;
-    private final Random rnd = new Random();
-    private Timer timer;
-    private Timer powerUpTimer;
-    private boolean running = false;
+
+
+public class GamePanel extends JPanel {
+    private volatile GameEngine engine; // replaced on restart, read by the input handlers
+    private GameLoop loop;
+
+    // Startup: an interactive panel shows an empty board at once and sets the game up on a
+    // background thread (metrics, leaderboard, replay or recording files, sprites and fonts);
+    // input and the loop start on the EDT once that is done
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private final CompletableFuture<Void> firstFrame = new CompletableFuture<>();
+    private boolean startFast = false;
+    private boolean disposed = false;
     private boolean paused = false;
-    private int score = 0;
-    private int level = 1;
-    private int tickMs = GameConfig.BASE_TICK_MS;
-    private final HighScoreStore hsStore = new HighScoreStore();
-    private int highScore = hsStore.load();
+    private LeaderboardStore leaderboard; // loads in the background; null for benchmark panels
+
+    // Side effects of live games (statistics, sound) run on the event bus's subscriber
+    // threads, not in the tick; all null for benchmark panels. Finished games are saved
+    // from gameOver instead, since the bus drops events for a subscriber that falls behind
+    private static final int EVENT_CAPACITY = 1024;
+    private GameEventBus events;
+    private SoundEffects sound;
+
+    // Overlays below the status line, both null for benchmark panels: S toggles the history
+    // screen (also null if the session history could not be opened), F3 the instrumentation
+    private HistoryScreen history;
+    private MetricsOverlay overlay;
+
+    private final boolean interactive;
+    private int seenObstacleVersion = -1;
+    private final int boardCols, boardRows; // size of new live games
+    private final LevelPack levels;         // layouts for new games and replays, or null
+
+    // Replays: with recordTo set every game is recorded there (a restart overwrites it);
+    // with replayFrom set the panel plays that recording instead of taking input
+    private static final int SEEK_TICKS = 100;
+    private final Path recordTo, replayFrom;
+    private ReplayWriter recorder;
+    private ReplayPlayer player;
+
+    // Spectators: every tick is published as a keyframe/delta stream when set
+    private final SpectatorFeed spectators;
+
+    // Key presses travel from the EDT to the loop thread through a lock-free ring, stamped
+    // with their press time, and are applied at the start of the next tick
+    private static final int INPUT_WRAP = 4; // other codes are Direction ordinals
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private final InputRing input = new InputRing(64);
+
+    // Autopilot: when on, the bot steers before every tick through the same path as the keys.
+    // Its search arrays are sized for the board when the first game is set up.
+    private final AutopilotBot autopilot = new AutopilotBot();
+    private volatile boolean autopilotOn = false;
+    private double avgPlanMs = 0;
+
+    // Hints: when on, each tick's state goes to the lookahead advisor, which searches it on
+    // its own thread, and the cell it would move to next is outlined once it has answered
+    private static final Color HINT_COLOR = new Color(255, 255, 255, 180);
+    private volatile HintAdvisor hints;    // created when first switched on
+    private volatile boolean hintsOn = false;
+
+    // Instrumentation (interactive panels only)
+    private GameMetrics metrics;          // set before the loop starts
+
+    // Rendering. Only the viewport is drawn: up to VIEW_COLS x VIEW_ROWS cells starting at
+    // the camera cell (camX, camY), which follows the head. In CACHED mode the visible grid
+    // and obstacles are pre-rendered into staticLayer, and frame holds the whole viewport;
+    // each tick redraws only the cells that changed into frame, and paintComponent just
+    // blits it. A camera move rebuilds both. FULL mode redraws everything every paint.
+    public enum RenderMode { FULL, CACHED }
+    private static final Color GRID_COLOR = new Color(30, 30, 30);
+    private static final int GRADIENT_STEPS = 32;
+    private static final Color[] BODY_PALETTE = new Color[GRADIENT_STEPS];
+    static {
+        for (int b = 0; b < GRADIENT_STEPS; b++) {
+            float t = (float) b / GRADIENT_STEPS;
+            BODY_PALETTE[b] = new Color( (int)(0 + t*200), (int)(100 + (1-t)*100), 40 );
+        }
+    }
+    // Cells are drawn as pre-rasterized sprites, and each body segment's palette band comes
+    // from a table rebuilt only when the length changes, so drawing the snake is a blit loop
+    private TileSprites sprites;                 // built on first draw
+    private byte[] bandOf = new byte[0];         // palette band of segment i, valid for bandLength
+    private int bandLength = -1;
+    private Graphics2D obstacleTarget;           // where drawObstacle blits
+    private final ObstacleMap.CellVisitor drawObstacle = (x, y) -> drawTile(obstacleTarget, x, y, sprites.obstacle);
+
+    // HUD text is drawn into transparent layers: the status line only when a value on it
+    // changes, the paint statistics a few times a second
+    private static final int HUD_HEIGHT = 34, STATS_HEIGHT = 20;
+    private BufferedImage hudLayer, statsLayer;
+    private final long[] hudShown = new long[9], hudNow = new long[9];
+    private long statsAt = 0;
+    private boolean offscreen = false;   // drawing frames for a file: no paint statistics
+    private RenderMode renderMode = RenderMode.CACHED;
+    private int viewCols, viewRows;
+    private int camX, camY;
+    private BufferedImage staticLayer;
+    private BufferedImage frame;
+    private boolean staticDirty = true;
+    private boolean frameDirty = true;
+    private long pendingRenderNanos = 0;  // cell redraws since the last paint
+    private double avgPaintMs = 0;        // moving average of tick redraws + frame render
+
+    // Active rendering: the loop thread renders into backBuffer and swaps it with
+    // frontBuffer, which is all paintComponent draws. A frame is skipped while the
+    // previous one is still waiting to be painted.
+    private static final int TARGET_FPS = 60;
+    private final Object presentLock = new Object();
+    private BufferedImage backBuffer, frontBuffer;
+    private volatile boolean framePending = false;
+    private int skippedFrames = 0;
+
+    // Where the head and tail were before the last tick, for interpolated drawing
+    private int prevHead, prevTail;
+    private boolean moved = false;
 
     public GamePanel() {
-        try {
-            setPreferredSize(GameConfig.PREF_SIZE);
-            setBackground(Color.BLACK);
-            setFocusable(true);
+        this(GameConfig.COLS, GameConfig.ROWS, null, null, null, null);
+    }
+
+    /**
+     * @param cols       board width in cells for new games
+     * @param rows       board height in cells for new games
+     * @param levels     level pack for the board size, or null for random obstacles
+     * @param recordTo   file to record each game to, or null
+     * @param replayFrom recording to play back instead of a live game (its board size
+     *                   wins), or null
+     * @param spectators feed to publish every tick to, or null; closed on dispose
+     */
+    public GamePanel(int cols, int rows, LevelPack levels, Path recordTo, Path replayFrom,
+                     SpectatorFeed spectators) {
+        this(true, cols, rows, levels, recordTo, replayFrom, spectators);
+    }
+
+    /**
+     * @param interactive false builds a panel for benchmarks: no loop is started, no
+     *                    dialogs are shown and no high score is written. The caller drives
+     *                    ticks through {@link #tick}, restarts via {@link #restart}, and
+     *                    paintComponent draws the current state directly.
+     */
+    GamePanel(boolean interactive) {
+        this(interactive, GameConfig.COLS, GameConfig.ROWS, null, null, null, null);
+    }
+
+    /** Non-interactive panel on a board of the given size, for benchmarks. */
+    GamePanel(int cols, int rows) {
+        this(false, cols, rows, null, null, null, null);
+    }
+
+    private GamePanel(boolean interactive, int cols, int rows, LevelPack levels, Path recordTo,
+                      Path replayFrom, SpectatorFeed spectators) {
+        this.interactive = interactive;
+        this.spectators = spectators;
+        this.boardCols = cols;
+        this.boardRows = rows;
+        this.levels = levels;
+        this.recordTo = recordTo;
+        this.replayFrom = replayFrom;
+        setBackground(Color.BLACK);
+        setFocusable(true);
+        if (!interactive) {
             initGame();
-            setupInput();
-            startGame();
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "Failed to initialize game: " + e.getMessage(),
-                "Initialization Error",
-                JOptionPane.ERROR_MESSAGE);
+            setPreferredSize(viewSize());
+            ready.complete(null);
+            return;
+        }
+        // a replay's board size is only known once it is open; the window is resized then
+        viewCols = Math.min(cols, GameConfig.VIEW_COLS);
+        viewRows = Math.min(rows, GameConfig.VIEW_ROWS);
+        setPreferredSize(viewSize());
+        CompletableFuture.runAsync(this::prepare)
+            .whenComplete((v, e) -> EventQueue.invokeLater(() -> start(e)));
+    }
+
+    /** The slow part of startup, off the EDT. */
+    private void prepare() {
+        metrics = new GameMetrics();
+        metrics.register();
+        leaderboard = new LeaderboardStore();
+        leaderboard.loaded().thenRun(this::repaint); // show the high score once it is in
+        events = new GameEventBus(EVENT_CAPACITY);
+        GameStats stats = new GameStats();
+        events.subscribe("stats", stats);
+        overlay = new MetricsOverlay(metrics, stats, events);
+        sound = SoundEffects.open();
+        if (sound != null) events.subscribe("sound", sound);
+        try {
+            history = new HistoryScreen(new SessionStore());
+        } catch (IOException e) {
+            System.err.println("Session history disabled: " + e.getMessage());
+        }
+        initGame();
+        sprites();
+        // load the HUD font and its glyphs now rather than in the first frame
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scratch.createGraphics();
+        g.setFont(getFont());
+        g.drawString("Score: 0123456789", 0, 0);
+        g.dispose();
+    }
+
+    /** Starts input and the loop on the EDT, or reports why the game could not be set up. */
+    private void start(Throwable failure) {
+        if (disposed) {
+            dispose(); // closed while starting: release what prepare opened
+            return;
+        }
+        if (failure != null) {
+            Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+            ready.completeExceptionally(cause);
+            dispose();
+            if (GraphicsEnvironment.isHeadless()) {
+                System.err.println("Failed to initialize game: " + cause.getMessage());
+            } else {
+                JOptionPane.showMessageDialog(this,
+                    "Failed to initialize game: " + cause.getMessage(),
+                    "Initialization Error",
+                    JOptionPane.ERROR_MESSAGE);
+            }
             System.exit(1);
         }
+        Dimension size = viewSize();
+        if (!size.equals(getPreferredSize())) {
+            setPreferredSize(size);
+            Window window = SwingUtilities.getWindowAncestor(this);
+            if (window != null) window.pack();
+        }
+        setupInput();
+        startGame();
+        loop.setFastForward(startFast);
+        ready.complete(null);
+    }
+
+    private Dimension viewSize() {
+        return new Dimension(viewCols * GameConfig.TILE_SIZE, viewRows * GameConfig.TILE_SIZE);
     }
 
+    /** Completes once the game is set up and running, or with the reason it could not start. */
+    public CompletableFuture<Void> ready() { return ready; }
+
+    /** Completes when the first frame of the game has been painted. */
+    public CompletableFuture<Void> firstFrame() { return firstFrame; }
+
     private void initGame() {
-        // Clean up existing timers
-        cleanupTimers();
-        
         // Initialize game state
-        try {
-            highScore = Math.max(0, hsStore.load()); // Ensure non-negative score
-        } catch (Exception e) {
-            highScore = 0;
-            System.err.println("Failed to load high score: " + e.getMessage());
-        }
-        snake = new Snake(GameConfig.COLS/2, GameConfig.ROWS/2);
-        spawnFood();
-        spawnObstacles(GameConfig.INITIAL_OBSTACLES);
-        score = 0;
-        level = 1;
-        tickMs = GameConfig.BASE_TICK_MS;
-        running = true;
+        if (replayFrom != null) {
+            startReplay();
+        } else {
+            finishRecording();
+            engine = new GameEngine(boardCols, boardRows, System.nanoTime(), levels);
+            engine.setEvents(events);
+            autopilot.resize(boardCols, boardRows); // once, at startup, rather than in a tick
+            startRecording();
+        }
+        if (spectators != null) {
+            spectators.requestKeyframe();
+        }
+        viewCols = Math.min(engine.cols(), GameConfig.VIEW_COLS);
+        viewRows = Math.min(engine.rows(), GameConfig.VIEW_ROWS);
+        camX = centreCamera(engine.snake().headX(), viewCols, engine.cols());
+        camY = centreCamera(engine.snake().headY(), viewRows, engine.rows());
+        invalidateStaticLayer();
         paused = false;
+        moved = false;
+    }
+
+    private void startReplay() {
+        try {
+            if (player != null) player.close();
+            player = new ReplayPlayer(replayFrom, levels);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open replay " + replayFrom + ": " + e.getMessage(), e);
+        }
+        engine = player.engine();
+    }
+
+    private void startRecording() {
+        if (recordTo == null) return;
+        try {
+            recorder = new ReplayWriter(recordTo, engine);
+        } catch (IOException e) {
+            System.err.println("Recording disabled: " + e.getMessage());
+        }
+    }
+
+    private void finishRecording() {
+        if (recorder == null) return;
+        try {
+            recorder.finish(engine.ticks());
+        } catch (IOException e) {
+            System.err.println("Failed to finish recording: " + e.getMessage());
+        }
+        recorder = null;
+    }
+
+    /** Applies the key presses queued since the last tick, in order. */
+    private void applyInput() {
+        int code;
+        while ((code = input.poll()) >= 0) {
+            if (code == INPUT_WRAP) {
+                toggleWrap();
+            } else {
+                steer(DIRECTIONS[code]);
+            }
+            if (metrics != null) {
+                metrics.recordInput(System.nanoTime() - input.polledStamp());
+            }
+        }
+    }
+
+    /** Applies a turn on the game thread, recording it first when recording. */
+    private void steer(Direction d) {
+        if (recorder != null) {
+            try {
+                recorder.direction(engine.ticks(), d);
+            } catch (IOException e) {
+                System.err.println("Recording stopped: " + e.getMessage());
+                recorder = null;
+            }
+        }
+        engine.steer(d);
+    }
+
+    private void toggleWrap() {
+        if (recorder != null) {
+            try {
+                recorder.wrapToggle(engine.ticks());
+            } catch (IOException e) {
+                System.err.println("Recording stopped: " + e.getMessage());
+                recorder = null;
+            }
+        }
+        engine.toggleWrap();
+    }
+
+    /** Jumps playback by the given number of ticks, re-simulating from a checkpoint. */
+    private void seekReplay(long deltaTicks) {
+        player.seek(engine.ticks() + deltaTicks);
+        engine = player.engine();
+        if (spectators != null) {
+            spectators.requestKeyframe();
+        }
+        followHead();
+        invalidateStaticLayer();
+        moved = false;
+        loop.resetClock();
     }
 
     private void startGame() {
-        timer = new Timer(tickMs, this);
-        timer.start();
+        loop = new GameLoop(this::tick, () -> engine.tickMs() * 1_000_000L, this::renderFrame, TARGET_FPS);
+        loop.start();
+    }
+
+    /** Runs the action on the game loop thread, or right away when there is no loop. */
+    private void onGameThread(Runnable action) {
+        if (loop != null) {
+            loop.post(action);
+        } else {
+            action.run();
+        }
+    }
+
+    // Benchmark hooks
+    GameEngine engine() { return engine; }
+    boolean isRunning() { return !engine.isOver(); }
+    void restart() { initGame(); }
+    void setRenderMode(RenderMode mode) { renderMode = mode; frameDirty = true; }
+
+    /**
+     * Draws a game state as this panel would show it, with the camera at (camX, camY),
+     * into g2 — for {@link ReplayRenderer}. The panel takes the state's board size and
+     * leaves out the paint statistics, so the same state always gives the same picture.
+     */
+    void renderOffscreen(Graphics2D g2, GameEngine state, int camX, int camY) {
+        engine = state;
+        viewCols = Math.min(state.cols(), GameConfig.VIEW_COLS);
+        viewRows = Math.min(state.rows(), GameConfig.VIEW_ROWS);
+        this.camX = camX;
+        this.camY = camY;
+        renderMode = RenderMode.FULL;
+        moved = false;
+        offscreen = true;
+        Dimension size = viewSize();
+        if (!size.equals(getSize())) {
+            setSize(size);
+        }
+        render(g2, 1.0);
+    }
+
+    /** Starts playback at full speed instead of in real time. */
+    public void setFastForward(boolean on) {
+        if (loop != null) {
+            loop.setFastForward(on);
+        } else {
+            startFast = on;
+        }
     }
 
     private void restartGame() {
-        timer.stop();
         initGame();
-        timer.setDelay(tickMs);
-        timer.start();
+        loop.resetClock();
     }
 
     private void setupInput() {
@@ -88,6 +425,13 @@ public class GamePanel extends JPanel implements ActionListener {
         im.put(KeyStroke.getKeyStroke("RIGHT"), "right");
         im.put(KeyStroke.getKeyStroke("P"), "pause");
         im.put(KeyStroke.getKeyStroke("SPACE"), "toggle-wrap");
+        im.put(KeyStroke.getKeyStroke("R"), "render-mode");
+        im.put(KeyStroke.getKeyStroke("F"), "fast-forward");
+        im.put(KeyStroke.getKeyStroke("A"), "autopilot");
+        im.put(KeyStroke.getKeyStroke("H"), "hints");
+        im.put(KeyStroke.getKeyStroke("M"), "mute");
+        im.put(KeyStroke.getKeyStroke("S"), "history");
+        im.put(KeyStroke.getKeyStroke("F3"), "metrics");
 
         am.put("up", new DirectionAction(Direction.UP));
         am.put("down", new DirectionAction(Direction.DOWN));
@@ -95,12 +439,48 @@ public class GamePanel extends JPanel implements ActionListener {
         am.put("right", new DirectionAction(Direction.RIGHT));
         am.put("pause", new AbstractAction() {
             @Override public void actionPerformed(ActionEvent e) {
-                togglePause();
+                onGameThread(GamePanel.this::togglePause);
             }
         });
         am.put("toggle-wrap", new AbstractAction() {
             @Override public void actionPerformed(ActionEvent e) {
-                snake.toggleWrap();
+                if (player == null) input.offer(INPUT_WRAP, System.nanoTime());
+            }
+        });
+        am.put("render-mode", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) {
+                onGameThread(() -> setRenderMode(renderMode == RenderMode.FULL ? RenderMode.CACHED : RenderMode.FULL));
+            }
+        });
+        am.put("autopilot", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) {
+                if (player == null) autopilotOn = !autopilotOn;
+            }
+        });
+        am.put("hints", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) {
+                if (hints == null) hints = new HintAdvisor(); // its table is not allocated in a tick
+                hintsOn = !hintsOn;
+            }
+        });
+        am.put("mute", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) {
+                if (sound != null) sound.setMuted(!sound.isMuted());
+            }
+        });
+        am.put("history", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) {
+                if (history != null) history.toggle();
+            }
+        });
+        am.put("metrics", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) {
+                overlay.toggle();
+            }
+        });
+        am.put("fast-forward", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) {
+                loop.setFastForward(!loop.isFastForward());
             }
         });
     }
@@ -109,159 +489,130 @@ public class GamePanel extends JPanel implements ActionListener {
         private final Direction dir;
         DirectionAction(Direction dir){ this.dir = dir; }
         @Override public void actionPerformed(ActionEvent e){
-            snake.queueDirection(dir);
-        }
-    }
-
-    private void spawnFood() {
-        Point p;
-        do {
-            p = new Point(rnd.nextInt(GameConfig.COLS), rnd.nextInt(GameConfig.ROWS));
-        } while (snake.occupies(p) || obstaclesContains(p));
-        boolean isSpecial = rnd.nextDouble() < 0.12; // 12% special
-        food = new Food(p.x, p.y, isSpecial);
-    }
-
-    private boolean obstaclesContains(Point p) {
-        if (p == null) return false;
-        // Use parallel stream for better performance with many obstacles
-        return obstacles.parallelStream()
-                      .anyMatch(obs -> obs != null && p.equals(obs.pos));
-    }
-
-    private void spawnObstacles(int n) {
-        obstacles.clear();
-        for (int i = 0; i < n; i++) {
-            Point p;
-            do {
-                p = new Point(rnd.nextInt(GameConfig.COLS), rnd.nextInt(GameConfig.ROWS));
-            } while (snake.occupies(p));
-            obstacles.add(new Obstacle(p.x, p.y));
-        }
-    }
-
-    private void maybeSpawnPowerUp() {
-        if (activePower != null || food == null) return;
-        if (rnd.nextDouble() < GameConfig.POWER_UP_SPAWN_CHANCE) {
-            Point p;
-            int attempts = 0;
-            final int maxAttempts = 50; // Prevent infinite loops
-            
-            do {
-                if (attempts++ >= maxAttempts) return; // Give up if we can't find a valid spot
-                p = new Point(rnd.nextInt(GameConfig.COLS), rnd.nextInt(GameConfig.ROWS));
-            } while (snake.occupies(p) || obstaclesContains(p) || p.equals(food.pos));
-            
-            activePower = new PowerUp(p.x, p.y, PowerUp.Type.randomType());
-            
-            // Auto-remove power-up after some time if not collected
-            if (powerUpTimer != null) {
-                powerUpTimer.stop();
+            if (player == null) {
+                input.offer(dir.ordinal(), System.nanoTime());
+            } else if (dir == Direction.LEFT || dir == Direction.RIGHT) {
+                // in playback the arrows seek instead
+                onGameThread(() -> seekReplay(dir.dx * SEEK_TICKS));
             }
-            powerUpTimer = new Timer(GameConfig.POWER_UP_DURATION, e -> {
-                if (activePower != null) {
-                    activePower = null;
-                    repaint();
-                }
-            });
-            powerUpTimer.setRepeats(false);
-            powerUpTimer.start();
         }
     }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (!running || paused) return;
+    /**
+     * Advances the game by one tick and updates the cached frame.
+     * @return false if the game is paused or over and nothing changed.
+     */
+    boolean tick() {
+        applyInput();
+        if (finished() || paused) {
+            moved = false;
+            return false;
+        }
 
-        // move snake
-        snake.update();
+        // remember what the move can change, for the dirty-cell redraw
+        Snake snake = engine.snake();
+        int oldLength = snake.length();
+        int oldTail = snake.segment(oldLength - 1);
+        int oldHead = snake.segment(0);
+        PowerUp oldPower = engine.powerUp();
 
-        // handle wrap vs wall collision
-        if (!snake.isWrap()) {
-            if (snake.outOfBounds()) {
-                gameOver();
-                return;
-            }
-        } else {
-            snake.wrapPosition(GameConfig.COLS, GameConfig.ROWS);
+        long start = 0, allocStart = 0;
+        if (metrics != null) {
+            engine.setPhaseTiming(true); // engines are replaced on restart and on replay seeks
+            allocStart = metrics.threadAllocatedBytes();
+            start = System.nanoTime();
         }
-
-        // obstacle collision
-        for (Obstacle o: obstacles) {
-            if (snake.head().equals(o.pos)) {
-                gameOver();
-                return;
+        if (player != null) {
+            player.advance();
+        } else {
+            if (autopilotOn) {
+                Direction d = autopilot.decide(engine);
+                if (d != snake.direction()) steer(d); // recorded like a key press
+                double ms = autopilot.lastPlanNanos() / 1e6;
+                avgPlanMs = avgPlanMs == 0 ? ms : avgPlanMs * 0.95 + ms * 0.05;
             }
+            engine.tick();
         }
-
-        // self-collision
-        if (snake.selfCollision()) {
+        if (metrics != null) {
+            long nanos = System.nanoTime() - start;
+            metrics.recordTick(engine, nanos, loop.tickLatenessNanos(), allocStart, metrics.threadAllocatedBytes());
+        }
+        if (spectators != null) {
+            spectators.frame(engine);
+        }
+        if (finished()) {
             gameOver();
-            return;
+            return true;
         }
-
-        // food eaten
-        if (snake.head().equals(food.pos)) {
-            snake.grow(food.isSpecial ? 3 : 1); // special gives extra growth
-            score += food.isSpecial ? 5 : 1;
-            maybeLevelUp();
-            spawnFood();
+        if (engine.obstacleVersion() != seenObstacleVersion) {
+            invalidateStaticLayer();
+        }
+        int oldCamX = camX, oldCamY = camY;
+        if (followHead()) {
+            scrollView(camX - oldCamX, camY - oldCamY);
         }
 
-        // power-up pickup
-        if (activePower != null && snake.head().equals(activePower.pos)) {
-            applyPowerUp(activePower);
-            activePower = null;
+        prevHead = oldHead;
+        prevTail = oldTail;
+        moved = true;
+        if (hintsOn) {
+            hints.offer(engine);
         }
+        if (renderMode == RenderMode.CACHED) {
+            redrawChangedCells(oldLength, oldTail, oldHead, oldPower);
+        } else if (loop == null) {
+            repaint();
+        }
+        return true;
+    }
 
-        // occasionally spawn power-up
-        maybeSpawnPowerUp();
+    /** Outlines the cell the advisor would move the head to, once it has answered for this tick. */
+    private void drawHint(Graphics2D g2) {
+        HintAdvisor.Hint hint = hints.current(engine);
+        if (hint == null || !inView(hint.x, hint.y)) return;
+        int ts = GameConfig.TILE_SIZE;
+        g2.setColor(HINT_COLOR);
+        g2.drawRect((hint.x - camX) * ts + 1, (hint.y - camY) * ts + 1, ts - 3, ts - 3);
+    }
 
-        // move timer speed for speed boost expiry handled in power-up state
-        timer.setDelay(tickMs);
+    /**
+     * Moves the camera to follow the head.
+     * @return true if the camera moved.
+     */
+    private boolean followHead() {
+        Snake snake = engine.snake();
+        int x = followCamera(camX, snake.headX(), viewCols, engine.cols());
+        int y = followCamera(camY, snake.headY(), viewRows, engine.rows());
+        if (x == camX && y == camY) return false;
+        camX = x;
+        camY = y;
+        return true;
+    }
 
-        repaint();
+    /** The camera on one axis of a new game: centred on the head, within the board. */
+    static int centreCamera(int head, int view, int board) {
+        return clamp(head - view / 2, 0, board - view);
     }
 
-    private void applyPowerUp(PowerUp p) {
-        if (p == null) return;
-        
-        switch (p.type) {
-            case SPEED_BOOST:
-                int originalSpeed = tickMs;
-                tickMs = Math.max(GameConfig.MIN_TICK_MS, tickMs - GameConfig.SPEED_BOOST_AMOUNT);
-                // schedule restoring speed after duration
-                if (powerUpTimer != null) {
-                    powerUpTimer.stop();
-                }
-                powerUpTimer = new Timer(GameConfig.SPEED_BOOST_DURATION, ev -> {
-                    tickMs = Math.min(GameConfig.BASE_TICK_MS, originalSpeed);
-                    powerUpTimer = null;
-                });
-                powerUpTimer.setRepeats(false);
-                powerUpTimer.start();
-                break;
-                
-            case SHRINK:
-                snake.shrink(GameConfig.SHRINK_AMOUNT);
-                break;
-                
-            case CLEAR_OBSTACLES:
-                obstacles.clear();
-                // Add some score for clearing obstacles
-                score += obstacles.size();
-                break;
-        }
+    /**
+     * The camera on one axis after a move: shifted as little as possible to keep the head
+     * out of the outer quarter of the view on each side, within the board.
+     */
+    static int followCamera(int cam, int head, int view, int board) {
+        int margin = view / 4;
+        return clamp(clamp(cam, head - (view - 1 - margin), head - margin), 0, board - view);
     }
 
-    private void maybeLevelUp() {
-        int newLevel = 1 + score / GameConfig.LEVEL_UP_SCORE;
-        if (newLevel > level) {
-            level = newLevel;
-            tickMs = Math.max(20, GameConfig.BASE_TICK_MS - (level - 1) * GameConfig.SPEEDUP_STEP);
-            // add an obstacle each level
-            spawnObstacles(Math.min(30, obstacles.size() + 1));
-        }
+    private static int clamp(int v, int lo, int hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+
+    private boolean inView(int col, int row) {
+        return col >= camX && col < camX + viewCols && row >= camY && row < camY + viewRows;
+    }
+
+    private boolean finished() {
+        return player != null ? player.isFinished() : engine.isOver();
     }
 
     private void togglePause() {
@@ -269,112 +620,554 @@ public class GamePanel extends JPanel implements ActionListener {
         repaint();
     }
 
-    private void cleanupTimers() {
-        if (powerUpTimer != null) {
-            powerUpTimer.stop();
-            powerUpTimer = null;
-        }
-        if (timer != null) {
-            timer.stop();
-            // Don't set timer to null here as it's used in restart
-        }
-    }
-    
     public void dispose() {
-        cleanupTimers();
+        disposed = true;
+        if (loop != null) {
+            loop.stop(); // waits for the loop thread, so nothing below is closed under a tick
+        }
+        finishRecording();
         try {
-            hsStore.close();
-        } catch (Exception e) {
-            System.err.println("Error closing high score store: " + e.getMessage());
+            if (player != null) player.close();
+        } catch (IOException e) {
+            System.err.println("Error closing replay: " + e.getMessage());
+        }
+        if (events != null) {
+            events.close();
+        }
+        if (history != null) {
+            history.close();
+        }
+        if (sound != null) {
+            sound.close();
+        }
+        if (leaderboard != null) {
+            leaderboard.close();
+        }
+        if (hints != null) {
+            hints.close();
+        }
+        if (metrics != null) {
+            metrics.unregister();
+        }
+        if (spectators != null) {
+            try {
+                spectators.close();
+            } catch (IOException e) {
+                System.err.println("Error closing spectator feed: " + e.getMessage());
+            }
         }
     }
     
     private void gameOver() {
-        running = false;
-        cleanupTimers();
-        if (score > highScore) {
-            highScore = score;
-            hsStore.save(highScore);
+        if (!interactive) return;
+        int score = engine.score();
+        boolean won = engine.outcome() == GameEngine.Outcome.WON;
+        finishRecording();
+        if (player != null) {
+            EventQueue.invokeLater(() -> {
+                int res = JOptionPane.showConfirmDialog(this,
+                    String.format("Replay finished (%s). Score: %d%nWatch again?",
+                        engine.isOver() ? engine.outcome() : "recording ended", score),
+                    "Replay", JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE);
+                if (res == JOptionPane.YES_OPTION) {
+                    onGameThread(this::restartGame);
+                } else {
+                    System.exit(0);
+                }
+            });
+            return;
         }
+        // saved here rather than from the event bus, whose ring may lap a slow subscriber;
+        // both stores write on threads of their own
+        leaderboard.record(LeaderboardStore.Entry.of(engine));
+        if (history != null) history.record(engine);
+        int highScore = Math.max(highScore(), score);
         
         // Show game over dialog in the Event Dispatch Thread
         EventQueue.invokeLater(() -> {
             int res = JOptionPane.showOptionDialog(this,
-                String.format("Game over. Score: %d%nHigh Score: %d%nRestart?", score, highScore),
-                "Game Over",
+                String.format("%s Score: %d%nHigh Score: %d%nRestart?",
+                    won ? "You filled the board!" : "Game over.", score, highScore),
+                won ? "You Win" : "Game Over",
                 JOptionPane.YES_NO_OPTION,
                 JOptionPane.PLAIN_MESSAGE,
                 null, null, null);
                 
             if (res == JOptionPane.YES_OPTION) {
-                restartGame();
+                onGameThread(this::restartGame);
             } else {
+                dispose();
                 System.exit(0);
             }
         });
     }
 
+    private int highScore() {
+        return leaderboard == null ? 0 : leaderboard.best();
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        // Use Graphics2D
+        if (loop != null) {
+            // active rendering: just show the last frame the loop presented
+            synchronized (presentLock) {
+                if (frontBuffer != null) {
+                    g.drawImage(frontBuffer, 0, 0, null);
+                    if (!firstFrame.isDone()) firstFrame.complete(null);
+                } else {
+                    super.paintComponent(g);
+                }
+                framePending = false;
+            }
+            return;
+        }
+        if (interactive) {
+            super.paintComponent(g); // still starting: an empty board
+            return;
+        }
+        long start = System.nanoTime();
         Graphics2D g2 = (Graphics2D) g.create();
+        render(g2, 1.0);
+        g2.dispose();
+        recordRenderTime(System.nanoTime() - start);
+    }
 
-        // draw grid (optional faint)
-        g2.setColor(new Color(30, 30, 30));
-        for (int x = 0; x <= GameConfig.COLS; x++) {
-            g2.drawLine(x * GameConfig.TILE_SIZE, 0, x * GameConfig.TILE_SIZE, getHeight());
+    /** Renders a frame on the loop thread and hands it to the EDT, unless the EDT is behind. */
+    private void renderFrame(double alpha) {
+        if (framePending) {
+            skippedFrames++;
+            return;
+        }
+        long start = System.nanoTime();
+        if (backBuffer == null) {
+            backBuffer = createLayer();
         }
-        for (int y = 0; y <= GameConfig.ROWS; y++) {
-            g2.drawLine(0, y * GameConfig.TILE_SIZE, getWidth(), y * GameConfig.TILE_SIZE);
+        Graphics2D g2 = backBuffer.createGraphics();
+        render(g2, alpha);
+        g2.dispose();
+        synchronized (presentLock) {
+            BufferedImage shown = frontBuffer;
+            frontBuffer = backBuffer;
+            backBuffer = shown;
+            framePending = true;
         }
+        recordRenderTime(System.nanoTime() - start);
+        repaint();
+    }
 
+    private void recordRenderTime(long nanos) {
+        double ms = (nanos + pendingRenderNanos) / 1e6;
+        pendingRenderNanos = 0;
+        if (metrics != null) {
+            metrics.recordPaint(nanos, renderMode.name());
+        }
+        avgPaintMs = avgPaintMs == 0 ? ms : avgPaintMs * 0.95 + ms * 0.05;
+    }
+
+    /**
+     * Draws the board and HUD. With alpha below 1 the head and the tail are drawn part of
+     * the way between their cells from before and after the last tick.
+     */
+    private void render(Graphics2D g2, double alpha) {
+        if (renderMode == RenderMode.CACHED) {
+            if (staticDirty) {
+                renderStaticLayer();
+            }
+            if (frameDirty) {
+                renderBoard();
+            }
+            g2.drawImage(frame, 0, 0, null);
+        } else {
+            g2.setColor(getBackground());
+            g2.fillRect(0, 0, getWidth(), getHeight());
+            drawGrid(g2);
+            drawEntities(g2);
+        }
+        if (moved && alpha < 1.0) {
+            drawInterpolated(g2, alpha);
+        }
+        if (hintsOn) {
+            drawHint(g2);
+        }
+
+        drawHud(g2);
+        if (history != null && history.isShown()) {
+            history.draw(g2, HUD_HEIGHT, viewCols * GameConfig.TILE_SIZE, this::createTextLayer);
+        } else if (overlay != null && overlay.isShown()) {
+            overlay.draw(g2);
+        }
+    }
+
+    private void drawHud(Graphics2D g2) {
+        long[] now = hudNow;
+        now[0] = engine.score();
+        now[1] = highScore();
+        now[2] = engine.level();
+        now[3] = engine.snake().isWrap() ? 1 : 0;
+        now[4] = paused ? 1 : 0;
+        now[5] = player != null ? engine.ticks() : -1;
+        now[6] = recorder != null ? 1 : 0;
+        now[7] = autopilotOn ? Math.round(avgPlanMs * 1000) : -1; // as shown, to the microsecond
+        now[8] = hintsOn ? 1 : 0;
+        if (hudLayer == null || hudLayer.getWidth() != viewCols * GameConfig.TILE_SIZE || !Arrays.equals(now, hudShown)) {
+            System.arraycopy(now, 0, hudShown, 0, now.length);
+            hudLayer = renderHud(hudLayer, HUD_HEIGHT, g2.getFont());
+        }
+        g2.drawImage(hudLayer, 0, 0, null);
+        if (offscreen) return;
+        long t = System.nanoTime();
+        if (statsLayer == null || statsLayer.getWidth() != viewCols * GameConfig.TILE_SIZE || t - statsAt > 250_000_000L) {
+            statsAt = t;
+            statsLayer = renderHud(statsLayer, STATS_HEIGHT, g2.getFont());
+        }
+        g2.drawImage(statsLayer, 0, getHeight() - STATS_HEIGHT, null);
+    }
+
+    /** Redraws the status line (height HUD_HEIGHT) or the paint statistics into a text layer. */
+    private BufferedImage renderHud(BufferedImage layer, int height, Font font) {
+        if (layer == null || layer.getWidth() != viewCols * GameConfig.TILE_SIZE) {
+            layer = createTextLayer(height);
+        }
+        Graphics2D g2 = layer.createGraphics();
+        g2.setComposite(AlphaComposite.Clear);
+        g2.fillRect(0, 0, layer.getWidth(), layer.getHeight());
+        g2.setComposite(AlphaComposite.SrcOver);
+        g2.setFont(font);
+        g2.setColor(Color.WHITE);
+        if (height == HUD_HEIGHT) {
+            g2.drawString("Score: " + engine.score(), 10, 14);
+            g2.drawString("High: " + highScore(), 100, 14);
+            g2.drawString("Level: " + engine.level(), 180, 14);
+            g2.drawString("Wrap: " + (engine.snake().isWrap() ? "ON (Space)" : "OFF (Space)"), 260, 14);
+            g2.drawString(paused ? "PAUSED (P)" : "", 420, 14);
+            if (player != null) {
+                g2.drawString("REPLAY tick " + engine.ticks() + " (Left/Right seek)", 420, 28);
+            } else if (recorder != null) {
+                g2.drawString("REC", 500, 14);
+            }
+            if (autopilotOn) {
+                g2.drawString(String.format("AUTO (A) plan %.3f ms", avgPlanMs), 420, 28);
+            }
+            if (hintsOn) {
+                g2.drawString("HINT (H)", 260, 28);
+            }
+        } else {
+            String rates = loop == null ? "" : String.format("  %d tps %d fps %d skipped%s",
+                loop.ticksPerSecond(), loop.framesPerSecond(), skippedFrames, loop.isFastForward() ? "  FAST (F)" : "");
+            g2.drawString(String.format("Paint: %.3f ms (%s, R)%s", avgPaintMs, renderMode, rates), 10, height - 6);
+        }
+        g2.dispose();
+        return layer;
+    }
+
+    private void drawInterpolated(Graphics2D g2, double alpha) {
+        if (staticDirty) {
+            renderStaticLayer();
+        }
+        Snake snake = engine.snake();
+        int len = snake.length();
+        int hx = snake.headX(), hy = snake.headY();
+        int px = Cell.x(prevHead), py = Cell.y(prevHead);
+        // only single-cell moves slide; a wrap across the board just snaps
+        if (Math.abs(hx - px) + Math.abs(hy - py) == 1) {
+            paintCell(g2, hx, hy, -1); // the head has not arrived yet
+            drawTileAt(g2, px + (hx - px) * alpha, py + (hy - py) * alpha, sprites().head);
+        }
+        int tail = snake.segment(len - 1);
+        int tx = Cell.x(tail), ty = Cell.y(tail);
+        int ox = Cell.x(prevTail), oy = Cell.y(prevTail);
+        if (len > 1 && Math.abs(tx - ox) + Math.abs(ty - oy) == 1) {
+            drawTileAt(g2, ox + (tx - ox) * alpha, oy + (ty - oy) * alpha, segmentSprite(len - 1, len));
+        }
+    }
+
+    private void drawGrid(Graphics2D g2) {
+        // draw grid (optional faint), just the visible lines
+        int w = viewCols * GameConfig.TILE_SIZE;
+        int h = viewRows * GameConfig.TILE_SIZE;
+        g2.setColor(GRID_COLOR);
+        for (int x = 0; x <= viewCols; x++) {
+            g2.drawLine(x * GameConfig.TILE_SIZE, 0, x * GameConfig.TILE_SIZE, h);
+        }
+        for (int y = 0; y <= viewRows; y++) {
+            g2.drawLine(0, y * GameConfig.TILE_SIZE, w, y * GameConfig.TILE_SIZE);
+        }
+    }
+
+    /** Draws the obstacles in view, visiting only the obstacle chunks the view overlaps. */
+    private void drawObstacles(Graphics2D g2) {
+        drawObstacles(g2, camX, camY, camX + viewCols - 1, camY + viewRows - 1);
+    }
+
+    private void drawObstacles(Graphics2D g2, int x0, int y0, int x1, int y1) {
+        sprites();
+        obstacleTarget = g2;
+        engine.obstacles().forEachIn(x0, y0, x1, y1, drawObstacle);
+        obstacleTarget = null;
+    }
+
+    private void drawEntities(Graphics2D g2) {
         // draw food
-        drawTile(g2, food.pos.x, food.pos.y, food.isSpecial ? Color.MAGENTA : Color.GREEN);
+        Food food = engine.food();
+        if (inView(food.pos.x, food.pos.y)) {
+            drawTile(g2, food.pos.x, food.pos.y, foodSprite(food));
+        }
 
         // draw obstacles
-        for (Obstacle o : obstacles) {
-            drawTile(g2, o.pos.x, o.pos.y, Color.DARK_GRAY);
+        if (renderMode == RenderMode.FULL) {
+            drawObstacles(g2);
         }
 
         // draw powerup
-        if (activePower != null) {
-            drawTile(g2, activePower.pos.x, activePower.pos.y, Color.ORANGE);
+        PowerUp power = engine.powerUp();
+        if (power != null && inView(power.pos.x, power.pos.y)) {
+            drawTile(g2, power.pos.x, power.pos.y, sprites().powerUp);
         }
 
         // draw snake
         drawSnake(g2);
+    }
 
-        // HUD
-        g2.setColor(Color.WHITE);
-        g2.drawString("Score: " + score, 10, 14);
-        g2.drawString("High: " + highScore, 100, 14);
-        g2.drawString("Level: " + level, 180, 14);
-        g2.drawString("Wrap: " + (snake.isWrap() ? "ON (Space)" : "OFF (Space)"), 260, 14);
-        g2.drawString(paused ? "PAUSED (P)" : "", 420, 14);
+    private void invalidateStaticLayer() {
+        staticDirty = true;
+        frameDirty = true;
+    }
+
+    private BufferedImage createLayer() {
+        int w = viewCols * GameConfig.TILE_SIZE;
+        int h = viewRows * GameConfig.TILE_SIZE;
+        GraphicsConfiguration gc = graphicsConfiguration();
+        // compatible images blit without a format conversion
+        return gc != null ? gc.createCompatibleImage(w, h) : new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /** Transparent layer for HUD text. */
+    private BufferedImage createTextLayer(int h) {
+        int w = viewCols * GameConfig.TILE_SIZE;
+        GraphicsConfiguration gc = graphicsConfiguration();
+        return gc != null ? gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT)
+            : new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /** The screen's configuration, or null when headless. */
+    private GraphicsConfiguration graphicsConfiguration() {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null && !GraphicsEnvironment.isHeadless()) {
+            gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        return gc;
+    }
+
+    private void renderStaticLayer() {
+        if (staticLayer == null) {
+            staticLayer = createLayer();
+        }
+        Graphics2D g2 = staticLayer.createGraphics();
+        g2.setColor(getBackground());
+        g2.fillRect(0, 0, staticLayer.getWidth(), staticLayer.getHeight());
+        drawGrid(g2);
+        drawObstacles(g2);
+        g2.dispose();
+        staticDirty = false;
+        seenObstacleVersion = engine.obstacleVersion();
+    }
+
+    /**
+     * Follows a camera move of (dx, dy) cells in the cached layers: both images are shifted
+     * in place and only the strips of cells that came into view are drawn. Falls back to a
+     * full rebuild when nothing valid is cached or the jump is large (e.g. a wrap).
+     */
+    private void scrollView(int dx, int dy) {
+        if (renderMode != RenderMode.CACHED || staticDirty || frameDirty || frame == null
+                || Math.abs(dx) > viewCols / 4 || Math.abs(dy) > viewRows / 4) {
+            invalidateStaticLayer();
+            return;
+        }
+        long start = System.nanoTime();
+        int ts = GameConfig.TILE_SIZE;
+        Graphics2D sg = staticLayer.createGraphics();
+        Graphics2D fg = frame.createGraphics();
+        sg.copyArea(0, 0, staticLayer.getWidth(), staticLayer.getHeight(), -dx * ts, -dy * ts);
+        fg.copyArea(0, 0, frame.getWidth(), frame.getHeight(), -dx * ts, -dy * ts);
+        // exposed columns span the full height; exposed rows the rest of the width
+        if (dx != 0) {
+            int c0 = dx > 0 ? viewCols - dx : 0;
+            exposeStrip(sg, fg, c0, 0, c0 + Math.abs(dx), viewRows);
+        }
+        if (dy != 0) {
+            int r0 = dy > 0 ? viewRows - dy : 0;
+            exposeStrip(sg, fg, 0, r0, viewCols, r0 + Math.abs(dy));
+        }
+        sg.dispose();
+        fg.dispose();
+        pendingRenderNanos += System.nanoTime() - start;
+        if (loop == null) repaint();
+    }
+
+    /** Draws the view cells [c0, c1) x [r0, r1) from scratch into both cached layers. */
+    private void exposeStrip(Graphics2D sg, Graphics2D fg, int c0, int r0, int c1, int r1) {
+        int ts = GameConfig.TILE_SIZE;
+        int x0 = c0 * ts, y0 = r0 * ts, x1 = c1 * ts, y1 = r1 * ts;
+        sg.setColor(getBackground());
+        sg.fillRect(x0, y0, x1 - x0, y1 - y0);
+        sg.setColor(GRID_COLOR);
+        for (int c = c0; c <= c1; c++) {
+            sg.drawLine(c * ts, y0, c * ts, y1);
+        }
+        for (int r = r0; r <= r1; r++) {
+            sg.drawLine(x0, r * ts, x1, r * ts);
+        }
+        drawObstacles(sg, camX + c0, camY + r0, camX + c1 - 1, camY + r1 - 1);
+
+        fg.drawImage(staticLayer, x0, y0, x1, y1, x0, y0, x1, y1, null);
+        Food food = engine.food();
+        if (inStrip(food.pos.x, food.pos.y, c0, r0, c1, r1)) {
+            drawTile(fg, food.pos.x, food.pos.y, foodSprite(food));
+        }
+        PowerUp power = engine.powerUp();
+        if (power != null && inStrip(power.pos.x, power.pos.y, c0, r0, c1, r1)) {
+            drawTile(fg, power.pos.x, power.pos.y, sprites().powerUp);
+        }
+        // same order as drawSnake, so overlapping segments end up the same
+        Snake snake = engine.snake();
+        int len = snake.length();
+        for (int i = 0; i < len; i++) {
+            int seg = snake.segment(i);
+            if (inStrip(Cell.x(seg), Cell.y(seg), c0, r0, c1, r1)) {
+                drawTile(fg, Cell.x(seg), Cell.y(seg), segmentSprite(i, len));
+            }
+        }
+    }
+
+    private boolean inStrip(int col, int row, int c0, int r0, int c1, int r1) {
+        int c = col - camX, r = row - camY;
+        return c >= c0 && c < c1 && r >= r0 && r < r1;
+    }
 
+    private void renderBoard() {
+        if (frame == null) {
+            frame = createLayer();
+        }
+        Graphics2D g2 = frame.createGraphics();
+        g2.drawImage(staticLayer, 0, 0, null);
+        drawEntities(g2);
         g2.dispose();
+        frameDirty = false;
+    }
+
+    /**
+     * Brings the cached frame up to date after a tick by redrawing only the cells that can
+     * have changed: the old tail, the old and new head, power-up changes, and the segments
+     * that crossed into a new gradient band. Anything else (growth, shrinking, obstacle
+     * changes) falls back to a full frame rebuild on the next paint.
+     */
+    private void redrawChangedCells(int oldLength, int oldTail, int oldHead, PowerUp oldPower) {
+        Snake snake = engine.snake();
+        OccupancyGrid grid = engine.grid();
+        int len = snake.length();
+        if (staticDirty || frameDirty || frame == null || len != oldLength) {
+            frameDirty = true;
+            if (loop == null) repaint();
+            return;
+        }
+        long start = System.nanoTime();
+        Graphics2D g2 = frame.createGraphics();
+        // The tail goes first and the head last, so the head wins if it moved onto the old tail
+        redrawCell(g2, Cell.x(oldTail), Cell.y(oldTail), grid.hasSnake(Cell.x(oldTail), Cell.y(oldTail)) ? len - 1 : -1);
+        PowerUp power = engine.powerUp();
+        if (oldPower != power) {
+            if (oldPower != null) redrawCell(g2, oldPower.pos.x, oldPower.pos.y, -1);
+            if (power != null) redrawCell(g2, power.pos.x, power.pos.y, -1);
+        }
+        for (int b = 1; b < GRADIENT_STEPS; b++) {
+            int i = (b * len + GRADIENT_STEPS - 1) / GRADIENT_STEPS; // first segment of band b
+            if (i >= 2 && i < len) {
+                int seg = snake.segment(i);
+                redrawCell(g2, Cell.x(seg), Cell.y(seg), i);
+            }
+        }
+        if (len > 1) redrawCell(g2, Cell.x(oldHead), Cell.y(oldHead), 1);
+        redrawCell(g2, snake.headX(), snake.headY(), 0);
+        g2.dispose();
+        pendingRenderNanos += System.nanoTime() - start;
+    }
+
+    private void redrawCell(Graphics2D g2, int col, int row, int segment) {
+        if (!inView(col, row)) return;
+        paintCell(g2, col, row, segment);
+        if (loop == null) {
+            int ts = GameConfig.TILE_SIZE;
+            repaint((col - camX) * ts, (row - camY) * ts, ts, ts);
+        }
+    }
+
+    /** Draws one cell from scratch: background, item, and the given segment (-1 for none). */
+    private void paintCell(Graphics2D g2, int col, int row, int segment) {
+        if (!inView(col, row)) return;
+        int ts = GameConfig.TILE_SIZE;
+        int x = (col - camX) * ts, y = (row - camY) * ts;
+        g2.drawImage(staticLayer, x, y, x + ts, y + ts, x, y, x + ts, y + ts, null);
+        Food food = engine.food();
+        if (food.pos.x == col && food.pos.y == row) {
+            drawTile(g2, col, row, foodSprite(food));
+        }
+        PowerUp power = engine.powerUp();
+        if (power != null && power.pos.x == col && power.pos.y == row) {
+            drawTile(g2, col, row, sprites().powerUp);
+        }
+        if (segment >= 0) {
+            drawTile(g2, col, row, segmentSprite(segment, engine.snake().length()));
+        }
+    }
+
+    private void drawTile(Graphics2D g2, int col, int row, BufferedImage sprite) {
+        g2.drawImage(sprite, (col - camX) * GameConfig.TILE_SIZE, (row - camY) * GameConfig.TILE_SIZE, null);
     }
 
-    private void drawTile(Graphics2D g2, int col, int row, Color c) {
-        int x = col * GameConfig.TILE_SIZE;
-        int y = row * GameConfig.TILE_SIZE;
-        g2.setColor(c);
-        g2.fillRoundRect(x + 2, y + 2, GameConfig.TILE_SIZE - 4, GameConfig.TILE_SIZE - 4, 6, 6);
+    private void drawTileAt(Graphics2D g2, double col, double row, BufferedImage sprite) {
+        int x = (int) Math.round((col - camX) * GameConfig.TILE_SIZE);
+        int y = (int) Math.round((row - camY) * GameConfig.TILE_SIZE);
+        g2.drawImage(sprite, x, y, null);
+    }
+
+    private TileSprites sprites() {
+        if (sprites == null) {
+            sprites = new TileSprites(graphicsConfiguration(), BODY_PALETTE);
+        }
+        return sprites;
+    }
+
+    private BufferedImage foodSprite(Food food) {
+        return food.isSpecial ? sprites().specialFood : sprites().food;
+    }
+
+    private BufferedImage segmentSprite(int i, int len) {
+        if (i == 0) return sprites().head;
+        if (len != bandLength) {
+            // body gradient, quantized into bands so a move only recolours the band edges
+            if (bandOf.length < len) bandOf = new byte[Math.max(len, 2 * bandOf.length)];
+            for (int k = 0; k < len; k++) {
+                bandOf[k] = (byte) ((long) k * GRADIENT_STEPS / len);
+            }
+            bandLength = len;
+        }
+        return sprites().body(bandOf[i]);
     }
 
     private void drawSnake(Graphics2D g2) {
         // Head
-        g2.setColor(Color.YELLOW);
-        Point head = snake.head();
-        drawTile(g2, head.x, head.y, Color.YELLOW);
-
-        // body gradient
-        List<Point> pts = snake.getBody();
-        for (int i = 1; i < pts.size(); i++) {
-            float t = (float) i / Math.max(1, pts.size());
-            Color c = new Color( (int)(0 + t*200), (int)(100 + (1-t)*100), 40 );
-            drawTile(g2, pts.get(i).x, pts.get(i).y, c);
+        Snake snake = engine.snake();
+        if (inView(snake.headX(), snake.headY())) {
+            drawTile(g2, snake.headX(), snake.headY(), sprites().head);
+        }
+
+        // body gradient, skipping segments out of view
+        int len = snake.length();
+        for (int i = 1; i < len; i++) {
+            int seg = snake.segment(i);
+            if (inView(Cell.x(seg), Cell.y(seg))) {
+                drawTile(g2, Cell.x(seg), Cell.y(seg), segmentSprite(i, len));
+            }
         }
     }
 }
@@ -0,0 +1,40 @@
+package com.example.snake;
+
+import java.util.Random;
+
+/**
+ * Seeded random source for the game rules (SplitMix64). Unlike {@link Random} its whole
+ * state is one long that can be read and restored, so a game can be snapshotted and
+ * replayed exactly. Not thread-safe; each game owns its own instance.
+ */
+public class GameRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state; // no initializer: Random's constructor sets it through setSeed
+
+    public GameRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        state = seed;
+    }
+
+    public long state() { return state; }
+    public void restore(long state) { this.state = state; }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
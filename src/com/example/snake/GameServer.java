@@ -0,0 +1,372 @@
+package com.example.snake;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Authoritative multiplayer server: one thread runs an NIO selector loop and an
+ * {@link ArenaEngine} at a fixed tick. Client input is read between ticks and queued on
+ * the player's snake, so it takes effect at the next tick boundary; after every tick the
+ * whole state is encoded once and the same bytes go to every client.
+ *
+ * <p>Protocol, big-endian. Client to server: one byte per turn, a {@link Direction}
+ * ordinal. Server to client: frames of {@code int length} (of what follows), a type byte
+ * and a payload:
+ * <ul>
+ * <li>{@link #MSG_WELCOME}: player id, cols, rows, tick ms, obstacle count and the
+ *     obstacle cells, all ints. Cells are board indices, {@code y * cols + x}.
+ * <li>{@link #MSG_STATE}: tick (long), the server's time for the previous tick in
+ *     microseconds, the food count and cells (the top bit marks special food), the
+ *     snake count, then per snake its id, score and head cell (ints), its number of
+ *     distinct cells (short), and from the head towards the tail the {@link Direction}
+ *     ordinal of each step, 2 bits each, four to a byte with the first step in the high
+ *     bits.
+ * </ul>
+ * A client that cannot keep up keeps its backlog and misses state frames until it has
+ * drained it, so one slow reader never stalls the tick.
+ *
+ * <pre>
+ * java -cp target/classes com.example.snake.GameServer --port 7777 --board 128x128
+ * </pre>
+ */
+public class GameServer implements Closeable, Runnable {
+    static final int MSG_WELCOME = 1;
+    static final int MSG_STATE = 2;
+    static final int SPECIAL_FOOD = 1 << 31;
+    private static final Direction[] DIRS = Direction.values();
+
+    private final ArenaEngine arena;
+    private final long tickNanos;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final List<Client> clients = new ArrayList<>();
+    private final ByteBuffer input = ByteBuffer.allocate(256);
+    private ByteBuffer frame = ByteBuffer.allocateDirect(64 * 1024);
+    private volatile boolean running = false;
+    private Thread thread;
+
+    // Loop thread statistics; reports read them racily
+    private final LatencyHistogram tickTimes = new LatencyHistogram();
+    private long lastTickMicros = 0;
+    private long bytesOut = 0;
+    private long framesDropped = 0;
+
+    private static final class Client {
+        final SocketChannel channel;
+        final ArenaEngine.Player player;
+        SelectionKey key;
+        ByteBuffer backlog; // unsent tail of the last frame, null or drained when caught up
+
+        Client(SocketChannel channel, ArenaEngine.Player player) {
+            this.channel = channel;
+            this.player = player;
+        }
+
+        boolean backlogged() { return backlog != null && backlog.hasRemaining(); }
+    }
+
+    /** Binds to the loopback interface; port 0 picks a free one (see {@link #port}). */
+    public GameServer(int port, int cols, int rows, int tickMs, long seed) throws IOException {
+        this.arena = new ArenaEngine(cols, rows, seed);
+        this.tickNanos = tickMs * 1_000_000L;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "snake-server");
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = thread;
+            thread = null;
+        }
+        selector.wakeup();
+        if (t != null) {
+            try {
+                t.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime() + tickNanos;
+        try {
+            while (running) {
+                long wait = nextTick - System.nanoTime();
+                if (wait > 0) {
+                    selector.select(Math.max(1, wait / 1_000_000));
+                } else {
+                    selector.selectNow();
+                }
+                handleEvents();
+                long now = System.nanoTime();
+                if (now >= nextTick) {
+                    tick();
+                    nextTick += tickNanos;
+                    if (now - nextTick > 5 * tickNanos) {
+                        nextTick = now + tickNanos; // far behind: skip time rather than spiral
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Server stopped: " + e.getMessage());
+        }
+    }
+
+    private void handleEvents() throws IOException {
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            if (!key.isValid()) continue;
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+            Client c = (Client) key.attachment();
+            try {
+                if (key.isReadable()) read(c);
+                if (key.isValid() && key.isWritable()) flushBacklog(c);
+            } catch (IOException e) {
+                disconnect(c);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch;
+        while ((ch = server.accept()) != null) {
+            ch.configureBlocking(false);
+            ch.socket().setTcpNoDelay(true);
+            Client c = new Client(ch, arena.join());
+            c.key = ch.register(selector, SelectionKey.OP_READ, c);
+            clients.add(c);
+            try {
+                send(c, welcome(c.player));
+            } catch (IOException e) {
+                disconnect(c);
+            }
+        }
+    }
+
+    private void read(Client c) throws IOException {
+        input.clear();
+        int n = c.channel.read(input);
+        if (n < 0) {
+            disconnect(c);
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            int code = input.get(i);
+            if (code < 0 || code >= DIRS.length) {
+                disconnect(c); // not speaking the protocol
+                return;
+            }
+            arena.steer(c.player, DIRS[code]);
+        }
+    }
+
+    private void disconnect(Client c) {
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException e) {
+            // already gone
+        }
+        if (clients.remove(c)) {
+            arena.leave(c.player);
+        }
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        arena.tick();
+        ByteBuffer state = encodeState();
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            Client c = clients.get(i);
+            if (c.backlogged()) {
+                framesDropped++;
+                continue;
+            }
+            state.rewind();
+            try {
+                send(c, state);
+            } catch (IOException e) {
+                disconnect(c);
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        tickTimes.record(nanos);
+        lastTickMicros = nanos / 1000;
+    }
+
+    /** Writes what the socket takes now and keeps the rest for OP_WRITE. */
+    private void send(Client c, ByteBuffer buf) throws IOException {
+        bytesOut += c.channel.write(buf);
+        if (!buf.hasRemaining()) return;
+        if (c.backlog == null || c.backlog.capacity() < buf.remaining()) {
+            c.backlog = ByteBuffer.allocate(Math.max(buf.remaining(), 16 * 1024));
+        }
+        c.backlog.clear();
+        c.backlog.put(buf).flip();
+        c.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    private void flushBacklog(Client c) throws IOException {
+        if (c.backlogged()) {
+            bytesOut += c.channel.write(c.backlog);
+        }
+        if (!c.backlogged()) {
+            c.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private ByteBuffer welcome(ArenaEngine.Player p) {
+        ObstacleMap obstacles = arena.obstacles();
+        ByteBuffer buf = ByteBuffer.allocate(4 + 1 + 5 * 4 + obstacles.size() * 4);
+        buf.putInt(buf.capacity() - 4);
+        buf.put((byte) MSG_WELCOME);
+        buf.putInt(p.id);
+        buf.putInt(arena.cols());
+        buf.putInt(arena.rows());
+        buf.putInt((int) (tickNanos / 1_000_000));
+        buf.putInt(obstacles.size());
+        obstacles.forEach((x, y) -> buf.putInt(y * arena.cols() + x));
+        buf.flip();
+        return buf;
+    }
+
+    private ByteBuffer encodeState() {
+        List<ArenaEngine.Player> players = arena.players();
+        int bound = 4 + 1 + 8 + 4 + 4 + arena.foodCount() * 4 + 4;
+        for (int i = 0; i < players.size(); i++) {
+            Snake s = players.get(i).snake();
+            if (s != null) bound += 14 + (s.length() + 3) / 4;
+        }
+        if (frame.capacity() < bound) {
+            frame = ByteBuffer.allocateDirect(Math.max(bound, frame.capacity() * 2));
+        }
+        ByteBuffer buf = frame;
+        buf.clear();
+        buf.putInt(0); // length, patched below
+        buf.put((byte) MSG_STATE);
+        buf.putLong(arena.ticks());
+        buf.putInt((int) Math.min(Integer.MAX_VALUE, lastTickMicros));
+        buf.putInt(arena.foodCount());
+        for (int i = 0; i < arena.foodCount(); i++) {
+            buf.putInt(arena.food(i) | (arena.isSpecialFood(i) ? SPECIAL_FOOD : 0));
+        }
+        int countAt = buf.position();
+        buf.putInt(0);
+        int snakes = 0;
+        for (int i = 0; i < players.size(); i++) {
+            ArenaEngine.Player p = players.get(i);
+            Snake s = p.snake();
+            if (s == null) continue;
+            snakes++;
+            buf.putInt(p.id);
+            buf.putInt(p.score());
+            buf.putInt(s.headY() * arena.cols() + s.headX());
+            encodeBody(buf, s);
+        }
+        buf.putInt(countAt, snakes);
+        buf.putInt(0, buf.position() - 4);
+        buf.flip();
+        return buf;
+    }
+
+    // Distinct cells, then 2-bit steps; growth stacks copies of the tail, which are skipped
+    private static void encodeBody(ByteBuffer buf, Snake s) {
+        int countAt = buf.position();
+        buf.putShort((short) 0);
+        int cells = 1, bits = 0, pending = 0;
+        int prev = s.segment(0);
+        for (int i = 1; i < s.length(); i++) {
+            int seg = s.segment(i);
+            if (seg == prev) continue;
+            int dx = Cell.x(seg) - Cell.x(prev), dy = Cell.y(seg) - Cell.y(prev);
+            int code = dy < 0 ? 0 : dy > 0 ? 1 : dx < 0 ? 2 : 3; // Direction ordinal
+            pending = pending << 2 | code;
+            if (++bits == 4) {
+                buf.put((byte) pending);
+                bits = pending = 0;
+            }
+            cells++;
+            prev = seg;
+        }
+        if (bits > 0) {
+            buf.put((byte) (pending << (2 * (4 - bits))));
+        }
+        buf.putShort(countAt, (short) cells);
+    }
+
+    /** One line of load figures, for the console. */
+    private String report(double secs, long bytes) {
+        return String.format("%d players, tick p50 %d us p99 %d us max %d us, out %.1f KB/s, %d frames dropped",
+            clients.size(), tickTimes.percentile(50) / 1000, tickTimes.percentile(99) / 1000,
+            tickTimes.max() / 1000, bytes / 1024.0 / secs, framesDropped);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 7777, tickMs = GameConfig.BASE_TICK_MS;
+        int cols = 128, rows = 128;
+        long seed = System.nanoTime();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(args[i + 1]); break;
+                case "--tick-ms": tickMs = Integer.parseInt(args[i + 1]); break;
+                case "--seed": seed = Long.parseLong(args[i + 1]); break;
+                case "--board": {
+                    String[] dims = args[i + 1].split("x");
+                    cols = Integer.parseInt(dims[0]);
+                    rows = Integer.parseInt(dims[1]);
+                    break;
+                }
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        GameServer server = new GameServer(port, cols, rows, tickMs, seed);
+        server.start();
+        System.out.printf("Serving a %dx%d arena on %s:%d%n", cols, rows,
+            InetAddress.getLoopbackAddress().getHostAddress(), server.port());
+        long lastBytes = 0;
+        while (true) {
+            Thread.sleep(5000);
+            long bytes = server.bytesOut;
+            System.out.println(server.report(5, bytes - lastBytes));
+            lastBytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.snake;
+
+/**
+ * Session statistics kept by a {@link GameEventBus} subscriber: games played, food eaten,
+ * power-ups collected, levels gained and how games ended. Counted on the subscriber's
+ * thread, readable from any other.
+ */
+public class GameStats implements GameEventBus.Subscriber {
+    private static final GameEngine.Outcome[] OUTCOMES = GameEngine.Outcome.values();
+
+    private volatile long games, food, specialFood, powerUps, levelUps;
+    private final long[] endings = new long[OUTCOMES.length]; // written by the subscriber only
+    private volatile int bestScore;
+
+    @Override
+    public void onEvent(GameEvent e) {
+        switch (e.type()) {
+            case FOOD_EATEN:
+                food++;
+                if (e.special()) specialFood++;
+                break;
+            case POWER_UP:
+                powerUps++;
+                break;
+            case LEVEL_UP:
+                levelUps++;
+                break;
+            case COLLISION:
+                break; // counted with its game's end
+            case GAME_OVER:
+                endings[e.outcome().ordinal()]++;
+                bestScore = Math.max(bestScore, e.score());
+                games++; // volatile write last: publishes the ending too
+                break;
+        }
+    }
+
+    public long games() { return games; }
+    public long food() { return food; }
+    public long specialFood() { return specialFood; }
+    public long powerUps() { return powerUps; }
+    public long levelUps() { return levelUps; }
+    public int bestScore() { return bestScore; }
+
+    /** Games that ended this way. */
+    public long endings(GameEngine.Outcome outcome) {
+        long g = games; // read first: pairs with the write in onEvent
+        return g == 0 ? 0 : endings[outcome.ordinal()];
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.snake;
+
+/**
+ * Baseline bot: takes the open neighbouring cell closest to the food, or keeps going
+ * if every neighbour is blocked. Stateless and deterministic.
+ */
+public class GreedyBot implements Bot {
+    @Override
+    public Direction decide(GameEngine engine) {
+        Snake snake = engine.snake();
+        OccupancyGrid grid = engine.grid();
+        Food food = engine.food();
+        Direction heading = snake.direction();
+        Direction best = heading;
+        int bestDist = Integer.MAX_VALUE;
+        for (Direction d : Direction.values()) {
+            if (d.isOpposite(heading)) continue;
+            int x = snake.headX() + d.dx, y = snake.headY() + d.dy;
+            if (snake.isWrap()) {
+                x = Math.floorMod(x, engine.cols());
+                y = Math.floorMod(y, engine.rows());
+            }
+            if (!grid.inBounds(x, y) || grid.isObstacle(x, y) || grid.hasSnake(x, y)) continue;
+            int dist = Math.abs(food.pos.x - x) + Math.abs(food.pos.y - y);
+            if (dist < bestDist) {
+                bestDist = dist;
+                best = d;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.snake;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The H key's hint: the {@link MctsAdvisor}'s next move for the live game, searched off
+ * the loop thread so a tick never waits for it. After each tick the loop thread offers
+ * the new state; the advisor copies it there and searches it on its own thread, skipping
+ * states that arrive while a search is still running, so there is at most one search a
+ * tick. The overlay reads the newest finished result, and only while it is still for the
+ * position on screen.
+ */
+final class HintAdvisor implements AutoCloseable {
+    /** Share of a tick each search runs for, so its hint is in well before the next tick. */
+    static final double BUDGET_SHARE = 0.5;
+
+    /** A finished search: where it would move the head, for which game and tick. */
+    static final class Hint {
+        final GameEngine game;
+        final long tick;
+        final int x, y;
+
+        Hint(GameEngine game, long tick, int x, int y) {
+            this.game = game;
+            this.tick = tick;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private final MctsAdvisor advisor;
+    private final ExecutorService searcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "hint-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean searching = false;
+    private volatile Hint latest;
+
+    HintAdvisor() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        // leave a core for the loop thread and the EDT
+        advisor = new MctsAdvisor(Math.max(1, cores - 1), BUDGET_SHARE, MctsAdvisor.DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * Starts a search from the engine's current state unless one is running; call it from
+     * the thread that ticks the engine.
+     */
+    void offer(GameEngine engine) {
+        if (searching || engine.isOver()) return;
+        advisor.prepare(engine);
+        Snake snake = engine.snake();
+        int headX = snake.headX(), headY = snake.headY(), cols = engine.cols(), rows = engine.rows();
+        boolean wrap = snake.isWrap();
+        long tick = engine.ticks();
+        long budget = (long) (engine.tickMs() * 1_000_000L * BUDGET_SHARE);
+        searching = true;
+        searcher.execute(() -> {
+            try {
+                Direction d = advisor.search(budget, TranspositionTable.MAX_VISITS);
+                int x = headX + d.dx, y = headY + d.dy;
+                if (wrap) {
+                    x = Math.floorMod(x, cols);
+                    y = Math.floorMod(y, rows);
+                }
+                latest = new Hint(engine, tick, x, y);
+            } finally {
+                searching = false;
+            }
+        });
+    }
+
+    /** The hint for the engine's current tick, or null if its search has not finished. */
+    Hint current(GameEngine engine) {
+        Hint h = latest;
+        return h != null && h.game == engine && h.tick == engine.ticks() ? h : null;
+    }
+
+    @Override
+    public void close() {
+        searcher.shutdownNow();
+        try {
+            searcher.awaitTermination(1, TimeUnit.SECONDS); // the search ends at its deadline
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        advisor.close();
+    }
+}
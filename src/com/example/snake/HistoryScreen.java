@@ -0,0 +1,192 @@
+package com.example.snake;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * The S key's history screen: a summary of every game in the session history. Finished
+ * games are handed over directly rather than through the lossy event ring, and written
+ * on a thread of the screen's own, which also queries the history when the screen opens
+ * and after each game while it is open. The summary is drawn into its layer only when a
+ * new one arrives.
+ */
+final class HistoryScreen {
+    private static final int BARS = 24, LINES = 7, CHART = 80;
+    private static final int LINE_HEIGHT = 14;
+    /** Height of the layer the screen is drawn into. */
+    static final int HEIGHT = LINES * LINE_HEIGHT + 10 + CHART + 22;
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /** A summary of the session history, as the screen shows it. */
+    private static final class View {
+        final String[] lines;
+        final long[] bars;     // games by score, in buckets of barWidth
+        final long barWidth;
+
+        View(String[] lines, long[] bars, long barWidth) {
+            this.lines = lines;
+            this.bars = bars;
+            this.barWidth = barWidth;
+        }
+    }
+
+    private final SessionStore sessions;
+    // writes and queries, one at a time, so the newest summary lands last
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "session-history");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean shown = false;
+    private volatile View latest;         // newest summary, null until the first query
+    private View drawn;                   // what layer holds; drawing thread only
+    private BufferedImage layer;
+
+    HistoryScreen(SessionStore sessions) {
+        this.sessions = sessions;
+    }
+
+    boolean isShown() { return shown; }
+
+    /** Opens or closes the screen, querying the history afresh when it opens. */
+    void toggle() {
+        shown = !shown;
+        if (shown) io.execute(this::refresh);
+    }
+
+    /**
+     * Adds the engine's finished game to the session history without blocking; it is
+     * written, and the screen queried again if open, on the history's thread.
+     */
+    void record(GameEngine engine) {
+        long time = System.currentTimeMillis(), ticks = engine.ticks(), wrapTicks = engine.wrapTicks();
+        int score = engine.score(), level = engine.level(), maxLength = engine.maxLength();
+        int powerUps = engine.powerUpsUsed();
+        GameEngine.Outcome outcome = engine.outcome();
+        io.execute(() -> {
+            try {
+                sessions.append(time, score, level, maxLength, ticks, powerUps, wrapTicks, outcome);
+                sessions.flush();
+            } catch (IOException e) {
+                System.err.println("Failed to save session history: " + e.getMessage());
+            }
+            if (shown) refresh();
+        });
+    }
+
+    private void refresh() {
+        latest = summarize(sessions.query());
+    }
+
+    /**
+     * Draws the newest summary at y, re-rendering its layer when the summary or the view's
+     * width changed.
+     * @param textLayer makes a transparent layer of the given height, width pixels wide
+     */
+    void draw(Graphics2D g2, int y, int width, IntFunction<BufferedImage> textLayer) {
+        View view = latest;
+        if (view == null) return;
+        if (view != drawn || layer == null || layer.getWidth() != width) {
+            layer = render(view, g2.getFont(), textLayer.apply(HEIGHT));
+            drawn = view;
+        }
+        g2.drawImage(layer, 0, y, null);
+    }
+
+    /** Writes the games still queued and closes the history, waiting briefly for it. */
+    void close() {
+        io.execute(sessions::close);
+        io.shutdown();
+        try {
+            io.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static View summarize(SessionQuery q) {
+        long start = System.nanoTime();
+        String[] text = new String[LINES];
+        long games = q.count();
+        if (games == 0) {
+            text[0] = "HISTORY (S)  no games recorded yet";
+            return new View(Arrays.copyOf(text, 1), new long[0], 1);
+        }
+        long best = q.max(SessionStore.Column.SCORE);
+        long[] p = q.percentiles(SessionStore.Column.SCORE, 50, 90, 99);
+        text[1] = String.format("score   mean %.1f  p50 %d  p90 %d  p99 %d  best %d",
+            q.mean(SessionStore.Column.SCORE), p[0], p[1], p[2], best);
+
+        SessionQuery day = q.since(System.currentTimeMillis() - DAY_MILLIS);
+        long dayGames = day.count();
+        text[2] = dayGames == 0 ? "24 h    no games" : String.format("24 h    %,d games  mean %.1f  best %d",
+            dayGames, day.mean(SessionStore.Column.SCORE), day.max(SessionStore.Column.SCORE));
+
+        StringBuilder levels = new StringBuilder("by level");
+        double[] byLevel = q.means(SessionStore.Column.LEVEL, SessionStore.Column.SCORE);
+        for (int level = 1, shown = 0; level < byLevel.length && shown < 8; level++) {
+            if (Double.isNaN(byLevel[level])) continue;
+            levels.append(String.format("  %d: %.1f", level, byLevel[level]));
+            shown++;
+        }
+        text[3] = levels.toString();
+
+        long[] ended = q.counts(SessionStore.Column.OUTCOME);
+        text[4] = String.format("ended   wall %.0f%%  obstacle %.0f%%  self %.0f%%  won %.0f%%",
+            share(ended, GameEngine.Outcome.WALL, games), share(ended, GameEngine.Outcome.OBSTACLE, games),
+            share(ended, GameEngine.Outcome.SELF, games), share(ended, GameEngine.Outcome.WON, games));
+
+        long wrapped = q.where(SessionStore.Column.WRAP_TICKS, 1, Long.MAX_VALUE).count();
+        text[5] = String.format("wrap in %.0f%% of games  power-ups %.2f/game  longest %.1f  ticks %.0f",
+            100.0 * wrapped / games, q.mean(SessionStore.Column.POWER_UPS),
+            q.mean(SessionStore.Column.MAX_LENGTH), q.mean(SessionStore.Column.TICKS));
+
+        long width = best / BARS + 1;
+        long[] bars = q.histogram(SessionStore.Column.SCORE, width);
+        text[0] = String.format("HISTORY (S)  %,d games, queried in %.1f ms", games, (System.nanoTime() - start) / 1e6);
+        text[6] = "games by score";
+        return new View(text, bars, width);
+    }
+
+    private static double share(long[] counts, GameEngine.Outcome outcome, long total) {
+        int i = outcome.ordinal();
+        return i < counts.length ? 100.0 * counts[i] / total : 0;
+    }
+
+    /** Draws the summary's text and a bar chart of its score histogram into an empty layer. */
+    private static BufferedImage render(View view, Font font, BufferedImage layer) {
+        int x = 10;
+        int chartTop = LINES * LINE_HEIGHT + 10;
+        Graphics2D g2 = layer.createGraphics();
+        g2.setColor(MetricsOverlay.BACKDROP);
+        g2.fillRect(x - 4, 0, layer.getWidth() - 2 * (x - 4), view.bars.length == 0 ? 20 : layer.getHeight());
+        g2.setFont(font);
+        g2.setColor(Color.WHITE);
+        for (int i = 0; i < view.lines.length; i++) {
+            g2.drawString(view.lines[i], x, 14 + i * LINE_HEIGHT);
+        }
+        if (view.bars.length > 0) {
+            long most = 1;
+            for (long b : view.bars) most = Math.max(most, b);
+            int barWidth = (layer.getWidth() - 2 * x) / BARS;
+            int bottom = chartTop + CHART;
+            for (int i = 0; i < view.bars.length; i++) {
+                int h = (int) Math.round((double) CHART * view.bars[i] / most);
+                g2.fillRect(x + i * barWidth, bottom - h, Math.max(1, barWidth - 2), h);
+            }
+            g2.drawString("0", x, bottom + 14);
+            String end = String.valueOf(view.bars.length * view.barWidth);
+            g2.drawString(end, x + view.bars.length * barWidth - g2.getFontMetrics().stringWidth(end), bottom + 14);
+        }
+        g2.dispose();
+        return layer;
+    }
+}
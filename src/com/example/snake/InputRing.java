@@ -0,0 +1,88 @@
+package com.example.snake;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Bounded lock-free queue of input commands from one producer thread (the EDT) to one
+ * consumer thread (the game loop). Each command carries the {@link System#nanoTime} of
+ * the key press, so the consumer can tell how long it waited. Neither side ever blocks:
+ * a full ring rejects the command, which at human typing speed means the game has
+ * stopped ticking anyway.
+ *
+ * <p>Slots are plain arrays; the two counters are published with release/acquire
+ * ordering, and each side caches the other's counter so the common case makes no
+ * acquire-load. The fields are not padded apart, so the two sides may still share a
+ * cache line; at key-press rates that costs nothing worth the padding.
+ */
+public final class InputRing {
+    private static final VarHandle HEAD, TAIL;
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            HEAD = l.findVarHandle(InputRing.class, "head", long.class);
+            TAIL = l.findVarHandle(InputRing.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int[] codes;
+    private final long[] stamps;
+    private final int mask;
+
+    private long head;        // next slot to read; written by the consumer only
+    private long tail;        // next slot to write; written by the producer only
+    private long headCache;   // producer's last view of head
+    private long tailCache;   // consumer's last view of tail
+    private long polledStamp; // stamp of the command last returned by poll
+
+    /** @param capacity rounded up to a power of two */
+    public InputRing(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        int size = 1;
+        while (size < capacity) size <<= 1;
+        codes = new int[size];
+        stamps = new long[size];
+        mask = size - 1;
+    }
+
+    public int capacity() { return codes.length; }
+
+    /**
+     * Producer side: enqueues a command.
+     * @return false if the ring is full and the command was dropped.
+     */
+    public boolean offer(int code, long nanos) {
+        long t = tail;
+        if (t - headCache == codes.length) {
+            headCache = (long) HEAD.getAcquire(this);
+            if (t - headCache == codes.length) return false;
+        }
+        int i = (int) t & mask;
+        codes[i] = code;
+        stamps[i] = nanos;
+        TAIL.setRelease(this, t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side: takes the oldest command.
+     * @return its code, or -1 if the ring is empty; see {@link #polledStamp}.
+     */
+    public int poll() {
+        long h = head;
+        if (h == tailCache) {
+            tailCache = (long) TAIL.getAcquire(this);
+            if (h == tailCache) return -1;
+        }
+        int i = (int) h & mask;
+        int code = codes[i];
+        polledStamp = stamps[i];
+        HEAD.setRelease(this, h + 1);
+        return code;
+    }
+
+    /** Consumer side: the press time of the command last returned by {@link #poll}. */
+    public long polledStamp() { return polledStamp; }
+}
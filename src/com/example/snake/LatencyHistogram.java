@@ -0,0 +1,67 @@
+package com.example.snake;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-footprint histogram of non-negative longs (nanoseconds, bytes) in the style of
+ * HdrHistogram: values below 128 get exact buckets, larger ones 64 buckets per power of
+ * two, so every recorded value is reported within about 1.6% across the whole long range.
+ * Recording is two shifts and an array increment, with no allocation.
+ *
+ * <p>Single writer. Readers on other threads see a slightly stale but usable picture.
+ */
+public class LatencyHistogram {
+    private static final int EXACT = 128;                    // values below this are exact
+    private static final int SUB_BITS = 6;
+    private static final int SUB = 1 << SUB_BITS;            // buckets per power of two above EXACT
+    private static final int BUCKETS = EXACT + (63 - SUB_BITS) * SUB;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count, sum, max;
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts[bucket(value)]++;
+        count++;
+        sum += value;
+        if (value > max) max = value;
+    }
+
+    public long count() { return count; }
+    public long max() { return max; }
+    public double mean() { return count == 0 ? 0 : (double) sum / count; }
+
+    /**
+     * The value at the given percentile (0-100), as the upper bound of its bucket, or 0
+     * when nothing has been recorded.
+     */
+    public long percentile(double p) {
+        long n = count;
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) return Math.min(upperBound(b), max);
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = sum = max = 0;
+    }
+
+    static int bucket(long v) {
+        if (v < EXACT) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS; // v >>> shift is in [SUB, 2 * SUB)
+        return EXACT + (shift - 1) * SUB + (int) (v >>> shift) - SUB;
+    }
+
+    static long upperBound(int b) {
+        if (b < EXACT) return b;
+        int shift = (b - EXACT) / SUB + 1;
+        long sub = (b - EXACT) % SUB + SUB;
+        return ((sub + 1) << shift) - 1;
+    }
+}
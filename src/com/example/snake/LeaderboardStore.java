@@ -0,0 +1,347 @@
+package com.example.snake;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent leaderboard kept as an append-only log of fixed-size, checksummed records of
+ * every game played, with the best {@code capacity} games indexed in memory. The log is
+ * never trimmed to the index: at 44 bytes a game it stays small, and reading it back is
+ * one sequential pass however many games it holds.
+ *
+ * <p>All file I/O runs on one background thread. The log is read there at construction,
+ * so building the store never blocks; {@link #loaded()} completes once it has been read.
+ * {@link #record} updates the index at once and queues the game; queued games are
+ * appended and forced to disk in batches. Records have a fixed size and their own
+ * checksum, so a record torn by a crash is cut off at the next start and a corrupt one
+ * is skipped without losing the rest. A log that cannot be read at all, such as one from
+ * a newer version, is renamed aside with an {@code .unreadable-<time>} suffix and a new
+ * one started, so it is never written over.
+ */
+public class LeaderboardStore implements AutoCloseable {
+    /** One finished game. */
+    public static final class Entry {
+        public final long time;   // epoch millis when the game ended
+        public final long seed;
+        public final long ticks;
+        public final int score, level, length;
+        public final GameEngine.Outcome outcome;
+
+        public Entry(long time, long seed, long ticks, int score, int level, int length, GameEngine.Outcome outcome) {
+            this.time = time;
+            this.seed = seed;
+            this.ticks = ticks;
+            this.score = score;
+            this.level = level;
+            this.length = length;
+            this.outcome = outcome;
+        }
+
+        /** The final state of a game, stamped with the current time. */
+        public static Entry of(GameEngine engine) {
+            return new Entry(System.currentTimeMillis(), engine.seed(), engine.ticks(), engine.score(),
+                engine.level(), engine.snake().length(), engine.outcome());
+        }
+
+        /** The game a {@link GameEvent.Type#GAME_OVER} event reports. */
+        public static Entry of(GameEvent e) {
+            return new Entry(e.time(), e.seed(), e.tick(), e.score(), e.level(), e.length(), e.outcome());
+        }
+    }
+
+    private static final int MAGIC = 0x534E4B4C; // "SNKL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_BYTES = 8 + 8 + 8 + 4 + 4 + 4 + 4 + 4; // fields, then CRC32
+    private static final GameEngine.Outcome[] OUTCOMES = GameEngine.Outcome.values();
+
+    // Best first: higher score, then the earlier game
+    private static final Comparator<Entry> RANK =
+        Comparator.comparingInt((Entry e) -> -e.score).thenComparingLong(e -> e.time);
+
+    private final Path file;
+    private final int capacity;
+    private final PriorityQueue<Entry> top;    // worst of the kept entries at the head
+    private volatile int best = 0;
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "leaderboard-io");
+        t.setDaemon(true);
+        return t;
+    });
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    private volatile boolean closed = false;
+
+    // Owned by the io thread
+    private FileChannel log;
+    private final ByteBuffer writeBuf = ByteBuffer.allocate(RECORD_BYTES * 256);
+    private final CRC32 crc = new CRC32();
+
+    public LeaderboardStore() {
+        this(Paths.get(GameConfig.LEADERBOARD_FILE), GameConfig.LEADERBOARD_SIZE);
+    }
+
+    public LeaderboardStore(Path file, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.file = file;
+        this.capacity = capacity;
+        this.top = new PriorityQueue<>(capacity + 1, RANK.reversed());
+        io.execute(this::load);
+    }
+
+    /** Completes when the log has been read, exceptionally if it could not be. */
+    public CompletableFuture<Void> loaded() { return loaded; }
+
+    /** Best score recorded so far (0 until the log has loaded, unless a game was recorded since). */
+    public int best() { return best; }
+
+    /** The best games, best first. */
+    public synchronized List<Entry> top(int n) {
+        Entry[] all = top.toArray(new Entry[0]);
+        Arrays.sort(all, RANK);
+        return new ArrayList<>(Arrays.asList(all).subList(0, Math.min(n, all.length)));
+    }
+
+    /** Adds a game to the leaderboard without blocking; it reaches the disk on the next batch. */
+    public void record(Entry e) {
+        if (closed) {
+            throw new IllegalStateException("LeaderboardStore has been closed");
+        }
+        index(e);
+        pending.offer(e);
+        if (flushScheduled.compareAndSet(false, true)) {
+            io.execute(this::flush);
+        }
+    }
+
+    /** Flushes queued games and stops the io thread, waiting briefly for it. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        io.execute(this::flush);
+        io.execute(this::closeLog);
+        io.shutdown();
+        try {
+            if (!io.awaitTermination(2, TimeUnit.SECONDS)) {
+                System.err.println("Leaderboard still writing at close");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void index(Entry e) {
+        if (top.size() < capacity) {
+            top.offer(e);
+        } else if (RANK.compare(e, top.peek()) < 0) {
+            top.poll();
+            top.offer(e);
+        } else {
+            return;
+        }
+        if (e.score > best) best = e.score;
+    }
+
+    // ---- io thread ----
+
+    private void load() {
+        try {
+            boolean existed = Files.exists(file);
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            log = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (log.size() < HEADER_BYTES) {
+                writeHeader(log);
+                if (!existed) importLegacyHighScore();
+            } else {
+                try {
+                    readLog();
+                } catch (IOException | RuntimeException e) {
+                    setAside(e);
+                }
+            }
+            loaded.complete(null);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to load leaderboard: " + e.getMessage());
+            closeLog(); // flush then drops games rather than writing over whatever is there
+            loaded.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Moves a log that could not be read (another format, a newer version, a failed
+     * read) aside untouched, so appending never writes over it, and starts an empty one.
+     */
+    private void setAside(Exception cause) throws IOException {
+        closeLog();
+        Path aside = file.resolveSibling(file.getFileName() + ".unreadable-" + System.currentTimeMillis());
+        Files.move(file, aside);
+        System.err.println("Leaderboard: cannot read " + file + " (" + cause.getMessage()
+            + "), moved it to " + aside + " and started a new one");
+        log = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writeHeader(log);
+    }
+
+    private void readLog() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a leaderboard log: " + file);
+        }
+        // stream the records in large chunks; the heap only ever holds the top entries
+        long size = log.size();
+        long pos = HEADER_BYTES;
+        long corrupt = 0;
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_BYTES * 4096);
+        while (size - pos >= RECORD_BYTES) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), (size - pos) / RECORD_BYTES * RECORD_BYTES));
+            readFully(buf, pos);
+            buf.flip();
+            while (buf.hasRemaining()) {
+                Entry e = decode(buf);
+                if (e != null) {
+                    index(e);
+                } else {
+                    corrupt++;
+                }
+                pos += RECORD_BYTES;
+            }
+        }
+        if (corrupt > 0) {
+            System.err.println("Leaderboard: skipped " + corrupt + " corrupt records");
+        }
+        if (pos < size) {
+            // a record torn by a crash mid-append
+            System.err.println("Leaderboard: dropping " + (size - pos) + " bytes of a torn record");
+            log.truncate(pos);
+        }
+        log.position(pos);
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        long start = position - buf.position();
+        while (buf.hasRemaining()) {
+            if (log.read(buf, start + buf.position()) < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+        }
+    }
+
+    // The old store kept a single int; carry it over as an otherwise empty game
+    private void importLegacyHighScore() {
+        Path legacy = Paths.get(GameConfig.HIGH_SCORE_FILE);
+        try {
+            if (!Files.exists(legacy)) return;
+            String text = new String(Files.readAllBytes(legacy), StandardCharsets.UTF_8).trim();
+            int score = Integer.parseInt(text);
+            if (score > 0) {
+                record(new Entry(Files.getLastModifiedTime(legacy).toMillis(), 0, 0, score, 0, 0, GameEngine.Outcome.RUNNING));
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Ignoring old high score file: " + e.getMessage());
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        if (log == null) {
+            pending.clear(); // the log failed to open; the index still has them
+            return;
+        }
+        try {
+            Entry e;
+            boolean wrote = false;
+            while ((e = pending.poll()) != null) {
+                encode(e, writeBuf);
+                if (!writeBuf.hasRemaining()) {
+                    writeOut();
+                }
+                wrote = true;
+            }
+            if (!wrote) return;
+            writeOut();
+            log.force(false); // one sync per batch
+        } catch (IOException ex) {
+            System.err.println("Failed to save leaderboard: " + ex.getMessage());
+        }
+    }
+
+    private void writeOut() throws IOException {
+        writeBuf.flip();
+        while (writeBuf.hasRemaining()) {
+            log.write(writeBuf);
+        }
+        writeBuf.clear();
+    }
+
+    private void closeLog() {
+        if (log == null) return;
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.err.println("Error closing leaderboard: " + e.getMessage());
+        }
+        log = null;
+    }
+
+    private static void writeHeader(FileChannel ch) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        ch.position(0);
+        while (header.hasRemaining()) {
+            ch.write(header);
+        }
+    }
+
+    private void encode(Entry e, ByteBuffer buf) {
+        int start = buf.position();
+        buf.putLong(e.time).putLong(e.seed).putLong(e.ticks)
+           .putInt(e.score).putInt(e.level).putInt(e.length).putInt(e.outcome.ordinal());
+        buf.putInt(checksum(buf, start));
+    }
+
+    /** Decodes the record at the buffer's position, or returns null if it is corrupt; either way it is consumed. */
+    private Entry decode(ByteBuffer buf) {
+        int start = buf.position();
+        long time = buf.getLong(), seed = buf.getLong(), ticks = buf.getLong();
+        int score = buf.getInt(), level = buf.getInt(), length = buf.getInt(), outcome = buf.getInt();
+        if (buf.getInt() != checksum(buf, start) || outcome < 0 || outcome >= OUTCOMES.length) {
+            return null;
+        }
+        return new Entry(time, seed, ticks, score, level, length, OUTCOMES[outcome]);
+    }
+
+    // CRC32 over the record's fields, which end where the buffer's position is now
+    private int checksum(ByteBuffer buf, int start) {
+        crc.reset();
+        ByteBuffer fields = buf.duplicate();
+        fields.position(start).limit(start + RECORD_BYTES - 4);
+        crc.update(fields);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.snake;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Obstacle layouts for a sequence of levels, read from a {@link LevelPackWriter} file
+ * through a read-only memory map. Opening a pack reads only its header, whatever the
+ * number of levels, and loading a level copies its stored chunks straight into an
+ * {@link ObstacleMap}: one bulk copy per non-empty 32x32 chunk, no per-cell objects.
+ *
+ * <p>File layout, big-endian: magic {@code "SNKP"}, version byte, three zero bytes, cols,
+ * rows and level count (int), four zero bytes, the offset of the level index (long) and
+ * a CRC32 fingerprint of the levels (long). Each level, at an 8-byte aligned offset, is its
+ * obstacle count and non-empty chunk count (int), the chunk numbers (int, padded to 8
+ * bytes), then each chunk's {@value ObstacleMap#WORDS} words in {@link ObstacleMap}'s bit
+ * order. The index is one offset (long) per level.
+ *
+ * <p>Reads use absolute positions only, so one pack can serve engines on many threads.
+ * Packs are limited to 2 GB.
+ */
+public class LevelPack implements Closeable {
+    static final int MAGIC = 0x534E4B50; // "SNKP"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 40;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buf;
+    private final int cols, rows, levels;
+    private final int index;
+    private final long fingerprint;
+
+    public LevelPack(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Level pack too large to map: " + size + " bytes");
+            }
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a level pack: " + file);
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buf.getInt(0) != MAGIC) {
+                throw new IOException("Not a level pack: " + file);
+            }
+            int version = buf.get(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported level pack version " + version);
+            }
+            cols = buf.getInt(8);
+            rows = buf.getInt(12);
+            levels = buf.getInt(16);
+            long indexAt = buf.getLong(24);
+            fingerprint = buf.getLong(32);
+            if (cols <= 0 || rows <= 0 || levels <= 0 || indexAt < HEADER_BYTES || indexAt + 8L * levels > size) {
+                throw new IOException("Corrupt level pack header: " + file);
+            }
+            index = (int) indexAt;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int cols() { return cols; }
+    public int rows() { return rows; }
+    public int size() { return levels; }
+
+    /** Identifies the pack's contents, so a replay can check it is played on the same levels. */
+    public long fingerprint() { return fingerprint; }
+
+    /** Number of obstacles in layout {@code level} (0-based). */
+    public int obstacles(int level) {
+        return buf.getInt(offset(level));
+    }
+
+    /**
+     * Replaces the map's contents with layout {@code level} (0-based).
+     * @throws IllegalStateException if the level's record is corrupt; the map is then unchanged
+     */
+    public void load(int level, ObstacleMap into) {
+        if (into.cols() != cols || into.rows() != rows) {
+            throw new IllegalArgumentException("Pack is for a " + cols + "x" + rows + " board, not "
+                + into.cols() + "x" + into.rows());
+        }
+        int at = offset(level);
+        int chunks = buf.getInt(at + 4);
+        if (chunks < 0 || chunks > into.chunkCount()) {
+            throw corrupt(level, "has " + chunks + " chunks, the board " + into.chunkCount());
+        }
+        int numbers = at + 8;
+        int data = numbers + align8(4 * chunks);
+        long end = data + (long) chunks * ObstacleMap.WORDS * 8;
+        if (end > buf.limit()) {
+            throw corrupt(level, "ends at byte " + end + ", past the end of the " + buf.limit() + "-byte file");
+        }
+        for (int i = 0; i < chunks; i++) {
+            int chunk = buf.getInt(numbers + 4 * i);
+            if (chunk < 0 || chunk >= into.chunkCount()) {
+                throw corrupt(level, "has chunk " + chunk + ", the board chunks 0 to " + (into.chunkCount() - 1));
+            }
+        }
+        into.clear();
+        LongBuffer words = buf.duplicate().position(data).asLongBuffer();
+        for (int i = 0; i < chunks; i++) {
+            into.setChunk(buf.getInt(numbers + 4 * i), words);
+        }
+    }
+
+    private int offset(int level) {
+        if (level < 0 || level >= levels) {
+            throw new IndexOutOfBoundsException("Level " + level + " of " + levels);
+        }
+        long at = buf.getLong(index + 8 * level);
+        if (at < HEADER_BYTES || at + 8 > buf.limit()) {
+            throw corrupt(level, "starts at byte " + at + ", outside the " + buf.limit() + "-byte file");
+        }
+        return (int) at;
+    }
+
+    private static IllegalStateException corrupt(int level, String what) {
+        return new IllegalStateException("Corrupt level pack: level " + level + " " + what);
+    }
+
+    static int align8(int n) {
+        return (n + 7) & ~7;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.snake;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Writes a {@link LevelPack} one level at a time, so packs of any size are built without
+ * holding more than one layout in memory. The index and fingerprint go in on
+ * {@link #close}.
+ *
+ * <p>The {@link #main} tool builds packs from designed layouts, text files with {@code #}
+ * for an obstacle, and from procedurally generated ones:
+ *
+ * <pre>
+ * java -cp target/classes com.example.snake.LevelPackWriter levels.snkl --board 28x24 arena.txt --generate 50 --seed 7
+ * </pre>
+ */
+public class LevelPackWriter implements Closeable {
+    private final FileChannel channel;
+    private final int cols, rows;
+    private final CRC32 crc = new CRC32();
+    private long[] offsets = new long[64];
+    private int levels = 0;
+    private long position = LevelPack.HEADER_BYTES;
+    private boolean closed = false;
+
+    public LevelPackWriter(Path file, int cols, int rows) throws IOException {
+        if (cols <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Board dimensions must be positive");
+        }
+        this.cols = cols;
+        this.rows = rows;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /** Appends a layout as the next level. */
+    public void add(ObstacleMap level) throws IOException {
+        if (level.cols() != cols || level.rows() != rows) {
+            throw new IllegalArgumentException("Layout is " + level.cols() + "x" + level.rows()
+                + ", pack is " + cols + "x" + rows);
+        }
+        int chunks = 0;
+        for (int i = 0; i < level.chunkCount(); i++) {
+            if (level.chunk(i) != null) chunks++;
+        }
+        int data = 8 + LevelPack.align8(4 * chunks);
+        ByteBuffer out = ByteBuffer.allocate(data + chunks * ObstacleMap.WORDS * 8);
+        out.putInt(level.size()).putInt(chunks);
+        for (int i = 0; i < level.chunkCount(); i++) {
+            if (level.chunk(i) != null) out.putInt(i);
+        }
+        out.position(data);
+        for (int i = 0; i < level.chunkCount(); i++) {
+            long[] words = level.chunk(i);
+            if (words == null) continue;
+            for (long w : words) out.putLong(w);
+        }
+        out.flip();
+        crc.update(out.duplicate());
+
+        if (levels == offsets.length) offsets = Arrays.copyOf(offsets, 2 * levels);
+        offsets[levels++] = position;
+        write(out);
+    }
+
+    /** Number of levels added so far. */
+    public int levels() { return levels; }
+
+    /** Writes the index and header, and closes the file; a pack needs at least one level. */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            if (levels == 0) throw new IOException("A level pack needs at least one level");
+            long index = position;
+            ByteBuffer out = ByteBuffer.allocate(8 * levels);
+            for (int i = 0; i < levels; i++) out.putLong(offsets[i]);
+            out.flip();
+            write(out);
+
+            ByteBuffer header = ByteBuffer.allocate(LevelPack.HEADER_BYTES);
+            header.putInt(LevelPack.MAGIC).put((byte) LevelPack.VERSION).put(new byte[3])
+                .putInt(cols).putInt(rows).putInt(levels).putInt(0)
+                .putLong(index).putLong(crc.getValue())
+                .flip();
+            while (header.hasRemaining()) channel.write(header, header.position());
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void write(ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) {
+            position += channel.write(b, position);
+        }
+    }
+
+    /** Reads a text layout: one line per row, {@code #} marks an obstacle, anything else is open. */
+    public static ObstacleMap parse(Path file, int cols, int rows) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.size() > rows) {
+            throw new IOException(file + " has " + lines.size() + " rows, the board " + rows);
+        }
+        ObstacleMap level = new ObstacleMap(cols, rows);
+        for (int y = 0; y < lines.size(); y++) {
+            String line = lines.get(y);
+            if (line.length() > cols) {
+                throw new IOException(file + ":" + (y + 1) + " is wider than the board's " + cols + " columns");
+            }
+            for (int x = 0; x < line.length(); x++) {
+                if (line.charAt(x) == '#') level.add(x, y);
+            }
+        }
+        return level;
+    }
+
+    /**
+     * A procedural layout: straight wall segments, more of them on later levels, scaled
+     * with the board area like the random obstacles of a pack-less game.
+     * @param level 1-based
+     */
+    public static ObstacleMap generate(int cols, int rows, int level, Random rnd) {
+        ObstacleMap map = new ObstacleMap(cols, rows);
+        int scale = (int) Math.max(1, (long) cols * rows / (GameConfig.COLS * GameConfig.ROWS));
+        int walls = (2 + level) * scale;
+        int maxLength = Math.max(1, Math.min(cols, rows) / 3);
+        for (int i = 0; i < walls; i++) {
+            boolean horizontal = rnd.nextBoolean();
+            int length = 3 + rnd.nextInt(maxLength);
+            int x = rnd.nextInt(cols), y = rnd.nextInt(rows);
+            for (int k = 0; k < length; k++) {
+                int cx = horizontal ? x + k : x, cy = horizontal ? y : y + k;
+                if (cx >= cols || cy >= rows) break;
+                map.add(cx, cy);
+            }
+        }
+        return map;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path out = null;
+        int cols = GameConfig.COLS, rows = GameConfig.ROWS;
+        int generate = 0;
+        long seed = 1;
+        List<Path> layouts = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--board": {
+                    String[] dims = args[++i].split("x");
+                    cols = Integer.parseInt(dims[0]);
+                    rows = Integer.parseInt(dims[1]);
+                    break;
+                }
+                case "--generate": generate = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                default:
+                    if (out == null) out = Paths.get(args[i]); else layouts.add(Paths.get(args[i]));
+            }
+        }
+        if (out == null || layouts.isEmpty() && generate <= 0) {
+            System.err.println("Usage: LevelPackWriter <pack> [--board <cols>x<rows>] [layout.txt ...]"
+                + " [--generate <levels>] [--seed <n>]");
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        try (LevelPackWriter writer = new LevelPackWriter(out, cols, rows)) {
+            for (Path layout : layouts) {
+                writer.add(parse(layout, cols, rows));
+            }
+            Random rnd = new GameRandom(seed);
+            for (int i = 1; i <= generate; i++) {
+                writer.add(generate(cols, rows, writer.levels() + 1, rnd));
+            }
+            System.out.printf("%d levels (%dx%d)%n", writer.levels(), cols, rows);
+        }
+        System.out.printf("%s: %d bytes in %.1f ms%n", out, Files.size(out), (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.snake;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Load test for {@link GameServer}: connects bot players in steps and, at each player
+ * count, reports the server's tick time (as it states in every frame), the gap between
+ * state frames seen by the clients, and the bandwidth they receive. All bots share one
+ * selector thread; each turns away from walls and otherwise turns at random now and then.
+ *
+ * <pre>
+ * java -cp target/classes com.example.snake.LoadTestClient --local --players 50,100,200,400
+ * java -cp target/classes com.example.snake.LoadTestClient --port 7777 --players 100 --seconds 30
+ * </pre>
+ * With {@code --local} the server runs in the same JVM on a free port.
+ */
+public class LoadTestClient {
+    private static final Direction[] DIRS = Direction.values();
+    private static final double TURN_CHANCE = 0.1;
+
+    private final Selector selector;
+    private final InetSocketAddress server;
+    private final List<Player> players = new ArrayList<>();
+    private final Random rnd = new Random(1);
+
+    // Per step, reset by measure()
+    private final LatencyHistogram serverTick = new LatencyHistogram();
+    private final LatencyHistogram frameGap = new LatencyHistogram();
+    private long bytesIn = 0;
+    private long lastServerTick = -1;
+
+    /** One connected player. */
+    private final class Player {
+        final SocketChannel channel;
+        ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        final ByteBuffer out = ByteBuffer.allocate(1);
+        int id = -1, cols, rows;
+        long lastFrameAt = 0;
+
+        Player(SocketChannel channel) { this.channel = channel; }
+
+        void read() throws IOException {
+            int n = channel.read(in);
+            if (n < 0) throw new IOException("Server closed the connection");
+            bytesIn += n;
+            in.flip();
+            while (in.remaining() >= 4) {
+                int length = in.getInt(in.position());
+                if (in.remaining() < 4 + length) {
+                    if (in.capacity() < 4 + length) {
+                        ByteBuffer bigger = ByteBuffer.allocate(Math.max(4 + length, in.capacity() * 2));
+                        bigger.put(in);
+                        in = bigger;
+                        return; // already in write mode
+                    }
+                    break;
+                }
+                int end = in.position() + 4 + length;
+                in.getInt();
+                int type = in.get();
+                if (type == GameServer.MSG_WELCOME) {
+                    id = in.getInt();
+                    cols = in.getInt();
+                    rows = in.getInt();
+                } else if (type == GameServer.MSG_STATE) {
+                    onState();
+                }
+                in.position(end);
+            }
+            in.compact();
+        }
+
+        private void onState() throws IOException {
+            long now = System.nanoTime();
+            if (lastFrameAt != 0) frameGap.record(now - lastFrameAt);
+            lastFrameAt = now;
+            long tick = in.getLong();
+            int tickMicros = in.getInt();
+            if (tick != lastServerTick) {
+                serverTick.record(tickMicros * 1000L);
+                lastServerTick = tick;
+            }
+            int food = in.getInt();
+            in.position(in.position() + 4 * food);
+            int snakes = in.getInt();
+            for (int i = 0; i < snakes; i++) {
+                int snakeId = in.getInt();
+                in.getInt(); // score
+                int head = in.getInt();
+                int cells = in.getShort();
+                int codeBytes = (cells - 1 + 3) / 4;
+                if (snakeId == id) {
+                    // heading is the opposite of the first step towards the tail
+                    Direction behind = cells > 1 ? DIRS[(in.get(in.position()) >> 6) & 3] : Direction.LEFT;
+                    steer(head % cols, head / cols, opposite(behind));
+                }
+                in.position(in.position() + codeBytes);
+            }
+        }
+
+        private void steer(int x, int y, Direction heading) throws IOException {
+            boolean blocked = !inBounds(x + heading.dx, y + heading.dy);
+            if (!blocked && rnd.nextDouble() >= TURN_CHANCE) return;
+            Direction turn = heading.dx == 0
+                ? (rnd.nextBoolean() ? Direction.LEFT : Direction.RIGHT)
+                : (rnd.nextBoolean() ? Direction.UP : Direction.DOWN);
+            if (!inBounds(x + turn.dx, y + turn.dy)) turn = opposite(turn);
+            out.clear();
+            out.put((byte) turn.ordinal()).flip();
+            channel.write(out);
+        }
+
+        private boolean inBounds(int x, int y) {
+            return x >= 0 && x < cols && y >= 0 && y < rows;
+        }
+    }
+
+    LoadTestClient(InetSocketAddress server) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+    }
+
+    private static Direction opposite(Direction d) {
+        for (Direction o : DIRS) {
+            if (o.isOpposite(d)) return o;
+        }
+        throw new AssertionError(d);
+    }
+
+    void connectUpTo(int count) throws IOException {
+        while (players.size() < count) {
+            SocketChannel ch = SocketChannel.open(server);
+            ch.configureBlocking(false);
+            ch.socket().setTcpNoDelay(true);
+            Player player = new Player(ch);
+            ch.register(selector, SelectionKey.OP_READ, player);
+            players.add(player);
+        }
+    }
+
+    /** Serves the players for the given time and prints one line of results. */
+    void measure(double seconds) throws IOException {
+        serverTick.reset();
+        frameGap.reset();
+        bytesIn = 0;
+        for (Player p : players) p.lastFrameAt = 0;
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 1e9);
+        while (System.nanoTime() < end) {
+            selector.select(Math.max(1, (end - System.nanoTime()) / 1_000_000));
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                ((Player) key.attachment()).read();
+            }
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%7d %12.0f %12.0f %15.1f %15.1f %14.2f%n", players.size(),
+            serverTick.percentile(50) / 1e3, serverTick.percentile(99) / 1e3,
+            frameGap.percentile(99) / 1e6, bytesIn / 1024.0 / secs / players.size(), bytesIn / 1048576.0 / secs);
+    }
+
+    void close() throws IOException {
+        for (Player p : players) p.channel.close();
+        selector.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 7777;
+        String host = InetAddress.getLoopbackAddress().getHostAddress();
+        String steps = "50,100,200,400";
+        double seconds = 5;
+        boolean local = false;
+        int cols = 128, rows = 128;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host": host = args[++i]; break;
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--players": steps = args[++i]; break;
+                case "--seconds": seconds = Double.parseDouble(args[++i]); break;
+                case "--local": local = true; break;
+                case "--board": {
+                    String[] dims = args[++i].split("x");
+                    cols = Integer.parseInt(dims[0]);
+                    rows = Integer.parseInt(dims[1]);
+                    break;
+                }
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        GameServer localServer = null;
+        if (local) {
+            localServer = new GameServer(0, cols, rows, GameConfig.BASE_TICK_MS, 1);
+            localServer.start();
+            port = localServer.port();
+        }
+        LoadTestClient client = new LoadTestClient(new InetSocketAddress(host, port));
+        try {
+            System.out.println("players  tick p50 us  tick p99 us  frame gap p99 ms  KB/s per client  MB/s total");
+            for (String step : steps.split(",")) {
+                client.connectUpTo(Integer.parseInt(step.trim()));
+                client.measure(seconds);
+            }
+        } finally {
+            client.close();
+            if (localServer != null) localServer.close();
+        }
+    }
+}
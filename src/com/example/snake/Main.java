@@ -1,12 +1,126 @@
 package com.example.snake;
 
 import javax.swing.SwingUtilities;
+import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Main {
-    public static void main(String[] args) {
+    /**
+     * Options: {@code --board <cols>x<rows>} sets the board size, {@code --record <file>}
+     * records each game, {@code --replay <file>} plays a recording back, and {@code --fast}
+     * plays it at maximum speed. {@code --spectate <file>} writes a spectator stream of the
+     * game and {@code --broadcast <port>} serves it to viewers on localhost. {@code --levels
+     * <pack>} plays the layouts of a {@link LevelPack}, on the pack's board size.
+     * {@code --startup-probe} prints how long after JVM start the game was ready and its
+     * first frame painted, then exits; without a display the frame is painted offscreen.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, InvocationTargetException {
+        Path record = null, replay = null, spectate = null, levelPack = null;
+        int broadcastPort = -1;
+        boolean fast = false, probe = false;
+        int cols = GameConfig.COLS, rows = GameConfig.ROWS;
+        boolean boardSet = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--board": {
+                    String[] dims = args[++i].split("x");
+                    cols = Integer.parseInt(dims[0]);
+                    rows = Integer.parseInt(dims[1]);
+                    boardSet = true;
+                    break;
+                }
+                case "--record": record = Paths.get(args[++i]); break;
+                case "--replay": replay = Paths.get(args[++i]); break;
+                case "--fast":   fast = true; break;
+                case "--spectate": spectate = Paths.get(args[++i]); break;
+                case "--broadcast": broadcastPort = Integer.parseInt(args[++i]); break;
+                case "--levels": levelPack = Paths.get(args[++i]); break;
+                case "--startup-probe": probe = true; break;
+                default:
+                    System.err.println("Usage: Main [--board <cols>x<rows>] [--levels <pack>] [--record <file>]"
+                        + " [--replay <file> [--fast]] [--spectate <file>] [--broadcast <port>] [--startup-probe]");
+                    System.exit(2);
+            }
+        }
+        LevelPack levels = null;
+        if (levelPack != null) {
+            levels = new LevelPack(levelPack); // mapped for the life of the process
+            if (!boardSet) {
+                cols = levels.cols();
+                rows = levels.rows();
+            } else if (cols != levels.cols() || rows != levels.rows()) {
+                System.err.println(levelPack + " is for a " + levels.cols() + "x" + levels.rows() + " board");
+                System.exit(2);
+            }
+        }
+        SpectatorFeed feed = null;
+        if (spectate != null || broadcastPort >= 0) {
+            feed = new SpectatorFeed();
+            if (spectate != null) feed.toFile(spectate);
+            if (broadcastPort >= 0) {
+                System.out.println("Spectators: SpectatorReader --port " + feed.listen(broadcastPort));
+            }
+        }
+        SpectatorFeed spectators = feed;
+        LevelPack levelLayouts = levels;
+        Path recordTo = record, replayFrom = replay;
+        boolean fastReplay = fast, startupProbe = probe;
+        int boardCols = cols, boardRows = rows;
+        if (probe && GraphicsEnvironment.isHeadless()) {
+            AtomicReference<GamePanel> panel = new AtomicReference<>();
+            SwingUtilities.invokeAndWait(() -> panel.set(
+                new GamePanel(boardCols, boardRows, levelLayouts, recordTo, replayFrom, spectators)));
+            probeOffscreen(panel.get());
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
-            GameFrame frame = new GameFrame();
+            GameFrame frame = new GameFrame(boardCols, boardRows, levelLayouts, recordTo, replayFrom, fastReplay,
+                spectators);
             frame.setVisible(true);
+            if (startupProbe) {
+                reportStartup(frame.panel()).thenRun(() -> SwingUtilities.invokeLater(() -> {
+                    frame.panel().dispose();
+                    System.exit(0);
+                }));
+            }
+        });
+    }
+
+    /** Paints the panel into an image, as a window would, until its first game frame shows. */
+    private static void probeOffscreen(GamePanel panel) throws InterruptedException, InvocationTargetException {
+        CompletableFuture<Void> reported = reportStartup(panel);
+        BufferedImage screen = new BufferedImage(panel.getPreferredSize().width, panel.getPreferredSize().height,
+            BufferedImage.TYPE_INT_RGB);
+        while (!panel.firstFrame().isDone() && !panel.ready().isCompletedExceptionally()) {
+            SwingUtilities.invokeAndWait(() -> {
+                panel.setSize(panel.getPreferredSize());
+                Graphics g = screen.createGraphics();
+                panel.paint(g);
+                g.dispose();
+            });
+            Thread.sleep(1);
+        }
+        reported.join();
+        SwingUtilities.invokeAndWait(panel::dispose);
+        System.exit(0);
+    }
+
+    /** Prints the startup times once the first frame is painted. */
+    private static CompletableFuture<Void> reportStartup(GamePanel panel) {
+        CompletableFuture<Long> readyAt = panel.ready().thenApply(v -> System.currentTimeMillis());
+        CompletableFuture<Long> frameAt = panel.firstFrame().thenApply(v -> System.currentTimeMillis());
+        return readyAt.thenCombine(frameAt, (ready, frame) -> {
+            long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+            System.out.printf("startup: ready %d ms, first frame %d ms%n", ready - jvmStart, frame - jvmStart);
+            return null;
         });
     }
 }
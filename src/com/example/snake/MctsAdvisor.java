@@ -0,0 +1,457 @@
+package com.example.snake;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Lookahead advisor: Monte Carlo tree search over the snake's coming moves, as a
+ * {@link Bot} or as a hint for the player. Each iteration walks down the tree by UCT,
+ * adds one new state, and plays the game out from there with a food-seeking random
+ * policy; the iteration's value (how long the snake lived within the horizon, and how
+ * soon it ate) is added to every state on the way. The move visited most wins.
+ *
+ * <p>The tree is a {@link TranspositionTable}: states are keyed by a Zobrist hash of the
+ * body cells, the head, the food and the pending growth, kept up to date move by move,
+ * so paths reaching the same state share its statistics. Worker threads of a fork-join
+ * pool search the same table at once; a visit is counted as a thread descends and its
+ * value added on the way back, which steers the other threads elsewhere meanwhile.
+ *
+ * <p>The model is the single-player rules: walls or wrap, obstacles, self-collision with
+ * the tail moving out of the way, and growth. Power-ups are ignored, and food eaten in a
+ * playout reappears at a random free cell, so a state after eating is always a leaf.
+ * Each worker plays on its own body ring and cell counts, restored from an undo log after
+ * every iteration, so searching allocates nothing once the first search has sized them.
+ *
+ * <p>{@link #decide} searches for a share of the engine's tick time; searching stops at
+ * that deadline whatever the number of threads. Results depend on timing, so unlike the
+ * other bots the advisor is not deterministic. One search at a time per instance.
+ *
+ * <p>A search reads only what {@link #prepare} copied out of the engine: the body, the
+ * food and a snapshot of the obstacles, retaken only when the layout changes. So the
+ * engine can be prepared on the thread that ticks it and searched on another while the
+ * game plays on.
+ */
+public class MctsAdvisor implements Bot, AutoCloseable {
+    /** Share of a tick {@link #decide} searches for. */
+    public static final double DEFAULT_BUDGET_SHARE = 0.5;
+    public static final int DEFAULT_TABLE_SIZE = 1 << 20;
+
+    private static final Direction[] DIRS = Direction.values();
+    private static final int[] OPPOSITE = new int[DIRS.length];
+    static {
+        for (Direction d : DIRS) {
+            for (Direction o : DIRS) {
+                if (d.isOpposite(o)) OPPOSITE[d.ordinal()] = o.ordinal();
+            }
+        }
+    }
+    private static final double EXPLORATION = 0.7;  // UCT constant for values in [0, 1]
+    private static final double SURVIVAL_WEIGHT = 0.3;
+    private static final double GREEDY_PLAYOUT = 0.5; // chance a playout move heads for the food
+    private static final int MIN_HORIZON = 16, MAX_HORIZON = 128;
+    private static final int GROWTH_KEYS = 16;
+
+    private final double budgetShare;
+    private final ForkJoinPool pool; // null for one thread: search on the caller
+    private final Worker[] workers;
+    private final TranspositionTable table;
+
+    // Zobrist keys, per cell; rebuilt when the board size changes
+    private int cols = -1, rows = -1;
+    private long[] snakeKey = new long[0], headKey = new long[0], foodKey = new long[0];
+    private final long[] growthKey = new long[GROWTH_KEYS];
+
+    // Obstacles of the root, copied from obstacleSource at obstacleVersion
+    private ObstacleMap obstacles;
+    private GameEngine obstacleSource;
+    private int obstacleVersion;
+
+    // Root of the current search, read-only while workers run
+    private boolean wrap;
+    private int[] rootBody = new int[0];
+    private int rootLength, rootPending, rootHeading, rootFood, rootGrowth;
+    private long rootHash;
+    private int rootSlot;
+    private int horizon;
+    private long deadline;
+    private int maxPlayouts;
+
+    // Last search, for reporting
+    private final long[] lastVisits = new long[DIRS.length];
+    private final double[] lastValues = new double[DIRS.length];
+    private long lastPlayouts, lastSearchNanos;
+
+    public MctsAdvisor() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_BUDGET_SHARE, DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * @param threads     searching threads; 1 searches on the calling thread
+     * @param budgetShare share of the engine's tick time {@link #decide} searches for
+     * @param tableSize   transposition table slots
+     */
+    public MctsAdvisor(int threads, double budgetShare, int tableSize) {
+        if (threads <= 0) throw new IllegalArgumentException("Thread count must be positive");
+        if (budgetShare <= 0) throw new IllegalArgumentException("Budget share must be positive");
+        this.budgetShare = budgetShare;
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        this.table = new TranspositionTable(tableSize);
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(0x9E3779B97F4A7C15L * (i + 1));
+        }
+        SplittableRandom rnd = new SplittableRandom(0x5EED);
+        for (int i = 0; i < GROWTH_KEYS; i++) growthKey[i] = rnd.nextLong();
+    }
+
+    @Override
+    public Direction decide(GameEngine engine) {
+        return search(engine, (long) (engine.tickMs() * 1_000_000L * budgetShare), TranspositionTable.MAX_VISITS);
+    }
+
+    /**
+     * Searches from the engine's current state until the time budget runs out or the given
+     * number of playouts is done, whichever comes first.
+     * @return the recommended move; the current direction if every move is fatal.
+     */
+    public Direction search(GameEngine engine, long budgetNanos, int playouts) {
+        prepare(engine);
+        return search(budgetNanos, playouts);
+    }
+
+    /**
+     * Searches from the state last {@link #prepare prepared}, on the calling thread and the
+     * pool's, until the time budget runs out or the given number of playouts is done.
+     * @return the recommended move; the prepared direction if every move is fatal.
+     */
+    public Direction search(long budgetNanos, int playouts) {
+        long start = System.nanoTime();
+        deadline = start + budgetNanos;
+        maxPlayouts = Math.min(playouts, TranspositionTable.MAX_VISITS - workers.length);
+        table.newSearch();
+        rootSlot = table.slot(rootHash);
+        for (Worker w : workers) w.prepare();
+        if (pool == null) {
+            workers[0].run();
+        } else {
+            ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[workers.length];
+            for (int i = 0; i < workers.length; i++) tasks[i] = pool.submit(workers[i]);
+            for (ForkJoinTask<?> t : tasks) t.join();
+        }
+        Direction best = best(DIRS[rootHeading]);
+        lastPlayouts = 0;
+        for (Worker w : workers) {
+            w.finish();
+            lastPlayouts += w.playouts;
+        }
+        lastSearchNanos = System.nanoTime() - start;
+        return best;
+    }
+
+    /**
+     * Copies the engine's current state as the root of the next {@link #search(long, int)};
+     * call it from the thread that ticks the engine, and not while a search runs.
+     */
+    public void prepare(GameEngine engine) {
+        if (engine.cols() != cols || engine.rows() != rows) {
+            cols = engine.cols();
+            rows = engine.rows();
+            int cells = cols * rows;
+            snakeKey = new long[cells];
+            headKey = new long[cells];
+            foodKey = new long[cells];
+            SplittableRandom rnd = new SplittableRandom(cells);
+            for (int c = 0; c < cells; c++) {
+                snakeKey[c] = rnd.nextLong();
+                headKey[c] = rnd.nextLong();
+                foodKey[c] = rnd.nextLong();
+            }
+        }
+        if (engine != obstacleSource || engine.obstacleVersion() != obstacleVersion) {
+            obstacles = new ObstacleMap(engine.obstacles());
+            obstacleSource = engine;
+            obstacleVersion = engine.obstacleVersion();
+        }
+        horizon = Math.max(MIN_HORIZON, Math.min(MAX_HORIZON, cols + rows));
+        Snake snake = engine.snake();
+        wrap = snake.isWrap();
+        // copies of the tail segment are growth still to come: the tail stays put that many moves
+        int len = snake.length();
+        int tail = snake.segment(len - 1);
+        int pending = 0;
+        while (len > 1 && snake.segment(len - 2) == tail) {
+            len--;
+            pending++;
+        }
+        if (rootBody.length < len) rootBody = new int[Math.max(len, 2 * rootBody.length)];
+        long h = growthKey[Math.min(pending, GROWTH_KEYS - 1)];
+        for (int i = 0; i < len; i++) {
+            int seg = snake.segment(i);
+            rootBody[i] = Cell.y(seg) * cols + Cell.x(seg);
+            h ^= snakeKey[rootBody[i]];
+        }
+        rootLength = len;
+        rootPending = pending;
+        rootHeading = snake.direction().ordinal();
+        Food food = engine.food();
+        rootFood = food.pos.y * cols + food.pos.x;
+        rootGrowth = food.isSpecial ? 3 : 1;
+        rootHash = h ^ headKey[rootBody[0]] ^ foodKey[rootFood];
+    }
+
+    /** Fills in the per-move statistics and picks the move visited most. */
+    private Direction best(Direction fallback) {
+        Worker w = workers[0];
+        w.reset();
+        int head = w.body[w.headIdx], tail = w.body[(w.headIdx + w.length - 1) & w.mask];
+        Direction best = fallback;
+        long bestVisits = 0;
+        double bestValue = -1;
+        for (int d = 0; d < DIRS.length; d++) {
+            lastVisits[d] = 0;
+            lastValues[d] = 0;
+            int next = w.neighbour(head, d);
+            if (d == OPPOSITE[rootHeading] || next < 0 || w.deadly(next, tail)) continue;
+            int slot = table.find(w.childHash(head, next, tail));
+            long visits = table.visits(slot);
+            double value = visits == 0 ? 0 : table.value(slot) / visits;
+            lastVisits[d] = visits;
+            lastValues[d] = value;
+            if (visits > bestVisits || visits == bestVisits && value > bestValue) {
+                best = DIRS[d];
+                bestVisits = visits;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    /** Playouts through the move in the last search; 0 for a fatal or reversing move. */
+    public long visits(Direction d) { return lastVisits[d.ordinal()]; }
+
+    /** Mean playout value, in [0, 1], of the move in the last search. */
+    public double value(Direction d) { return lastValues[d.ordinal()]; }
+
+    public long lastPlayouts() { return lastPlayouts; }
+    public long lastSearchNanos() { return lastSearchNanos; }
+
+    /** Playouts per second of the last search. */
+    public double playoutsPerSecond() {
+        return lastSearchNanos == 0 ? 0 : lastPlayouts * 1e9 / lastSearchNanos;
+    }
+
+    public int threads() { return workers.length; }
+
+    @Override
+    public void close() {
+        if (pool != null) pool.shutdown();
+    }
+
+    /** One searching thread's copy of the game. */
+    private final class Worker implements Runnable {
+        private final SplittableRandom rnd;
+        // body cells, head at headIdx; moves write new heads below it, so the root's
+        // segments are never overwritten and resetting is just restoring the indices
+        private int[] body = new int[0];
+        private int mask, headIdx, length, pending, heading, food, growth, steps;
+        private long hash;
+        private double foodValue;
+        private byte[] count = new byte[0]; // body segments per cell
+        private int[] undo = new int[0];    // cell << 1 | 1 if incremented
+        private int undoSize;
+        private int[] path = new int[0];    // table slots of this iteration's states
+        private int pathSize;
+        private long playouts;
+        // what select picked
+        private int selDir, selNext;
+        private long selHash;
+
+        Worker(long seed) {
+            rnd = new SplittableRandom(seed);
+        }
+
+        void prepare() {
+            int cells = cols * rows;
+            if (count.length != cells) count = new byte[cells];
+            int size = Integer.highestOneBit(rootLength + horizon) << 1;
+            if (body.length < size) {
+                body = new int[size];
+                mask = size - 1;
+            }
+            System.arraycopy(rootBody, 0, body, 0, rootLength);
+            for (int i = 0; i < rootLength; i++) count[rootBody[i]]++;
+            if (undo.length < 2 * horizon) undo = new int[2 * horizon];
+            if (path.length < horizon + 1) path = new int[horizon + 1];
+            playouts = 0;
+        }
+
+        void finish() {
+            for (int i = 0; i < rootLength; i++) count[rootBody[i]]--;
+        }
+
+        void reset() {
+            headIdx = 0;
+            length = rootLength;
+            pending = rootPending;
+            heading = rootHeading;
+            food = rootFood;
+            growth = rootGrowth;
+            hash = rootHash;
+            steps = 0;
+            foodValue = 0;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < deadline && iterate()) {
+                playouts++;
+            }
+        }
+
+        /** One selection, expansion, playout and backup; false once the playout cap is hit. */
+        private boolean iterate() {
+            reset();
+            pathSize = 0;
+            if (rootSlot >= 0) {
+                if (table.addVisit(rootSlot) >= maxPlayouts) return false;
+                path[pathSize++] = rootSlot;
+            }
+            boolean alive = true, leaf = rootSlot < 0;
+            while (!leaf && steps < horizon) {
+                if (!select()) {
+                    alive = false;
+                    break;
+                }
+                int slot = table.slot(selHash);
+                if (slot >= 0) path[pathSize++] = slot;
+                boolean expanded = slot < 0 || table.addVisit(slot) == 0;
+                boolean ate = move(selDir, selNext, selHash);
+                leaf = expanded || ate;
+            }
+            if (alive) alive = playout();
+            double value = SURVIVAL_WEIGHT * steps / horizon + (1 - SURVIVAL_WEIGHT) * Math.min(1, foodValue);
+            for (int i = 0; i < pathSize; i++) table.addValue(path[i], value);
+            while (undoSize > 0) {
+                int op = undo[--undoSize];
+                count[op >>> 1] -= (op & 1) != 0 ? 1 : -1;
+            }
+            return true;
+        }
+
+        /** Picks the next move by UCT among the safe ones; false if there is none. */
+        private boolean select() {
+            int head = body[headIdx], tail = body[(headIdx + length - 1) & mask];
+            double logVisits = Math.log(Math.max(1, table.visits(path[pathSize - 1])));
+            double bestScore = Double.NEGATIVE_INFINITY;
+            boolean found = false;
+            for (int d = 0; d < DIRS.length; d++) {
+                int next = neighbour(head, d);
+                if (d == OPPOSITE[heading] || next < 0 || deadly(next, tail)) continue;
+                long h = childHash(head, next, tail);
+                int slot = table.find(h);
+                long visits = table.visits(slot);
+                double score = visits == 0 ? 1e9 + rnd.nextDouble()
+                    : table.value(slot) / visits + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (score > bestScore) {
+                    bestScore = score;
+                    selDir = d;
+                    selNext = next;
+                    selHash = h;
+                    found = true;
+                }
+            }
+            return found;
+        }
+
+        /** Plays on from the current state until the horizon; false if the snake dies. */
+        private boolean playout() {
+            while (steps < horizon) {
+                int head = body[headIdx], tail = body[(headIdx + length - 1) & mask];
+                int chosen = -1, options = 0, closest = -1, closestDistance = Integer.MAX_VALUE;
+                boolean greedy = food >= 0 && rnd.nextDouble() < GREEDY_PLAYOUT;
+                for (int d = 0; d < DIRS.length; d++) {
+                    int next = neighbour(head, d);
+                    if (d == OPPOSITE[heading] || next < 0 || deadly(next, tail)) continue;
+                    // reservoir sampling: a uniform pick among the safe moves without a list
+                    if (rnd.nextInt(++options) == 0) chosen = d;
+                    if (greedy) {
+                        int distance = Math.abs(next % cols - food % cols) + Math.abs(next / cols - food / cols);
+                        if (distance < closestDistance) {
+                            closestDistance = distance;
+                            closest = d;
+                        }
+                    }
+                }
+                if (options == 0) return false;
+                int d = greedy ? closest : chosen;
+                move(d, neighbour(head, d), 0);
+            }
+            return true;
+        }
+
+        /** Cell next to the given one in direction d, or -1 off the board without wrap. */
+        int neighbour(int cell, int d) {
+            int x = cell % cols + DIRS[d].dx, y = cell / cols + DIRS[d].dy;
+            if (wrap) {
+                x = Math.floorMod(x, cols);
+                y = Math.floorMod(y, rows);
+            } else if (x < 0 || x >= cols || y < 0 || y >= rows) {
+                return -1;
+            }
+            return y * cols + x;
+        }
+
+        boolean deadly(int next, int tail) {
+            if (obstacles.contains(next % cols, next / cols)) return true;
+            // the tail moves out of the way unless it is waiting for growth
+            return count[next] > 0 && !(next == tail && pending == 0);
+        }
+
+        /** Hash of the state after the head moves to next, matching what {@link #move} does. */
+        long childHash(int head, int next, int tail) {
+            long h = hash ^ headKey[head] ^ headKey[next] ^ snakeKey[next];
+            int p = pending;
+            if (p > 0) p--; else h ^= snakeKey[tail];
+            if (next == food) {
+                h ^= foodKey[food];
+                p += growth;
+            }
+            return h ^ growthKey[Math.min(pending, GROWTH_KEYS - 1)] ^ growthKey[Math.min(p, GROWTH_KEYS - 1)];
+        }
+
+        /** Moves the head in direction d, onto next; returns true if it ate. */
+        private boolean move(int d, int next, long newHash) {
+            if (pending > 0) {
+                pending--;
+            } else {
+                int tail = body[(headIdx + length - 1) & mask];
+                length--;
+                count[tail]--;
+                undo[undoSize++] = tail << 1;
+            }
+            headIdx = (headIdx - 1) & mask;
+            body[headIdx] = next;
+            length++;
+            count[next]++;
+            undo[undoSize++] = next << 1 | 1;
+            heading = d;
+            hash = newHash;
+            steps++;
+            if (next != food) return false;
+            pending += growth;
+            foodValue += (double) (horizon - steps + 1) / horizon;
+            // new food at a random free cell, if a few tries find one
+            food = -1;
+            growth = 1;
+            for (int i = 0; i < 8; i++) {
+                int c = rnd.nextInt(cols * rows);
+                if (count[c] == 0 && !obstacles.contains(c % cols, c / cols)) {
+                    food = c;
+                    break;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.snake;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+/**
+ * The F3 overlay: p50/p99/max of ticks, their phases, paints, lateness and input delay,
+ * allocation, the session's statistics and the events its subscribers missed. Its text
+ * is rebuilt a few times a second rather than every frame.
+ */
+final class MetricsOverlay {
+    static final Color BACKDROP = new Color(0, 0, 0, 170);
+    private static final long REFRESH_NANOS = 250_000_000L;
+
+    private final GameMetrics metrics;
+    private final GameStats stats;
+    private final GameEventBus events;
+    private volatile boolean shown = false;
+    private String[] text = new String[0]; // drawing thread only
+    private long textAt = 0;
+
+    MetricsOverlay(GameMetrics metrics, GameStats stats, GameEventBus events) {
+        this.metrics = metrics;
+        this.stats = stats;
+        this.events = events;
+    }
+
+    boolean isShown() { return shown; }
+
+    void toggle() { shown = !shown; }
+
+    void draw(Graphics2D g2) {
+        long now = System.nanoTime();
+        if (now - textAt > REFRESH_NANOS || text.length == 0) {
+            text = text();
+            textAt = now;
+        }
+        int lineHeight = 14, x = 10, y = 36;
+        g2.setColor(BACKDROP);
+        g2.fillRect(x - 4, y - 12, 330, text.length * lineHeight + 6);
+        g2.setColor(Color.WHITE);
+        for (String line : text) {
+            g2.drawString(line, x, y);
+            y += lineHeight;
+        }
+    }
+
+    private String[] text() {
+        GameEngine.Phase[] phases = GameEngine.Phase.values();
+        String[] text = new String[phases.length + 9];
+        int i = 0;
+        text[i++] = "ms          p50      p99      max   (F3)";
+        text[i++] = distribution("tick", metrics.tick());
+        for (GameEngine.Phase p : phases) {
+            text[i++] = distribution("  " + p.name().toLowerCase(), metrics.phase(p));
+        }
+        text[i++] = distribution("paint", metrics.paint());
+        text[i++] = distribution("late", metrics.lateness());
+        text[i++] = distribution("input", metrics.input());
+        LatencyHistogram alloc = metrics.allocated();
+        text[i++] = alloc.count() == 0 ? "alloc/tick  n/a"
+            : String.format("alloc/tick  mean %.0f B  p99 %d B", alloc.mean(), alloc.percentile(99));
+        text[i++] = String.format("games %d  food %d  power-ups %d  best %d",
+            stats.games(), stats.food(), stats.powerUps(), stats.bestScore());
+        text[i++] = String.format("ended: wall %d  obstacle %d  self %d", stats.endings(GameEngine.Outcome.WALL),
+            stats.endings(GameEngine.Outcome.OBSTACLE), stats.endings(GameEngine.Outcome.SELF));
+        text[i++] = String.format("events %d  missed %d", events.published(), events.missed());
+        return text;
+    }
+
+    private static String distribution(String label, LatencyHistogram h) {
+        return String.format("%-10s %8.3f %8.3f %8.3f", label,
+            h.percentile(50) / 1e6, h.percentile(99) / 1e6, h.max() / 1e6);
+    }
+}
@@ -1,8 +0,0 @@
-package com.example.snake;
-
-import java.awt.Point;
-
-public class Obstacle {
-    public final Point pos;
-    public Obstacle(int x, int y) { pos = new Point(x,y); }
-}
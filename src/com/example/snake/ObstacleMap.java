@@ -0,0 +1,155 @@
+package com.example.snake;
+
+import java.nio.LongBuffer;
+
+/**
+ * Sparse obstacle storage for boards of any size: the board is cut into 32x32-cell
+ * chunks, each a 1024-bit set that is only allocated once it holds an obstacle. Lookups
+ * are a chunk fetch plus a bit test, and {@link #forEachIn} visits the obstacles in a
+ * rectangle by walking only the chunks it overlaps, so drawing a viewport costs what is
+ * on screen rather than what is on the board.
+ */
+public class ObstacleMap {
+    /** Receives the cells of {@link #forEachIn}. */
+    public interface CellVisitor {
+        void visit(int x, int y);
+    }
+
+    static final int SHIFT = 5;                    // 32 cells per chunk side
+    private static final int SIDE = 1 << SHIFT;
+    static final int MASK = SIDE - 1;
+    static final int WORDS = SIDE * SIDE / 64;
+
+    private final int cols, rows;
+    private final int chunkCols, chunkRows;
+    private final long[][] chunks;                 // row-major chunks, null while empty
+    private int size = 0;
+
+    public ObstacleMap(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        this.chunkCols = (cols + MASK) >> SHIFT;
+        this.chunkRows = (rows + MASK) >> SHIFT;
+        this.chunks = new long[chunkCols * chunkRows][];
+    }
+
+    /** Independent copy, for snapshots. */
+    public ObstacleMap(ObstacleMap other) {
+        this(other.cols, other.rows);
+        for (int i = 0; i < chunks.length; i++) {
+            if (other.chunks[i] != null) chunks[i] = other.chunks[i].clone();
+        }
+        size = other.size;
+    }
+
+    public int cols() { return cols; }
+    public int rows() { return rows; }
+    public int size() { return size; }
+
+    public boolean contains(int x, int y) {
+        if (x < 0 || x >= cols || y < 0 || y >= rows) return false;
+        long[] chunk = chunks[(y >> SHIFT) * chunkCols + (x >> SHIFT)];
+        if (chunk == null) return false;
+        int bit = (y & MASK) << SHIFT | (x & MASK);
+        return (chunk[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /** @return false if the cell already held an obstacle. */
+    public boolean add(int x, int y) {
+        if (x < 0 || x >= cols || y < 0 || y >= rows) {
+            throw new IndexOutOfBoundsException("Cell " + x + "," + y + " is off the board");
+        }
+        int c = (y >> SHIFT) * chunkCols + (x >> SHIFT);
+        long[] chunk = chunks[c];
+        if (chunk == null) {
+            chunk = chunks[c] = new long[WORDS];
+        }
+        int bit = (y & MASK) << SHIFT | (x & MASK);
+        long before = chunk[bit >>> 6];
+        chunk[bit >>> 6] = before | (1L << bit);
+        if (before == chunk[bit >>> 6]) return false;
+        size++;
+        return true;
+    }
+
+    /** @return false if the cell held no obstacle; cells off the board never do. */
+    public boolean remove(int x, int y) {
+        if (x < 0 || x >= cols || y < 0 || y >= rows) return false;
+        long[] chunk = chunks[(y >> SHIFT) * chunkCols + (x >> SHIFT)];
+        if (chunk == null) return false;
+        int bit = (y & MASK) << SHIFT | (x & MASK);
+        long before = chunk[bit >>> 6];
+        chunk[bit >>> 6] = before & ~(1L << bit);
+        if (before == chunk[bit >>> 6]) return false;
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = null;
+        }
+        size = 0;
+    }
+
+    // Raw chunk access for level packs. Chunks are numbered row-major; within one, cell
+    // (x, y) is bit ((y & 31) << 5 | (x & 31)) of the {@value #WORDS} words
+
+    int chunkCount() { return chunks.length; }
+
+    /** Chunks per row of chunks. */
+    int chunkCols() { return chunkCols; }
+
+    /** The chunk's words, or null while it is empty; do not modify. */
+    long[] chunk(int index) { return chunks[index]; }
+
+    /** Overwrites a chunk with the next {@value #WORDS} words of {@code src}. */
+    void setChunk(int index, LongBuffer src) {
+        long[] chunk = chunks[index];
+        if (chunk == null) {
+            chunk = chunks[index] = new long[WORDS];
+        } else {
+            size -= bitCount(chunk);
+        }
+        src.get(chunk);
+        size += bitCount(chunk);
+    }
+
+    private static int bitCount(long[] chunk) {
+        int n = 0;
+        for (long w : chunk) n += Long.bitCount(w);
+        return n;
+    }
+
+    /** Visits every obstacle in the inclusive cell rectangle, chunk by chunk. */
+    public void forEachIn(int x0, int y0, int x1, int y1, CellVisitor visitor) {
+        x0 = Math.max(0, x0);
+        y0 = Math.max(0, y0);
+        x1 = Math.min(cols - 1, x1);
+        y1 = Math.min(rows - 1, y1);
+        if (x0 > x1 || y0 > y1 || size == 0) return;
+        for (int cy = y0 >> SHIFT; cy <= y1 >> SHIFT; cy++) {
+            for (int cx = x0 >> SHIFT; cx <= x1 >> SHIFT; cx++) {
+                long[] chunk = chunks[cy * chunkCols + cx];
+                if (chunk == null) continue;
+                for (int w = 0; w < WORDS; w++) {
+                    long bits = chunk[w];
+                    while (bits != 0) {
+                        int bit = w << 6 | Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        int x = cx << SHIFT | (bit & MASK);
+                        int y = cy << SHIFT | (bit >>> SHIFT);
+                        if (x >= x0 && x <= x1 && y >= y0 && y <= y1) {
+                            visitor.visit(x, y);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Visits every obstacle on the board. */
+    public void forEach(CellVisitor visitor) {
+        forEachIn(0, 0, cols - 1, rows - 1, visitor);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.snake;
+
+import java.awt.Point;
+import java.util.Random;
+
+/**
+ * Board-wide occupancy map with one byte per cell, indexed by {@code y * cols + x}.
+ * The low bits count the snake segments stacked on a cell (growth duplicates the tail),
+ * the high bits mark an obstacle or an item (food, power-up). Every query is a single
+ * array lookup.
+ *
+ * <p>Empty cells are also kept in a dense index array with a reverse position map, so
+ * a uniformly random free cell can be picked in constant time however full the board is.
+ */
+public class OccupancyGrid {
+    private static final int OBSTACLE = 0x80;
+    private static final int ITEM = 0x40;
+    private static final int SNAKE_MASK = 0x3F;
+
+    private final int cols, rows;
+    private final byte[] cells;
+    private final int[] free;     // free cell indices, first freeCount entries are live
+    private final int[] freeSlot; // position of each cell in free[], or -1 when occupied
+    private int freeCount;
+
+    public OccupancyGrid(int cols, int rows) {
+        if (cols <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Board dimensions must be positive");
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.cells = new byte[cols * rows];
+        this.free = new int[cells.length];
+        this.freeSlot = new int[cells.length];
+        clear();
+    }
+
+    /** Independent copy of another grid, for snapshots. */
+    public OccupancyGrid(OccupancyGrid other) {
+        this.cols = other.cols;
+        this.rows = other.rows;
+        this.cells = other.cells.clone();
+        this.free = other.free.clone();
+        this.freeSlot = other.freeSlot.clone();
+        this.freeCount = other.freeCount;
+    }
+
+    public int cols() { return cols; }
+    public int rows() { return rows; }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && x < cols && y >= 0 && y < rows;
+    }
+
+    public void addSnake(int x, int y) {
+        if (!inBounds(x, y)) return; // a head past the wall ends the game before it matters
+        int i = y * cols + x;
+        int c = cells[i] & 0xFF;
+        if ((c & SNAKE_MASK) == SNAKE_MASK) {
+            throw new IllegalStateException("Too many snake segments on cell " + x + "," + y);
+        }
+        set(i, c + 1);
+    }
+
+    public void removeSnake(int x, int y) {
+        if (!inBounds(x, y)) return;
+        int i = y * cols + x;
+        int c = cells[i] & 0xFF;
+        if ((c & SNAKE_MASK) == 0) return;
+        set(i, c - 1);
+    }
+
+    /** Number of snake segments currently on the cell (more than one means a collision). */
+    public int snakeCount(int x, int y) {
+        if (!inBounds(x, y)) return 0;
+        return cells[y * cols + x] & SNAKE_MASK;
+    }
+
+    public boolean hasSnake(int x, int y) {
+        return snakeCount(x, y) > 0;
+    }
+
+    public void setObstacle(int x, int y, boolean obstacle) {
+        setFlag(x, y, OBSTACLE, obstacle);
+    }
+
+    /**
+     * Sets or clears the obstacle mark on every cell of the map, walking its chunk words
+     * directly. The free index changes cell by cell in the map's own order, exactly as
+     * calling {@link #setObstacle} from {@link ObstacleMap#forEach} would: its order
+     * decides which free cell a seeded spawn picks, so rebuilding it in one pass would
+     * change every game and replay.
+     */
+    public void setObstacles(ObstacleMap map, boolean obstacle) {
+        if (map.cols() != cols || map.rows() != rows) {
+            throw new IllegalArgumentException("Obstacle map is " + map.cols() + "x" + map.rows()
+                + ", board is " + cols + "x" + rows);
+        }
+        if (map.size() == 0) return;
+        int chunkCols = map.chunkCols();
+        for (int c = 0; c < map.chunkCount(); c++) {
+            long[] chunk = map.chunk(c);
+            if (chunk == null) continue;
+            int x0 = (c % chunkCols) << ObstacleMap.SHIFT, y0 = (c / chunkCols) << ObstacleMap.SHIFT;
+            for (int w = 0; w < ObstacleMap.WORDS; w++) {
+                long bits = chunk[w];
+                while (bits != 0) {
+                    int bit = w << 6 | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    int x = x0 | (bit & ObstacleMap.MASK), y = y0 | (bit >>> ObstacleMap.SHIFT);
+                    if (x >= cols || y >= rows) continue;
+                    int i = y * cols + x;
+                    int v = cells[i] & 0xFF;
+                    set(i, obstacle ? (v | OBSTACLE) : (v & ~OBSTACLE));
+                }
+            }
+        }
+    }
+
+    public boolean isObstacle(int x, int y) {
+        return inBounds(x, y) && (cells[y * cols + x] & OBSTACLE) != 0;
+    }
+
+    /** Marks a cell as holding food or a power-up so nothing else spawns on it. */
+    public void setItem(int x, int y, boolean item) {
+        setFlag(x, y, ITEM, item);
+    }
+
+    /** True when no snake segment, obstacle or item is on the cell. */
+    public boolean isFree(int x, int y) {
+        return inBounds(x, y) && cells[y * cols + x] == 0;
+    }
+
+    public boolean isFree(Point p) {
+        return p != null && isFree(p.x, p.y);
+    }
+
+    public int freeCount() { return freeCount; }
+
+    /**
+     * Picks a uniformly random free cell.
+     * @return The cell index ({@code y * cols + x}), or -1 if the board is full.
+     */
+    public int randomFreeIndex(Random rnd) {
+        if (freeCount == 0) return -1;
+        return free[rnd.nextInt(freeCount)];
+    }
+
+    public int indexX(int index) { return index % cols; }
+    public int indexY(int index) { return index / cols; }
+
+    public void clearObstacles() {
+        for (int i = 0; i < cells.length; i++) {
+            int c = cells[i] & 0xFF;
+            if ((c & OBSTACLE) != 0) {
+                set(i, c & ~OBSTACLE);
+            }
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = 0;
+            free[i] = i;
+            freeSlot[i] = i;
+        }
+        freeCount = cells.length;
+    }
+
+    private void setFlag(int x, int y, int flag, boolean on) {
+        if (!inBounds(x, y)) return;
+        int i = y * cols + x;
+        int c = cells[i] & 0xFF;
+        set(i, on ? (c | flag) : (c & ~flag));
+    }
+
+    // Single write path so the free index follows every empty <-> occupied transition
+    private void set(int i, int value) {
+        boolean wasFree = cells[i] == 0;
+        cells[i] = (byte) value;
+        if (wasFree && value != 0) {
+            // swap-remove from the free list
+            int slot = freeSlot[i];
+            int last = free[--freeCount];
+            free[slot] = last;
+            freeSlot[last] = slot;
+            freeSlot[i] = -1;
+        } else if (!wasFree && value == 0) {
+            free[freeCount] = i;
+            freeSlot[i] = freeCount++;
+        }
+    }
+}
@@ -6,7 +6,7 @@ import java.util.Random;
 public class PowerUp {
     public enum Type { SPEED_BOOST, SHRINK, CLEAR_OBSTACLES;
         private static final Type[] vals = values();
-        public static Type randomType() { return vals[new Random().nextInt(vals.length)]; }
+        public static Type randomType(Random rnd) { return vals[rnd.nextInt(vals.length)]; }
     }
     public final Point pos;
     public final Type type;
@@ -0,0 +1,163 @@
+package com.example.snake;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plays back a recording by re-simulating it: a fresh engine with the recorded seed gets
+ * each input at the tick it was originally applied. Every {@code checkpointTicks} ticks
+ * the engine state and the reader cursor are copied, so a seek restores the nearest
+ * checkpoint at or before the target and simulates only the ticks from there.
+ *
+ * <p>A checkpoint is a full engine copy, board included, so at most
+ * {@link #MAX_CHECKPOINTS} are kept: when that many have been taken, every other one is
+ * dropped and the interval doubles. Memory stays bounded however long the recording, and
+ * a seek re-simulates at most about {@code 2 * ticks / MAX_CHECKPOINTS} ticks.
+ *
+ * <p>Not thread-safe; like the engine, it belongs to the thread that ticks it.
+ *
+ * <pre>
+ * java -cp target/classes com.example.snake.ReplayPlayer game.snkr [--levels levels.snkl]
+ * </pre>
+ */
+public class ReplayPlayer implements Closeable {
+    public static final int DEFAULT_CHECKPOINT_TICKS = 1000;
+    public static final int MAX_CHECKPOINTS = 64;
+
+    private static final class Checkpoint {
+        final GameEngine engine;
+        final int position;
+        final long positionTick;
+
+        Checkpoint(GameEngine engine, int position, long positionTick) {
+            this.engine = engine;
+            this.position = position;
+            this.positionTick = positionTick;
+        }
+    }
+
+    private final ReplayReader in;
+    private long checkpointTicks;                                   // doubles each time the list is thinned
+    private final List<Checkpoint> checkpoints = new ArrayList<>(); // entry k is at tick k * checkpointTicks
+    private GameEngine engine;
+
+    public ReplayPlayer(Path file) throws IOException {
+        this(file, DEFAULT_CHECKPOINT_TICKS, null);
+    }
+
+    /** @param levels the pack the game was recorded on, or null if it used random obstacles */
+    public ReplayPlayer(Path file, LevelPack levels) throws IOException {
+        this(file, DEFAULT_CHECKPOINT_TICKS, levels);
+    }
+
+    public ReplayPlayer(Path file, int checkpointTicks, LevelPack levels) throws IOException {
+        if (checkpointTicks <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.in = new ReplayReader(file);
+        this.checkpointTicks = checkpointTicks;
+        try {
+            this.engine = in.newEngine(levels);
+        } catch (IllegalArgumentException e) {
+            in.close();
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /** The engine being played. Seeking backwards replaces it, so do not hold on to it. */
+    public GameEngine engine() { return engine; }
+
+    public long ticks() { return engine.ticks(); }
+
+    /** True once the game is over or the recording's last tick has been played. */
+    public boolean isFinished() {
+        if (engine.isOver()) return true;
+        // the end marker is only read after the last event, which is never past the end
+        return in.peekTick() == Long.MAX_VALUE && in.endTick() >= 0 && engine.ticks() >= in.endTick();
+    }
+
+    /**
+     * Applies the inputs recorded for the current tick and advances one tick.
+     * @return false if playback had already finished.
+     */
+    public boolean advance() {
+        if (isFinished()) return false;
+        long t = engine.ticks();
+        if (t % checkpointTicks == 0 && checkpoints.size() == t / checkpointTicks) {
+            if (checkpoints.size() == MAX_CHECKPOINTS) {
+                thinCheckpoints(); // t = MAX_CHECKPOINTS * old interval, still on the new grid
+            }
+            checkpoints.add(new Checkpoint(engine.copy(), in.position(), in.positionTick()));
+        }
+        while (in.peekTick() == t) {
+            int code = in.take();
+            if (code == ReplayWriter.WRAP) {
+                engine.toggleWrap();
+            } else {
+                engine.steer(Direction.values()[code]);
+            }
+        }
+        if (isFinished()) return false; // inputs made after the last tick
+        engine.tick();
+        return true;
+    }
+
+    /** Keeps the checkpoints at even multiples of the interval, and doubles the interval. */
+    private void thinCheckpoints() {
+        int kept = 0;
+        for (int k = 0; k < checkpoints.size(); k += 2) {
+            checkpoints.set(kept++, checkpoints.get(k));
+        }
+        checkpoints.subList(kept, checkpoints.size()).clear();
+        checkpointTicks *= 2;
+    }
+
+    /**
+     * Moves playback to the given tick, or to the end if the game finishes first.
+     * Backward seeks, and forward seeks past a known checkpoint, start from the nearest
+     * checkpoint instead of the current tick.
+     */
+    public void seek(long tick) {
+        tick = Math.max(0, tick);
+        int k = (int) Math.min(tick / checkpointTicks, checkpoints.size() - 1);
+        if (k >= 0) {
+            long at = (long) k * checkpointTicks;
+            if (tick < engine.ticks() || at > engine.ticks()) {
+                Checkpoint cp = checkpoints.get(k);
+                engine = cp.engine.copy(); // the checkpoint itself stays untouched
+                in.seek(cp.position, cp.positionTick);
+            }
+        }
+        while (engine.ticks() < tick && advance()) {
+            // re-simulate up to the target
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && !(args.length == 3 && args[1].equals("--levels"))) {
+            System.err.println("Usage: ReplayPlayer <replay-file> [--levels <pack>]");
+            System.exit(2);
+        }
+        try (LevelPack levels = args.length == 3 ? new LevelPack(Paths.get(args[2])) : null;
+             ReplayPlayer player = new ReplayPlayer(Paths.get(args[0]), levels)) {
+            long start = System.nanoTime();
+            while (player.advance()) {
+                // play at full speed
+            }
+            double secs = (System.nanoTime() - start) / 1e9;
+            GameEngine e = player.engine();
+            System.out.printf("seed %d: %s after %d ticks, score %d, level %d, length %d%n",
+                e.seed(), e.outcome(), e.ticks(), e.score(), e.level(), e.snake().length());
+            System.out.printf("replayed in %.3f s (%.0f ticks/s)%n", secs, e.ticks() / Math.max(secs, 1e-9));
+        }
+    }
+}
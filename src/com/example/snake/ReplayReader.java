@@ -0,0 +1,165 @@
+package com.example.snake;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a {@link ReplayWriter} file through a read-only memory map, so events are decoded
+ * straight from the page cache and nothing but the cursor lives on the heap. The cursor
+ * is a (position, tick) pair that can be saved and restored for seeking.
+ *
+ * <p>A file cut short, e.g. by a crash while recording, reads as if it ended after the
+ * last complete event.
+ */
+public class ReplayReader implements Closeable {
+    private static final int HEADER_BYTES = 4 + 1 + 8 + 4 + 4; // version 1; version 2 adds 8
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buf;
+    private final long seed;
+    private final int cols, rows;
+    private final long levelsFingerprint;
+    private long endTick = -1;  // known once the end marker has been read
+
+    // Cursor: the next undecoded event and the tick its delta is relative to
+    private long tick = 0;
+    // The decoded next event, valid while nextPos >= 0
+    private int nextPos = -1;
+    private long nextTick;
+    private int nextCode;
+
+    public ReplayReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Replay file too large to map: " + size + " bytes");
+            }
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a replay file: " + file);
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buf.getInt() != ReplayWriter.MAGIC) {
+                throw new IOException("Not a replay file: " + file);
+            }
+            int version = buf.get();
+            if (version < 1 || version > ReplayWriter.VERSION) {
+                throw new IOException("Unsupported replay version " + version);
+            }
+            seed = buf.getLong();
+            cols = buf.getInt();
+            rows = buf.getInt();
+            if (version >= 2 && size < HEADER_BYTES + 8) {
+                throw new IOException("Not a replay file: " + file);
+            }
+            levelsFingerprint = version >= 2 ? buf.getLong() : 0;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long seed() { return seed; }
+    public int cols() { return cols; }
+    public int rows() { return rows; }
+
+    /** The last tick of the recording, or -1 if the end marker has not been reached (or is missing). */
+    public long endTick() { return endTick; }
+
+    /** The {@link LevelPack#fingerprint} of the levels the game was played on, or 0 for random obstacles. */
+    public long levelsFingerprint() { return levelsFingerprint; }
+
+    /** A new engine in the recorded starting state, for a game played on random obstacles. */
+    public GameEngine newEngine() {
+        return newEngine(null);
+    }
+
+    /**
+     * A new engine in the recorded starting state, on the given levels.
+     * @throws IllegalArgumentException if they are not the levels the game was recorded on
+     */
+    public GameEngine newEngine(LevelPack levels) {
+        long fingerprint = levels == null ? 0 : levels.fingerprint();
+        if (fingerprint != levelsFingerprint) {
+            throw new IllegalArgumentException(levelsFingerprint == 0
+                ? "Replay was recorded with random obstacles, not a level pack"
+                : "Replay was recorded on a different level pack (fingerprint "
+                    + Long.toHexString(levelsFingerprint) + ")");
+        }
+        return new GameEngine(cols, rows, seed, levels);
+    }
+
+    /** Tick of the next event, or {@link Long#MAX_VALUE} when there are none left. */
+    public long peekTick() {
+        decodeNext();
+        return nextTick;
+    }
+
+    /** Consumes the next event and returns its code: a Direction ordinal or {@link ReplayWriter#WRAP}. */
+    public int take() {
+        decodeNext();
+        if (nextTick == Long.MAX_VALUE) throw new IllegalStateException("No more events");
+        tick = nextTick;
+        buf.position(nextPos);
+        nextPos = -1;
+        return nextCode;
+    }
+
+    /** Opaque cursor positions, for checkpoints. */
+    public int position() { return buf.position(); }
+    public long positionTick() { return tick; }
+
+    public void seek(int position, long tick) {
+        buf.position(position);
+        this.tick = tick;
+        nextPos = -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void decodeNext() {
+        if (nextPos >= 0) return;
+        int start = buf.position();
+        long v;
+        try {
+            v = readVarLong();
+        } catch (BufferUnderflowException e) {
+            v = -1; // truncated mid-event
+        }
+        int after = buf.position();
+        buf.position(start); // decoding is a peek; take() commits it
+        nextPos = after;
+        if (v < 0) {
+            nextTick = Long.MAX_VALUE;
+            return;
+        }
+        long t = tick + (v >>> ReplayWriter.CODE_BITS);
+        int code = (int) (v & ((1 << ReplayWriter.CODE_BITS) - 1));
+        if (code == ReplayWriter.END) {
+            endTick = t;
+            nextTick = Long.MAX_VALUE;
+        } else {
+            nextTick = t;
+            nextCode = code;
+        }
+    }
+
+    private long readVarLong() {
+        if (!buf.hasRemaining()) return -1;
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = buf.get();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        return -1; // malformed
+    }
+}
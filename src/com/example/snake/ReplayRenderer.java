@@ -0,0 +1,329 @@
+package com.example.snake;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Renders a recorded or simulated game to a numbered sequence of PNG frames, headless,
+ * each frame drawn exactly as {@link GamePanel} shows that tick.
+ *
+ * <p>Three stages run at once. The calling thread plays the game, moves the camera as the
+ * panel would, and hands a copy of the state every {@code --every} ticks to the render
+ * threads; each draws with a panel of its own into an image taken from a fixed pool. The
+ * encoder threads write the images out as PNGs and put them back in the pool. Frames live
+ * only in the pool, so memory stays at {@code --buffers} images however long the game,
+ * and a slow stage holds back the ones before it instead of letting frames pile up.
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp target/classes com.example.snake.ReplayRenderer --replay game.snkr --out frames
+ * java -Djava.awt.headless=true -cp target/classes com.example.snake.ReplayRenderer --seed 7 --bot autopilot --every 2 --out frames
+ * </pre>
+ */
+public class ReplayRenderer {
+    /** A game to render, advanced one tick at a time on the calling thread. */
+    public interface Source extends Closeable {
+        /** The current state; may be a different object after {@link #advance}. */
+        GameEngine engine();
+
+        /** @return false once the game has ended, leaving the state as it was. */
+        boolean advance();
+    }
+
+    /** Plays back a recording. */
+    public static Source replay(Path file, LevelPack levels) throws IOException {
+        ReplayPlayer player = new ReplayPlayer(file, levels);
+        return new Source() {
+            @Override public GameEngine engine() { return player.engine(); }
+            @Override public boolean advance() { return player.advance(); }
+            @Override public void close() throws IOException { player.close(); }
+        };
+    }
+
+    /** Plays a new seeded game with a bot, as {@link BatchSimulator} does. */
+    public static Source simulate(long seed, Bot bot, long maxTicks) {
+        GameEngine engine = new GameEngine(seed);
+        return new Source() {
+            @Override public GameEngine engine() { return engine; }
+            @Override public boolean advance() {
+                if (engine.isOver() || engine.ticks() >= maxTicks) return false;
+                engine.snake().queueDirection(bot.decide(engine));
+                engine.tick();
+                return true;
+            }
+            @Override public void close() {}
+        };
+    }
+
+    /** A state to draw and where its picture goes. */
+    private static final class Frame {
+        final long index;
+        final GameEngine state;
+        final int camX, camY;
+        BufferedImage image;
+
+        Frame(long index, GameEngine state, int camX, int camY) {
+            this.index = index;
+            this.state = state;
+            this.camX = camX;
+            this.camY = camY;
+        }
+    }
+
+    private static final Frame END = new Frame(-1, null, 0, 0);
+    private static final long POLL_MS = 100;
+
+    private final Path outDir;
+    private final int renderThreads, encoderThreads, buffers;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private int width, height;
+
+    /**
+     * @param outDir         directory the frames are written to, created if missing
+     * @param renderThreads  threads drawing frames
+     * @param encoderThreads threads writing PNGs
+     * @param buffers        frame images in the pool; at least one per thread is needed
+     *                       to keep every thread busy
+     */
+    public ReplayRenderer(Path outDir, int renderThreads, int encoderThreads, int buffers) {
+        if (renderThreads < 1 || encoderThreads < 1 || buffers < 1) {
+            throw new IllegalArgumentException("Threads and buffers must be positive");
+        }
+        this.outDir = outDir;
+        this.renderThreads = renderThreads;
+        this.encoderThreads = encoderThreads;
+        this.buffers = buffers;
+    }
+
+    /** Width of the frames of the last render, in pixels. */
+    public int width() { return width; }
+
+    /** Height of the frames of the last render, in pixels. */
+    public int height() { return height; }
+
+    /** Bytes held by the image pool of the last render: the ceiling on frame memory. */
+    public long poolBytes() { return (long) buffers * width * height * Integer.BYTES; }
+
+    /**
+     * Renders every {@code every}-th tick from {@code from} to {@code to} (inclusive, or
+     * until the game ends) to {@code frame-000000.png} onwards, numbered from 0.
+     * @return the number of frames written.
+     */
+    public long render(Source source, long from, long to, int every) throws IOException {
+        if (every < 1) throw new IllegalArgumentException("every must be positive");
+        Files.createDirectories(outDir);
+        GameEngine e = source.engine();
+        int viewCols = Math.min(e.cols(), GameConfig.VIEW_COLS);
+        int viewRows = Math.min(e.rows(), GameConfig.VIEW_ROWS);
+        width = viewCols * GameConfig.TILE_SIZE;
+        height = viewRows * GameConfig.TILE_SIZE;
+
+        failure.set(null);
+        BlockingQueue<Frame> states = new ArrayBlockingQueue<>(2 * renderThreads);
+        BlockingQueue<Frame> rendered = new ArrayBlockingQueue<>(buffers + encoderThreads);
+        BlockingQueue<BufferedImage> pool = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            pool.add(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+        }
+        int cols = e.cols(), rows = e.rows();
+        List<Thread> renderers = start("render-", renderThreads, () -> draw(states, pool, rendered, cols, rows));
+        List<Thread> encoders = start("encode-", encoderThreads, () -> encode(rendered, pool));
+
+        long frames = 0;
+        try {
+            int camX = GamePanel.centreCamera(e.snake().headX(), viewCols, e.cols());
+            int camY = GamePanel.centreCamera(e.snake().headY(), viewRows, e.rows());
+            while (e.ticks() <= to) {
+                long t = e.ticks();
+                if (t >= from && (t - from) % every == 0) {
+                    put(states, new Frame(frames++, e.copy(), camX, camY));
+                }
+                if (!source.advance()) break;
+                e = source.engine();
+                camX = GamePanel.followCamera(camX, e.snake().headX(), viewCols, e.cols());
+                camY = GamePanel.followCamera(camY, e.snake().headY(), viewRows, e.rows());
+            }
+            finish(states, renderers);
+            finish(rendered, encoders);
+        } catch (InterruptedException | RuntimeException ex) {
+            // a cancellation means another stage failed first and its failure is kept;
+            // otherwise the other stages see this one on their next poll and stop
+            failure.compareAndSet(null, ex);
+        }
+        joinAll(renderers);
+        joinAll(encoders);
+        Throwable t = failure.get();
+        if (t instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Rendering interrupted", t);
+        }
+        if (t instanceof IOException) throw (IOException) t;
+        if (t != null) throw new IOException("Rendering failed: " + t, t);
+        return frames;
+    }
+
+    /** Render thread: draws states into pooled images until the end marker. */
+    private void draw(BlockingQueue<Frame> states, BlockingQueue<BufferedImage> pool,
+                      BlockingQueue<Frame> rendered, int cols, int rows) throws InterruptedException {
+        GamePanel panel = new GamePanel(cols, rows);
+        Frame f;
+        while ((f = take(states)) != END) {
+            f.image = take(pool);
+            Graphics2D g2 = f.image.createGraphics();
+            try {
+                panel.renderOffscreen(g2, f.state, f.camX, f.camY);
+            } finally {
+                g2.dispose();
+            }
+            put(rendered, f);
+        }
+    }
+
+    /** Encoder thread: writes images out and returns them to the pool until the end marker. */
+    private void encode(BlockingQueue<Frame> rendered, BlockingQueue<BufferedImage> pool)
+            throws InterruptedException, IOException {
+        Frame f;
+        while ((f = take(rendered)) != END) {
+            Path file = outDir.resolve(String.format("frame-%06d.png", f.index));
+            if (!ImageIO.write(f.image, "png", file.toFile())) {
+                throw new IOException("No PNG writer available");
+            }
+            put(pool, f.image);
+        }
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private List<Thread> start(String name, int count, Stage stage) {
+        List<Thread> threads = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Thread t = new Thread(() -> {
+                try {
+                    stage.run();
+                } catch (CancellationException e) {
+                    // another stage failed first
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, name + i);
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+        }
+        return threads;
+    }
+
+    /** Sends each of the stage's threads the end marker and waits for them to drain. */
+    private void finish(BlockingQueue<Frame> queue, List<Thread> stage) throws InterruptedException {
+        for (int i = 0; i < stage.size(); i++) {
+            put(queue, END);
+        }
+        for (Thread t : stage) {
+            while (t.isAlive()) {
+                t.join(POLL_MS);
+                checkFailure();
+            }
+        }
+    }
+
+    private static void joinAll(List<Thread> threads) {
+        boolean interrupted = false;
+        for (Thread t : threads) {
+            while (t.isAlive()) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // Hand-offs give up once any stage has failed, so the others stop at their next frame
+    // and no thread waits forever on a stage that is gone
+    private <T> void put(BlockingQueue<T> queue, T item) throws InterruptedException {
+        checkFailure();
+        while (!queue.offer(item, POLL_MS, TimeUnit.MILLISECONDS)) {
+            checkFailure();
+        }
+    }
+
+    private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+        checkFailure();
+        T item;
+        while ((item = queue.poll(POLL_MS, TimeUnit.MILLISECONDS)) == null) {
+            checkFailure();
+        }
+        return item;
+    }
+
+    private void checkFailure() {
+        if (failure.get() != null) throw new CancellationException();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path replay = null, levelPack = null, out = Paths.get("frames");
+        long seed = 1, maxTicks = 100_000, from = 0, to = Long.MAX_VALUE;
+        int every = 1;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = cores, encoders = cores, buffers = -1;
+        String bot = "autopilot";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--replay": replay = Paths.get(args[i + 1]); break;
+                case "--levels": levelPack = Paths.get(args[i + 1]); break;
+                case "--seed": seed = Long.parseLong(args[i + 1]); break;
+                case "--bot": bot = args[i + 1]; break;
+                case "--max-ticks": maxTicks = Long.parseLong(args[i + 1]); break;
+                case "--from": from = Long.parseLong(args[i + 1]); break;
+                case "--to": to = Long.parseLong(args[i + 1]); break;
+                case "--every": every = Integer.parseInt(args[i + 1]); break;
+                case "--out": out = Paths.get(args[i + 1]); break;
+                case "--threads": threads = Integer.parseInt(args[i + 1]); break;
+                case "--encoders": encoders = Integer.parseInt(args[i + 1]); break;
+                case "--buffers": buffers = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (buffers < 0) {
+            buffers = 2 * (threads + encoders);
+        }
+        System.setProperty("java.awt.headless", "true");
+        ImageIO.setUseCache(false); // encode in memory rather than through temp files
+
+        ReplayRenderer renderer = new ReplayRenderer(out, threads, encoders, buffers);
+        try (LevelPack levels = levelPack != null ? new LevelPack(levelPack) : null;
+             Source source = replay != null ? replay(replay, levels) : simulate(seed, botNamed(bot), maxTicks)) {
+            long start = System.nanoTime();
+            long frames = renderer.render(source, from, to, every);
+            double secs = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d frames of %dx%d to %s in %.3f s (%.1f frames/s)%n",
+                frames, renderer.width(), renderer.height(), out, secs, frames / Math.max(secs, 1e-9));
+            System.out.printf("%d render and %d encoder threads, %d buffers (%.1f MB)%n",
+                threads, encoders, buffers, renderer.poolBytes() / 1e6);
+        }
+    }
+
+    private static Bot botNamed(String name) {
+        switch (name) {
+            case "greedy": return new GreedyBot();
+            case "autopilot": return new AutopilotBot();
+            default: throw new IllegalArgumentException("Unknown bot " + name + " (greedy, autopilot)");
+        }
+    }
+}
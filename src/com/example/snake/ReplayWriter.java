@@ -0,0 +1,91 @@
+package com.example.snake;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Records a game as its seed plus the player's inputs, which is all it takes to replay it
+ * exactly (see {@link GameEngine}).
+ *
+ * <p>File layout, big-endian: magic {@code "SNKR"}, version byte, seed (long), cols and
+ * rows (int), the {@link LevelPack#fingerprint} of the levels played or 0 for random
+ * obstacles (long, since version 2), then one varint per event holding {@code (tickDelta << 3) | code}, where
+ * tickDelta counts ticks since the previous event and code is a {@link Direction} ordinal,
+ * {@link #WRAP} or {@link #END}. An input applied when the engine has run {@code t} ticks
+ * is recorded at tick {@code t}. Typical events take one or two bytes, and the stream is
+ * written as it goes, so recording length is bounded by the disk, not the heap.
+ *
+ * <p>Writes are synchronized so the recording can be finished from another thread on exit.
+ */
+public class ReplayWriter implements Closeable {
+    static final int MAGIC = 0x534E4B52; // "SNKR"
+    static final int VERSION = 2;
+    static final int WRAP = 4;
+    static final int END = 7;            // delta to the last tick played, then end of file
+    static final int CODE_BITS = 3;
+
+    private final DataOutputStream out;
+    private long lastTick = 0;
+    private boolean closed = false;
+
+    public ReplayWriter(Path file, GameEngine engine) throws IOException {
+        this(Files.newOutputStream(file), engine);
+    }
+
+    public ReplayWriter(OutputStream os, GameEngine engine) throws IOException {
+        if (engine.ticks() != 0) {
+            throw new IllegalArgumentException("Recording must start before the first tick");
+        }
+        out = new DataOutputStream(new BufferedOutputStream(os, 8192));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(engine.seed());
+        out.writeInt(engine.cols());
+        out.writeInt(engine.rows());
+        out.writeLong(engine.levels() == null ? 0 : engine.levels().fingerprint());
+    }
+
+    public void direction(long tick, Direction d) throws IOException {
+        event(tick, d.ordinal());
+    }
+
+    public void wrapToggle(long tick) throws IOException {
+        event(tick, WRAP);
+    }
+
+    /** Writes the end marker with the last tick played, and closes the file. */
+    public synchronized void finish(long tick) throws IOException {
+        if (closed) return;
+        event(tick, END);
+        close();
+    }
+
+    /** Closes without an end marker; playback then runs until the game ends on its own. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        out.close();
+    }
+
+    private synchronized void event(long tick, int code) throws IOException {
+        if (closed) throw new IOException("Recording is closed");
+        if (tick < lastTick) throw new IllegalArgumentException("Events must be in tick order");
+        writeVarLong(((tick - lastTick) << CODE_BITS) | code);
+        lastTick = tick;
+    }
+
+    // LEB128: seven bits per byte, high bit set on all but the last
+    private void writeVarLong(long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.snake;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+import com.example.snake.SessionStore.Column;
+
+/**
+ * Aggregates over the games in a {@link SessionStore} as of the moment the query was made:
+ * counts, extremes, means, histograms, percentiles and means grouped by another column,
+ * optionally over only the games whose values fall in given ranges.
+ *
+ * <p>Chunks are read straight from the store's memory map and aggregated in parallel (on
+ * the common pool, or the fork/join pool the query is run in). Each fork decodes the
+ * columns a query needs, a chunk at a time, into arrays of its own with one bulk copy per
+ * column, aggregates them in plain loops into a partial result, and the partial results
+ * are merged at the end. The chunk summaries do part of the work: a chunk whose range
+ * misses a filter is never read, one wholly inside the filters is aggregated without
+ * testing its rows, and counts and extremes of such chunks come from the summary alone.
+ * Other chunks are filtered once into a list of matching rows.
+ *
+ * <p>All columns but {@link Column#TIME} can be aggregated; TIME can be filtered on and
+ * its extremes taken. Column values are never negative. A query is immutable and safe to
+ * use from any thread while games are being appended; it never sees the games appended
+ * after it was made.
+ */
+public final class SessionQuery {
+    private static final Column[] COLUMNS = SessionStore.COLUMNS;
+    private static final int CHUNK_ROWS = SessionStore.CHUNK_ROWS;
+    private static final int MAX_BUCKETS = 1 << 20;
+    private static final int PERCENTILE_BUCKETS = 1 << 16; // exact over ranges up to this many values
+    private static final int SKIP = 0, SOME = 1, ALL = 2;   // how much of a chunk the filters take
+
+    /** Aggregates the matching rows of chunk k into a fork's partial result. */
+    private interface ChunkScan {
+        void scan(Partial p, int k, int rows);
+    }
+
+    private final MappedByteBuffer[] chunks;
+    private final long[] summaries; // min, max per column per chunk
+    private final long rows;
+    private final Column[] where;   // filters: where[i] in [whereMin[i], whereMax[i]]
+    private final long[] whereMin, whereMax;
+
+    SessionQuery(MappedByteBuffer[] chunks, long[] summaries, long rows) {
+        this(chunks, summaries, rows, new Column[0], new long[0], new long[0]);
+    }
+
+    private SessionQuery(MappedByteBuffer[] chunks, long[] summaries, long rows,
+                         Column[] where, long[] whereMin, long[] whereMax) {
+        this.chunks = chunks;
+        this.summaries = summaries;
+        this.rows = rows;
+        this.where = where;
+        this.whereMin = whereMin;
+        this.whereMax = whereMax;
+    }
+
+    /** The same query over only the games with {@code column} between min and max inclusive. */
+    public SessionQuery where(Column column, long min, long max) {
+        int n = where.length;
+        Column[] w = Arrays.copyOf(where, n + 1);
+        long[] lo = Arrays.copyOf(whereMin, n + 1), hi = Arrays.copyOf(whereMax, n + 1);
+        w[n] = column;
+        lo[n] = min;
+        hi[n] = max;
+        return new SessionQuery(chunks, summaries, rows, w, lo, hi);
+    }
+
+    /** The same query over only the games that ended at or after the given epoch millis. */
+    public SessionQuery since(long time) {
+        return where(Column.TIME, time, Long.MAX_VALUE);
+    }
+
+    /** Games that match. */
+    public long count() {
+        return scan(1, (p, k, rows) -> p.acc[0] += p.all ? rows : p.selected)[0];
+    }
+
+    /** Largest value of the column over the games that match, or 0 if none do. */
+    public long max(Column column) {
+        return extreme(column, true);
+    }
+
+    /** Smallest value of the column over the games that match, or 0 if none do. */
+    public long min(Column column) {
+        return extreme(column, false);
+    }
+
+    /** Mean of the column over the games that match, NaN if none do. */
+    public double mean(Column column) {
+        aggregated(column);
+        long[] sum = scan(2, (p, k, rows) -> {
+            int[] v = p.decode(k, column, 0);
+            long s = 0;
+            if (p.all) {
+                for (int r = 0; r < rows; r++) s += v[r];
+                p.acc[1] += rows;
+            } else {
+                int[] sel = p.rows;
+                for (int i = 0; i < p.selected; i++) s += v[sel[i]];
+                p.acc[1] += p.selected;
+            }
+            p.acc[0] += s;
+        });
+        return sum[1] == 0 ? Double.NaN : (double) sum[0] / sum[1];
+    }
+
+    /**
+     * Games that match by value of the column, in buckets of the given width: bucket i
+     * counts values from i * width to (i + 1) * width - 1. Runs up to the largest value.
+     */
+    public long[] histogram(Column column, long width) {
+        aggregated(column);
+        if (width <= 0) throw new IllegalArgumentException("Bucket width must be positive");
+        long[] range = range(column);
+        if (range == null) return new long[0];
+        long buckets = range[1] / width + 1;
+        if (buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException(buckets + " buckets of " + width + " for " + column
+                + ", at most " + MAX_BUCKETS);
+        }
+        return trim(bucket(column, 0, width, (int) buckets));
+    }
+
+    /**
+     * Values of the column at or below which the given percentages (0-100) of the matching
+     * games fall, by nearest rank. Exact while the column spans at most 65536 values; beyond
+     * that, within 1/65536 of its range. All 0 if no games match.
+     */
+    public long[] percentiles(Column column, double... percents) {
+        aggregated(column);
+        long[] out = new long[percents.length];
+        long[] range = range(column);
+        if (range == null) return out;
+        long width = (range[1] - range[0]) / PERCENTILE_BUCKETS + 1;
+        long[] counts = bucket(column, range[0], width, (int) ((range[1] - range[0]) / width + 1));
+        long total = 0;
+        for (long c : counts) total += c;
+        if (total == 0) return out;
+        for (int p = 0; p < percents.length; p++) {
+            long rank = Math.max(1, (long) Math.ceil(percents[p] / 100 * total));
+            long seen = 0;
+            int b = 0;
+            while (b < counts.length - 1 && (seen += counts[b]) < rank) b++;
+            out[p] = range[0] + b * width;
+        }
+        return out;
+    }
+
+    /** Games that match by value of the column: element v counts the games with value v. */
+    public long[] counts(Column by) {
+        aggregated(by);
+        long[] range = range(by);
+        if (range == null) return new long[0];
+        return trim(bucket(by, 0, 1, buckets(by, range)));
+    }
+
+    /**
+     * Mean of one column grouped by another: element v is the mean of {@code of} over the
+     * matching games whose {@code by} is v, NaN where there are none. For example the mean
+     * score by level reached.
+     */
+    public double[] means(Column by, Column of) {
+        aggregated(by);
+        aggregated(of);
+        long[] range = range(by);
+        if (range == null) return new double[0];
+        int n = buckets(by, range);
+        long[] sums = scan(2 * n, (p, k, rows) -> {
+            int[] keys = p.decode(k, by, 0), v = p.decode(k, of, 1);
+            long[] acc = p.acc;
+            if (p.all) {
+                for (int r = 0; r < rows; r++) {
+                    acc[2 * keys[r]] += v[r];
+                    acc[2 * keys[r] + 1]++;
+                }
+            } else {
+                int[] sel = p.rows;
+                for (int i = 0; i < p.selected; i++) {
+                    int r = sel[i];
+                    acc[2 * keys[r]] += v[r];
+                    acc[2 * keys[r] + 1]++;
+                }
+            }
+        });
+        double[] means = new double[n];
+        int last = 0;
+        for (int v = 0; v < n; v++) {
+            means[v] = sums[2 * v + 1] == 0 ? Double.NaN : (double) sums[2 * v] / sums[2 * v + 1];
+            if (sums[2 * v + 1] > 0) last = v;
+        }
+        return Arrays.copyOf(means, last + 1);
+    }
+
+    // ---- scanning ----
+
+    /** What one fork of a scan works with: its partial result and room to decode chunks into. */
+    private final class Partial {
+        final long[] acc;
+        boolean all;      // every row of the current chunk matches
+        int[] rows;       // otherwise the ones that do,
+        int selected;     // this many
+        private final int[][] columns = new int[2][];
+        private long[] times;
+
+        Partial(int size) { acc = new long[size]; }
+
+        /** Chunk k's values of an int column, decoded into slot 0 or 1. */
+        int[] decode(int k, Column column, int slot) {
+            if (columns[slot] == null) columns[slot] = new int[CHUNK_ROWS];
+            at(k, column).asIntBuffer().get(columns[slot], 0, rowsIn(k));
+            return columns[slot];
+        }
+
+        /** Sets all, or rows and selected, for chunk k. */
+        void select(int k, int how) {
+            all = how == ALL;
+            if (all) return;
+            int n = rowsIn(k);
+            if (rows == null) rows = new int[CHUNK_ROWS];
+            for (int r = 0; r < n; r++) rows[r] = r;
+            selected = n;
+            for (int i = 0; i < where.length && selected > 0; i++) {
+                long lo = whereMin[i], hi = whereMax[i];
+                int kept = 0;
+                if (where[i].bytes == 8) {
+                    if (times == null) times = new long[CHUNK_ROWS];
+                    at(k, where[i]).asLongBuffer().get(times, 0, n);
+                    for (int j = 0; j < selected; j++) {
+                        int r = rows[j];
+                        if (times[r] >= lo && times[r] <= hi) rows[kept++] = r;
+                    }
+                } else {
+                    int[] v = decode(k, where[i], 0);
+                    for (int j = 0; j < selected; j++) {
+                        int r = rows[j];
+                        if (v[r] >= lo && v[r] <= hi) rows[kept++] = r;
+                    }
+                }
+                selected = kept;
+            }
+        }
+    }
+
+    /** Scans every chunk the filters do not rule out, in parallel, and sums the partial results. */
+    private long[] scan(int size, ChunkScan scan) {
+        return scan(size, scan, SessionQuery::add);
+    }
+
+    private long[] scan(int size, ChunkScan scan, BiConsumer<long[], long[]> merge) {
+        return IntStream.range(0, chunks.length).parallel().collect(() -> new Partial(size), (p, k) -> {
+            int how = filter(k);
+            if (how == SKIP) return;
+            p.select(k, how);
+            if (p.all || p.selected > 0) scan.scan(p, k, rowsIn(k));
+        }, (a, b) -> merge.accept(a.acc, b.acc)).acc;
+    }
+
+    /** Counts values of the column from lo, in buckets of width. */
+    private long[] bucket(Column column, long lo, long width, int buckets) {
+        int base = (int) lo, w = (int) Math.min(width, Integer.MAX_VALUE);
+        return scan(buckets, (p, k, rows) -> {
+            int[] v = p.decode(k, column, 0);
+            long[] acc = p.acc;
+            if (p.all && w == 1) {
+                for (int r = 0; r < rows; r++) acc[v[r] - base]++;
+            } else if (p.all) {
+                for (int r = 0; r < rows; r++) acc[(v[r] - base) / w]++;
+            } else {
+                int[] sel = p.rows;
+                for (int i = 0; i < p.selected; i++) acc[(v[sel[i]] - base) / w]++;
+            }
+        });
+    }
+
+    /** From the summaries of chunks the filters take whole, else from the matching rows. */
+    private long extreme(Column column, boolean max) {
+        // partial results are {best, found}
+        long[] best = scan(2, (p, k, rows) -> {
+            long b;
+            if (p.all) {
+                b = summaries[(k * COLUMNS.length + column.ordinal()) * 2 + (max ? 1 : 0)];
+            } else {
+                ByteBuffer values = at(k, column);
+                b = max ? Long.MIN_VALUE : Long.MAX_VALUE;
+                for (int i = 0; i < p.selected; i++) {
+                    int r = p.rows[i];
+                    long v = column.bytes == 8 ? values.getLong(values.position() + 8 * r)
+                        : values.getInt(values.position() + 4 * r);
+                    b = max ? Math.max(b, v) : Math.min(b, v);
+                }
+            }
+            keep(p.acc, b, 1, max);
+        }, (a, b) -> keep(a, b[0], b[1], max));
+        return best[1] != 0 ? best[0] : 0;
+    }
+
+    private static void keep(long[] best, long v, long found, boolean max) {
+        if (found == 0) return;
+        if (best[1] == 0 || (max ? v > best[0] : v < best[0])) best[0] = v;
+        best[1] = 1;
+    }
+
+    private static void aggregated(Column column) {
+        if (column.bytes != 4) {
+            throw new IllegalArgumentException(column + " can only be filtered on and its extremes taken");
+        }
+    }
+
+    // Bounds on the column over the chunks the filters do not rule out, from their summaries
+    // alone: null if there are none
+    private long[] range(Column column) {
+        long lo = Long.MAX_VALUE, hi = Long.MIN_VALUE;
+        for (int k = 0; k < chunks.length; k++) {
+            if (filter(k) == SKIP) continue;
+            int s = (k * COLUMNS.length + column.ordinal()) * 2;
+            lo = Math.min(lo, summaries[s]);
+            hi = Math.max(hi, summaries[s + 1]);
+        }
+        if (lo > hi) return null;
+        if (lo < 0) throw new IllegalStateException(column + " holds negative values");
+        return new long[] {lo, hi};
+    }
+
+    private static int buckets(Column by, long[] range) {
+        if (range[1] >= MAX_BUCKETS) {
+            throw new IllegalArgumentException(by + " runs to " + range[1] + ", too far to group by");
+        }
+        return (int) range[1] + 1;
+    }
+
+    /** Where chunk k's values of the column start, as a buffer positioned there. */
+    private ByteBuffer at(int k, Column column) {
+        return chunks[k].duplicate().position(SessionStore.offset(column));
+    }
+
+    private int rowsIn(int k) {
+        return (int) Math.min(CHUNK_ROWS, rows - (long) k * CHUNK_ROWS);
+    }
+
+    private int filter(int k) {
+        if (rowsIn(k) <= 0) return SKIP;
+        int how = ALL;
+        for (int i = 0; i < where.length; i++) {
+            int s = (k * COLUMNS.length + where[i].ordinal()) * 2;
+            long lo = summaries[s], hi = summaries[s + 1];
+            if (hi < whereMin[i] || lo > whereMax[i]) return SKIP;
+            if (lo < whereMin[i] || hi > whereMax[i]) how = SOME;
+        }
+        return how;
+    }
+
+    private static void add(long[] into, long[] other) {
+        for (int i = 0; i < into.length; i++) into[i] += other[i];
+    }
+
+    private static long[] trim(long[] counts) {
+        int n = counts.length;
+        while (n > 0 && counts[n - 1] == 0) n--;
+        return n == counts.length ? counts : Arrays.copyOf(counts, n);
+    }
+}
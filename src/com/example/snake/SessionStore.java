@@ -0,0 +1,350 @@
+package com.example.snake;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The history of every finished game, one row per game, kept as an append-only columnar
+ * file for {@link SessionQuery} to aggregate.
+ *
+ * <p>Rows are stored in chunks of {@value #CHUNK_ROWS}. A chunk has room for that many
+ * values of each column, one primitive array per column, so a query reads only the columns
+ * it uses. With the values each chunk keeps a summary: its row count and the min and max
+ * of every column, which lets a query skip whole chunks or take their answer from the
+ * summary alone. Chunks are allocated full size when started and then filled in place, so
+ * earlier rows are never moved or rewritten.
+ *
+ * <p>Appended rows are staged in memory and written on {@link #flush}: values first, then,
+ * once they are on disk, a new summary. The summary has two slots, written in turn, each
+ * with its own checksum, so a crash in the middle of a write leaves the previous summary
+ * intact and the rows it did not count are ignored. Queries see rows once flushed.
+ *
+ * <p>File layout, big-endian: magic {@code "SNKH"}, version, rows per chunk and column
+ * count (int), padded to {@value #HEADER_BYTES} bytes, then the chunks. A chunk is two
+ * {@value #SLOT_BYTES}-byte summary slots, each the row count (int), the min and max of
+ * every column in {@link Column} order (long) and a CRC32 of those (int), followed by
+ * {@value #CHUNK_ROWS} values of each column in turn.
+ *
+ * <p>As a {@link GameEventBus} subscriber the store appends a row for every
+ * {@link GameEvent.Type#GAME_OVER} and flushes at the end of each batch.
+ */
+public class SessionStore implements GameEventBus.Subscriber, AutoCloseable {
+    /** What is recorded of each game. */
+    public enum Column {
+        TIME(8),        // epoch millis when the game ended
+        SCORE(4),
+        LEVEL(4),       // reached
+        MAX_LENGTH(4),
+        TICKS(4),       // survived
+        POWER_UPS(4),   // collected
+        WRAP_TICKS(4),  // moved with wrap-around on
+        OUTCOME(4);     // GameEngine.Outcome ordinal
+
+        final int bytes;
+
+        Column(int bytes) { this.bytes = bytes; }
+    }
+
+    static final Column[] COLUMNS = Column.values();
+    static final int CHUNK_ROWS = 8192;
+    static final int HEADER_BYTES = 64;
+    static final int SLOT_BYTES = 256;
+    private static final int[] OFFSETS = new int[COLUMNS.length]; // of each column within a chunk
+    static final long CHUNK_BYTES;
+    static {
+        int at = 2 * SLOT_BYTES;
+        for (Column c : COLUMNS) {
+            OFFSETS[c.ordinal()] = at;
+            at += CHUNK_ROWS * c.bytes;
+        }
+        CHUNK_BYTES = at;
+    }
+
+    private static final int MAGIC = 0x534E4B48; // "SNKH"
+    private static final int VERSION = 1;
+    private static final int SUMMARY_BYTES = 4 + 16 * COLUMNS.length; // before the checksum
+    private static final int STAGED_ROWS = 4096;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer[] maps = new MappedByteBuffer[16]; // read-only, one per chunk
+    private long[] summaries = new long[16 * 2 * COLUMNS.length]; // min, max per column per chunk
+    private int chunks = 0;
+    private long rows = 0;        // flushed
+    private int slot = 1;         // summary slot of the last chunk written last
+
+    // Rows appended since the last flush, by column
+    private final long[][] staged = new long[COLUMNS.length][STAGED_ROWS];
+    private int stagedRows = 0;
+    private final ByteBuffer io = ByteBuffer.allocate(STAGED_ROWS * 8);
+    private boolean closed = false;
+
+    public SessionStore() throws IOException {
+        this(Paths.get(GameConfig.SESSIONS_FILE));
+    }
+
+    /** Opens the history in the file, creating it if there is none. */
+    public SessionStore(Path file) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                writeHeader();
+            } else {
+                load();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Games recorded and flushed. */
+    public synchronized long size() { return rows; }
+
+    /** Aggregates over the games flushed so far. */
+    public synchronized SessionQuery query() {
+        return new SessionQuery(Arrays.copyOf(maps, chunks),
+            Arrays.copyOf(summaries, chunks * 2 * COLUMNS.length), rows);
+    }
+
+    /** Stages a finished game; it is written on the next {@link #flush}. */
+    public synchronized void append(long time, int score, int level, int maxLength, long ticks,
+                                    int powerUps, long wrapTicks, GameEngine.Outcome outcome) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("SessionStore has been closed");
+        }
+        if (stagedRows == STAGED_ROWS) flush();
+        int r = stagedRows++;
+        staged[Column.TIME.ordinal()][r] = time;
+        staged[Column.SCORE.ordinal()][r] = score;
+        staged[Column.LEVEL.ordinal()][r] = level;
+        staged[Column.MAX_LENGTH.ordinal()][r] = maxLength;
+        staged[Column.TICKS.ordinal()][r] = Math.min(Integer.MAX_VALUE, ticks);
+        staged[Column.POWER_UPS.ordinal()][r] = powerUps;
+        staged[Column.WRAP_TICKS.ordinal()][r] = Math.min(Integer.MAX_VALUE, wrapTicks);
+        staged[Column.OUTCOME.ordinal()][r] = outcome.ordinal();
+    }
+
+    /** The game a {@link GameEvent.Type#GAME_OVER} event reports. */
+    public void append(GameEvent e) throws IOException {
+        append(e.time(), e.score(), e.level(), e.maxLength(), e.tick(), e.powerUps(), e.wrapTicks(), e.outcome());
+    }
+
+    /** Writes the staged games and forces them to disk. If that fails, the games not written stay staged. */
+    public synchronized void flush() throws IOException {
+        int done = 0;
+        try {
+            while (done < stagedRows) {
+                int inChunk = (int) (rows % CHUNK_ROWS);
+                if (inChunk == 0 && rows / CHUNK_ROWS == chunks) {
+                    startChunk();
+                }
+                int k = (int) (rows / CHUNK_ROWS);
+                int n = Math.min(stagedRows - done, CHUNK_ROWS - inChunk);
+                long base = chunkAt(k);
+                for (Column c : COLUMNS) {
+                    long[] values = staged[c.ordinal()];
+                    io.clear();
+                    for (int r = done; r < done + n; r++) {
+                        if (c.bytes == 8) io.putLong(values[r]); else io.putInt((int) values[r]);
+                        summarize(k, c, values[r]);
+                    }
+                    io.flip();
+                    write(io, base + offset(c) + (long) inChunk * c.bytes);
+                }
+                channel.force(false); // values before the summary that counts them
+                int next = 1 - slot;  // never overwrite the last good summary
+                writeSummary(k, inChunk + n, base + (long) next * SLOT_BYTES);
+                channel.force(false);
+                slot = next;
+                rows += n;
+                done += n;
+            }
+        } finally {
+            for (long[] column : staged) {
+                System.arraycopy(column, done, column, 0, stagedRows - done);
+            }
+            stagedRows -= done;
+        }
+    }
+
+    @Override
+    public void onEvent(GameEvent e) {
+        if (e.type() != GameEvent.Type.GAME_OVER) return;
+        try {
+            append(e);
+        } catch (IOException ex) {
+            System.err.println("Failed to save session history: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public void endOfBatch() {
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println("Failed to save session history: " + e.getMessage());
+        }
+    }
+
+    /** Flushes staged games and closes the file. Queries made before stay usable. */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println("Failed to save session history: " + e.getMessage());
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing session history: " + e.getMessage());
+        }
+    }
+
+    private static long chunkAt(int k) {
+        return HEADER_BYTES + k * CHUNK_BYTES;
+    }
+
+    /** Allocates the next chunk at full size and maps it. */
+    private void startChunk() throws IOException {
+        int k = chunks;
+        long base = chunkAt(k);
+        write(ByteBuffer.allocate(1), base + CHUNK_BYTES - 1); // the rest stays a hole until written
+        addChunk(base);
+        slot = 1; // both slots are empty; the first summary goes to slot 0
+    }
+
+    private void addChunk(long base) throws IOException {
+        if (chunks == maps.length) {
+            maps = Arrays.copyOf(maps, 2 * chunks);
+            summaries = Arrays.copyOf(summaries, 2 * summaries.length);
+        }
+        maps[chunks] = channel.map(FileChannel.MapMode.READ_ONLY, base, CHUNK_BYTES);
+        int s = chunks * 2 * COLUMNS.length;
+        for (int c = 0; c < COLUMNS.length; c++) {
+            summaries[s + 2 * c] = Long.MAX_VALUE;
+            summaries[s + 2 * c + 1] = Long.MIN_VALUE;
+        }
+        chunks++;
+    }
+
+    private void summarize(int k, Column c, long value) {
+        int s = (k * COLUMNS.length + c.ordinal()) * 2;
+        if (value < summaries[s]) summaries[s] = value;
+        if (value > summaries[s + 1]) summaries[s + 1] = value;
+    }
+
+    private void writeSummary(int k, int count, long position) throws IOException {
+        io.clear();
+        io.putInt(count);
+        int s = k * 2 * COLUMNS.length;
+        for (int i = 0; i < 2 * COLUMNS.length; i++) {
+            io.putLong(summaries[s + i]);
+        }
+        io.putInt(checksum(io, 0));
+        io.flip();
+        write(io, position);
+    }
+
+    private int checksum(ByteBuffer buf, int start) {
+        crc.reset();
+        ByteBuffer fields = buf.duplicate();
+        fields.position(start).limit(start + SUMMARY_BYTES);
+        crc.update(fields);
+        return (int) crc.getValue();
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(CHUNK_ROWS).putInt(COLUMNS.length).clear();
+        channel.truncate(0);
+        write(header, 0);
+        channel.force(false);
+    }
+
+    /**
+     * Reads every chunk's summary. The first chunk that is not full ends the history: any
+     * chunk after it can only be left from a failed write, and is cut off.
+     */
+    private void load() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        read(header, 0);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a session history: " + file);
+        }
+        if (header.getInt(4) != VERSION || header.getInt(8) != CHUNK_ROWS || header.getInt(12) != COLUMNS.length) {
+            throw new IOException("Unsupported session history version " + header.getInt(4) + ": " + file);
+        }
+        long complete = (channel.size() - HEADER_BYTES) / CHUNK_BYTES;
+        ByteBuffer slots = ByteBuffer.allocate(2 * SLOT_BYTES);
+        int last = -1;
+        for (int k = 0; k < complete; k++) {
+            slots.clear();
+            read(slots, chunkAt(k));
+            int count = -1;
+            for (int i = 0; i < 2; i++) {
+                int at = i * SLOT_BYTES;
+                int n = slots.getInt(at);
+                if (slots.getInt(at + SUMMARY_BYTES) == checksum(slots, at) && n > count && n <= CHUNK_ROWS) {
+                    count = n;
+                    slot = i;
+                }
+            }
+            addChunk(chunkAt(k));
+            if (count < 0) {
+                count = 0; // no summary was ever completed
+                slot = 1;
+            } else {
+                int s = k * 2 * COLUMNS.length, at = slot * SLOT_BYTES + 4;
+                for (int i = 0; i < 2 * COLUMNS.length; i++) {
+                    summaries[s + i] = slots.getLong(at + 8 * i);
+                }
+            }
+            rows += count;
+            if (count < CHUNK_ROWS) {
+                last = k;
+                break;
+            }
+        }
+        long end = last >= 0 ? chunkAt(last + 1) : chunkAt((int) complete);
+        if (channel.size() > end) {
+            System.err.println("Session history: dropping " + (channel.size() - end)
+                + " bytes after the last complete chunk");
+            channel.truncate(end);
+        }
+    }
+
+    private void read(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+        }
+    }
+
+    private void write(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf, position + buf.position());
+        }
+    }
+
+    /** Where a column's values start within a chunk. */
+    static int offset(Column c) {
+        return OFFSETS[c.ordinal()];
+    }
+}
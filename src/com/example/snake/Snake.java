@@ -1,123 +1,191 @@
 package com.example.snake;
 
 import java.awt.Point;
-import java.util.*;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * The snake's body and pending turns. Not thread-safe: it belongs to the thread that
+ * runs the game, and input from elsewhere reaches it through that thread (see
+ * {@link InputRing}).
+ */
 public class Snake {
-    // Use thread-safe collections for concurrent access
-    private final Deque<Point> body = new ConcurrentLinkedDeque<>();
+    private static final int MAX_QUEUED_TURNS = 3; // more would only add input lag
+
+    // Body segments as packed cells (see Cell) in a power-of-two ring buffer.
+    // Segment 0 is the head; moving writes one slot and drops the tail, so a
+    // steady-state tick allocates nothing.
+    private int[] body = new int[16];
+    private int headIdx = 0;
+    private int length = 0;
     private Direction curDir = Direction.RIGHT;
-    private final Queue<Direction> dirQueue = new ConcurrentLinkedQueue<>();
-    private volatile boolean wrap = false;
-    private final Object directionLock = new Object(); // For thread-safe direction changes
+    private final Direction[] turns = new Direction[MAX_QUEUED_TURNS]; // applied one per update
+    private int turnCount = 0;
+    private boolean wrap = false;
+    private final OccupancyGrid grid;
 
     public Snake(int startX, int startY) {
-        body.clear();
-        body.addFirst(new Point(startX, startY));
+        this(startX, startY, new OccupancyGrid(GameConfig.COLS, GameConfig.ROWS));
+    }
+
+    public Snake(int startX, int startY, OccupancyGrid grid) {
+        this.grid = grid;
+        addLast(startX, startY);
         // initialize a small body
-        body.addLast(new Point(startX-1, startY));
-        body.addLast(new Point(startX-2, startY));
+        addLast(startX-1, startY);
+        addLast(startX-2, startY);
+    }
+
+    /** Copy of another snake that marks the given grid, which must be a copy of the other's. */
+    Snake(Snake other, OccupancyGrid grid) {
+        this.grid = grid;
+        this.body = other.body.clone();
+        this.headIdx = other.headIdx;
+        this.length = other.length;
+        this.curDir = other.curDir;
+        this.wrap = other.wrap;
+        System.arraycopy(other.turns, 0, turns, 0, MAX_QUEUED_TURNS);
+        this.turnCount = other.turnCount;
+    }
+
+    private void addLast(int x, int y) {
+        if (length == body.length) {
+            growCapacity();
+        }
+        body[(headIdx + length) & (body.length - 1)] = Cell.pack(x, y);
+        length++;
+        grid.addSnake(x, y);
     }
 
+    private void removeLast() {
+        int tail = body[(headIdx + length - 1) & (body.length - 1)];
+        length--;
+        grid.removeSnake(Cell.x(tail), Cell.y(tail));
+    }
+
+    private void growCapacity() {
+        // Unroll the ring so the head lands at index 0 again
+        int[] bigger = new int[body.length * 2];
+        for (int i = 0; i < length; i++) {
+            bigger[i] = body[(headIdx + i) & (body.length - 1)];
+        }
+        body = bigger;
+        headIdx = 0;
+    }
+
+    /**
+     * Queues a turn for a later update. A turn is checked against the direction the snake
+     * will have by then, i.e. the last one queued, so quick taps cannot add up to a
+     * reversal. When the queue is full the newest turn replaces the last one.
+     */
     public void queueDirection(Direction d) {
         if (d == null) return;
-        
-        synchronized (directionLock) {
-            // Get the last direction in queue, or current direction if queue is empty
-            Direction lastDirection = dirQueue.isEmpty() ? curDir : 
-                ((ConcurrentLinkedQueue<Direction>)dirQueue).peek();
-                
-            // Only queue if not opposite of current direction and not same as last direction
-            if (!d.isOpposite(lastDirection) && d != lastDirection) {
-                // Limit queue size to prevent input lag
-                if (dirQueue.size() < 3) {
-                    dirQueue.offer(d);
-                } else {
-                    // If queue is full, replace the last direction
-                    dirQueue.poll();
-                    dirQueue.offer(d);
-                }
+        if (turnCount < MAX_QUEUED_TURNS) {
+            Direction last = turnCount == 0 ? curDir : turns[turnCount - 1];
+            if (d != last && !d.isOpposite(last)) {
+                turns[turnCount++] = d;
+            }
+        } else {
+            Direction before = turns[turnCount - 2];
+            if (d != before && !d.isOpposite(before)) {
+                turns[turnCount - 1] = d;
             }
         }
     }
 
     public void update() {
-        synchronized (directionLock) {
-            // Process direction changes
-            Direction nextDir = dirQueue.poll();
-            if (nextDir != null) {
-                curDir = nextDir;
-            }
-            
-            // Calculate new head position
-            Point head = head();
-            if (head == null) return; // Shouldn't happen, but safe check
-            
-            Point next = new Point(head.x + curDir.dx, head.y + curDir.dy);
-            
-            // Update body
-            body.addFirst(next);
-            body.removeLast();
+        // Process direction changes
+        if (turnCount > 0) {
+            curDir = turns[0];
+            turnCount--;
+            System.arraycopy(turns, 1, turns, 0, turnCount);
+        }
+
+        // Calculate new head position
+        int nx = headX() + curDir.dx;
+        int ny = headY() + curDir.dy;
+        if (wrap) {
+            // wrap here so the grid never sees an off-board head
+            nx = Math.floorMod(nx, grid.cols());
+            ny = Math.floorMod(ny, grid.rows());
         }
+
+        // Update body: the new head takes the slot before the old head, which
+        // is the tail slot when the ring is full, so read the tail first. The
+        // head is marked before the tail is freed, so moving into the cell the
+        // tail just left is not counted as a collision.
+        int mask = body.length - 1;
+        int tail = body[(headIdx + length - 1) & mask];
+        headIdx = (headIdx - 1) & mask;
+        body[headIdx] = Cell.pack(nx, ny);
+        grid.addSnake(nx, ny);
+        grid.removeSnake(Cell.x(tail), Cell.y(tail));
     }
 
     public void grow(int n) {
         for (int i = 0; i < n; i++) {
             // add a duplicate of the tail
-            Point tail = body.peekLast();
-            body.addLast(new Point(tail.x, tail.y));
+            int tail = segment(length - 1);
+            addLast(Cell.x(tail), Cell.y(tail));
+        }
+    }
+
+    /** Takes every segment off the grid, e.g. when the snake dies on a shared board. */
+    void removeFromGrid() {
+        while (length > 0) {
+            removeLast();
         }
     }
 
     public void shrink(int n) {
-        for (int i = 0; i < n && body.size() > 1; i++) {
-            body.removeLast();
+        for (int i = 0; i < n && length > 1; i++) {
+            removeLast();
         }
     }
 
     public boolean occupies(Point p) {
         if (p == null) return false;
-        return body.parallelStream().anyMatch(b -> p.equals(b));
+        return grid.hasSnake(p.x, p.y);
     }
 
-    public Point head() { return body.peekFirst(); }
-    public List<Point> getBody() { return new ArrayList<>(body); }
+    public boolean occupies(int x, int y) {
+        return grid.hasSnake(x, y);
+    }
+
+    // Read-only indexed view of the body, segment 0 being the head
+    public int length() { return length; }
+    public int segment(int i) {
+        if (i < 0 || i >= length) throw new IndexOutOfBoundsException("Segment " + i + " of " + length);
+        return body[(headIdx + i) & (body.length - 1)];
+    }
+    public int segmentX(int i) { return Cell.x(segment(i)); }
+    public int segmentY(int i) { return Cell.y(segment(i)); }
+
+    public int headX() { return Cell.x(body[headIdx]); }
+    public int headY() { return Cell.y(body[headIdx]); }
+    public boolean headAt(Point p) { return p != null && p.x == headX() && p.y == headY(); }
 
     public boolean selfCollision() {
-        Point h = head();
-        if (h == null) return false;
-        
-        // Skip the head (first element) when checking for collision
-        return body.stream()
-                  .skip(1)  // Skip the head
-                  .anyMatch(segment -> h.equals(segment));
-    }
-
-    public void toggleWrap() { 
-        // Add a small delay to prevent accidental double-triggering
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        wrap = !wrap; 
+        // The head is one of the segments on its cell; any other means a collision
+        return grid.snakeCount(headX(), headY()) > 1;
     }
 
+    public void toggleWrap() { wrap = !wrap; }
+
+    public void setWrap(boolean on) { wrap = on; }
     public boolean isWrap() { return wrap; }
+    public Direction direction() { return curDir; }
 
     public boolean outOfBounds() {
-        Point h = head();
-        return h.x < 0 || h.x >= GameConfig.COLS || h.y < 0 || h.y >= GameConfig.ROWS;
+        return !grid.inBounds(headX(), headY());
     }
 
     public void wrapPosition(int cols, int rows) {
-        Point h = head();
-        if (h == null) return;
+        int hx = headX(), hy = headY();
         
         // Use Math.floorMod for correct wrapping with negative numbers
-        h.x = Math.floorMod(h.x, cols);
-        h.y = Math.floorMod(h.y, rows);
+        grid.removeSnake(hx, hy);
+        hx = Math.floorMod(hx, cols);
+        hy = Math.floorMod(hy, rows);
+        body[headIdx] = Cell.pack(hx, hy);
+        grid.addSnake(hx, hy);
     }
 }
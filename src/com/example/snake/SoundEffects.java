@@ -0,0 +1,82 @@
+package com.example.snake;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Short synthesized tones for game events, as a {@link GameEventBus} subscriber: writing
+ * to the audio line blocks while its buffer is full, which is harmless on the
+ * subscriber's own thread. Tones are generated once; playing one copies bytes to the
+ * line and nothing else.
+ */
+public final class SoundEffects implements GameEventBus.Subscriber, AutoCloseable {
+    private static final float RATE = 22_050;
+    private static final int FADE = (int) (RATE / 200); // 5 ms in and out, so tones do not click
+
+    private final SourceDataLine line;
+    private final byte[][] tones = new byte[GameEvent.TYPES.length][];
+    private final byte[] specialFood;
+    private volatile boolean muted = false;
+
+    private SoundEffects(SourceDataLine line) {
+        this.line = line;
+        tones[GameEvent.Type.FOOD_EATEN.ordinal()] = tone(880, 880, 60);
+        specialFood = concat(tone(880, 880, 50), tone(1320, 1320, 70));
+        tones[GameEvent.Type.POWER_UP.ordinal()] = tone(440, 1320, 150);
+        tones[GameEvent.Type.LEVEL_UP.ordinal()] = concat(tone(660, 660, 90), tone(990, 990, 140));
+        tones[GameEvent.Type.COLLISION.ordinal()] = tone(180, 90, 250);
+        tones[GameEvent.Type.GAME_OVER.ordinal()] = concat(tone(392, 392, 150), tone(262, 262, 300));
+    }
+
+    /** Opens the default audio output; null if there is none. */
+    public static SoundEffects open() {
+        AudioFormat format = new AudioFormat(RATE, 8, 1, true, false);
+        try {
+            SourceDataLine line = AudioSystem.getSourceDataLine(format);
+            line.open(format, (int) RATE / 2);
+            line.start();
+            return new SoundEffects(line);
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            System.err.println("Sound disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public boolean isMuted() { return muted; }
+    public void setMuted(boolean on) { muted = on; }
+
+    @Override
+    public void onEvent(GameEvent e) {
+        if (muted) return;
+        byte[] t = e.type() == GameEvent.Type.FOOD_EATEN && e.special() ? specialFood : tones[e.type().ordinal()];
+        line.write(t, 0, t.length);
+    }
+
+    @Override
+    public void close() {
+        line.close();
+    }
+
+    /** A sine sweep from one frequency to another, signed 8-bit mono. */
+    private static byte[] tone(double fromHz, double toHz, int millis) {
+        int n = (int) (RATE * millis / 1000);
+        byte[] out = new byte[n];
+        double phase = 0;
+        for (int i = 0; i < n; i++) {
+            double hz = fromHz + (toHz - fromHz) * i / n;
+            phase += 2 * Math.PI * hz / RATE;
+            double envelope = Math.min(1, Math.min(i, n - 1 - i) / (double) FADE);
+            out[i] = (byte) Math.round(Math.sin(phase) * 60 * envelope);
+        }
+        return out;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = new byte[a.length + b.length];
+        System.arraycopy(a, 0, out, 0, a.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.snake;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes a game's {@link SpectatorWriter} stream to a file and to any number of
+ * viewers on a localhost port. Each tick is encoded once and the same bytes go to every
+ * sink. Everything runs on the thread that calls {@link #frame}, with non-blocking
+ * sockets: a viewer who connects gets the header and joins at the next keyframe, and a
+ * viewer who falls too far behind stops receiving until its backlog has drained, then
+ * picks up again at a keyframe. Nobody can stall the game.
+ *
+ * <p>{@link #frame} and {@link #close} are synchronized so the feed can be closed from
+ * another thread on exit.
+ */
+public class SpectatorFeed implements Closeable {
+    private static final int MAX_BACKLOG = 256 * 1024; // per viewer, before records are dropped
+
+    private final Encoded encoded = new Encoded();
+    private final SpectatorWriter writer;
+    private final byte[] header;
+    private final List<Sink> sinks = new ArrayList<>();
+    private ServerSocketChannel server;
+
+    /** The writer's output, which is taken after each frame rather than kept. */
+    private static final class Encoded extends ByteArrayOutputStream {
+        byte[] bytes() { return buf; }
+    }
+
+    private static final class Sink {
+        final WritableByteChannel channel;
+        final boolean blocking;  // files: every byte is written at once
+        boolean synced;          // past a keyframe; otherwise waiting for one
+        ByteBuffer backlog = ByteBuffer.allocate(0);
+
+        Sink(WritableByteChannel channel, boolean blocking) {
+            this.channel = channel;
+            this.blocking = blocking;
+        }
+    }
+
+    public SpectatorFeed() throws IOException {
+        this(SpectatorWriter.DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    public SpectatorFeed(int keyframeInterval) throws IOException {
+        writer = new SpectatorWriter(encoded, keyframeInterval);
+        writer.flush();
+        header = encoded.toByteArray();
+        encoded.reset();
+    }
+
+    /** Writes the stream to a file as well, from the next keyframe on. */
+    public void toFile(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        ch.write(ByteBuffer.wrap(header));
+        sinks.add(new Sink(ch, true));
+        writer.requestKeyframe();
+    }
+
+    /** Accepts viewers on the loopback interface; port 0 picks a free one. */
+    public int listen(int port) throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        return server.socket().getLocalPort();
+    }
+
+    /** Number of connected viewers and files. */
+    public int sinks() { return sinks.size(); }
+
+    /** Makes the next frame a keyframe, e.g. after a restart or seek. */
+    public void requestKeyframe() {
+        writer.requestKeyframe();
+    }
+
+    /** Publishes the engine's state after a tick. I/O errors drop the sink they happened on. */
+    public synchronized void frame(GameEngine engine) {
+        acceptViewers();
+        try {
+            writer.frame(engine);
+            writer.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("In-memory encoding failed", e);
+        }
+        boolean key = writer.lastWasKeyframe();
+        ByteBuffer record = ByteBuffer.wrap(encoded.bytes(), 0, encoded.size());
+        for (int i = sinks.size() - 1; i >= 0; i--) {
+            Sink s = sinks.get(i);
+            try {
+                send(s, record.duplicate(), key);
+            } catch (IOException e) {
+                drop(i);
+            }
+        }
+        encoded.reset();
+    }
+
+    private void send(Sink s, ByteBuffer record, boolean key) throws IOException {
+        if (s.backlog.hasRemaining()) {
+            s.channel.write(s.backlog);
+        }
+        if (!s.synced && !key) return;
+        if (s.backlog.hasRemaining()) {
+            if (s.backlog.remaining() + record.remaining() > MAX_BACKLOG) {
+                s.synced = false; // skip records until caught up, then resume at a keyframe
+                return;
+            }
+            s.synced = true; // a keyframe queued behind the backlog syncs the viewer too
+            append(s, record);
+            return;
+        }
+        s.synced = true;
+        if (s.blocking) {
+            while (record.hasRemaining()) s.channel.write(record);
+        } else {
+            s.channel.write(record);
+            if (record.hasRemaining()) append(s, record);
+        }
+    }
+
+    private static void append(Sink s, ByteBuffer record) {
+        ByteBuffer b = s.backlog;
+        if (b.capacity() - b.limit() < record.remaining() && b.capacity() - b.remaining() >= record.remaining()) {
+            b.compact().flip(); // room enough once the sent bytes are gone
+        }
+        if (b.capacity() - b.limit() < record.remaining()) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(b.remaining() + record.remaining(), 2 * b.capacity()));
+            bigger.put(b).flip();
+            b = s.backlog = bigger;
+        }
+        int pos = b.position();
+        b.position(b.limit()).limit(b.capacity());
+        b.put(record);
+        b.flip().position(pos);
+    }
+
+    private void acceptViewers() {
+        if (server == null) return;
+        try {
+            SocketChannel ch;
+            while ((ch = server.accept()) != null) {
+                ch.configureBlocking(false);
+                Sink s = new Sink(ch, false);
+                sinks.add(s);
+                append(s, ByteBuffer.wrap(header));
+                writer.requestKeyframe();
+            }
+        } catch (IOException e) {
+            System.err.println("Spectator accept failed: " + e.getMessage());
+        }
+    }
+
+    private void drop(int i) {
+        try {
+            sinks.remove(i).channel.close();
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (int i = sinks.size() - 1; i >= 0; i--) {
+            drop(i);
+        }
+        if (server != null) server.close();
+    }
+}
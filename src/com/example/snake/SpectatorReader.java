@@ -0,0 +1,241 @@
+package com.example.snake;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Decodes a {@link SpectatorWriter} stream into a {@link SpectatorState}, one record at a
+ * time. Deltas before the first keyframe are skipped, so a reader can start on a live
+ * stream. A stream cut short reads as if it ended after the last complete record.
+ *
+ * <pre>
+ * java -cp target/classes com.example.snake.SpectatorReader game.snks
+ * java -cp target/classes com.example.snake.SpectatorReader --port 7778
+ * </pre>
+ */
+public class SpectatorReader implements Closeable {
+    private static final Direction[] DIRS = Direction.values();
+    private static final GameEngine.Outcome[] OUTCOMES = GameEngine.Outcome.values();
+    private static final PowerUp.Type[] POWER_TYPES = PowerUp.Type.values();
+
+    private final DataInputStream in;
+    private final SpectatorState state = new SpectatorState();
+    private boolean synced = false;
+    private long bytesRead = 0;
+    private long keyframes = 0, deltas = 0;
+
+    public SpectatorReader(InputStream is) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(is, 8192));
+        if (in.readInt() != SpectatorWriter.MAGIC) {
+            throw new IOException("Not a spectator stream");
+        }
+        int version = in.readByte();
+        if (version != SpectatorWriter.VERSION) {
+            throw new IOException("Unsupported spectator stream version " + version);
+        }
+        bytesRead = 5;
+    }
+
+    /** The state as of the last record read; valid once {@link #isSynced} is true. */
+    public SpectatorState state() { return state; }
+
+    /** Whether a keyframe has been read, so the state is complete. */
+    public boolean isSynced() { return synced; }
+
+    public long bytesRead() { return bytesRead; }
+    public long keyframes() { return keyframes; }
+    public long deltas() { return deltas; }
+
+    /**
+     * Reads and applies the next record.
+     * @return false at the end of the stream.
+     */
+    public boolean next() throws IOException {
+        int tag = in.read();
+        if (tag < 0) return false;
+        bytesRead++;
+        try {
+            if (tag == SpectatorWriter.KEYFRAME) {
+                readKeyframe();
+                synced = true;
+                keyframes++;
+            } else if ((tag & SpectatorWriter.KEYFRAME) != 0) {
+                throw new IOException("Unknown record type " + tag);
+            } else {
+                readDelta(tag);
+                deltas++;
+            }
+        } catch (EOFException e) {
+            return false; // cut off mid-record
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readKeyframe() throws IOException {
+        int cols = (int) readVarLong();
+        int rows = (int) readVarLong();
+        state.reset(cols, rows);
+        state.setTick(readVarLong());
+        readStatus();
+        readFood();
+        readPower();
+        long obstacles = readVarLong();
+        for (long i = 0; i < obstacles; i++) {
+            int cell = (int) readVarLong();
+            state.obstacles().add(cell % cols, cell / cols);
+        }
+        int length = (int) readVarLong();
+        int x = (int) unzigzag(readVarLong());
+        int y = (int) unzigzag(readVarLong());
+        int distinct = (int) readVarLong();
+        state.addLast(Cell.pack(x, y));
+        int bits = 0, pending = 0;
+        for (int i = 1; i < distinct; i++) {
+            if (bits == 0) {
+                pending = readByte();
+                bits = 4;
+            }
+            Direction d = DIRS[(pending >> 6) & 3];
+            pending <<= 2;
+            bits--;
+            x = Math.floorMod(x + d.dx, cols);
+            y = Math.floorMod(y + d.dy, rows);
+            state.addLast(Cell.pack(x, y));
+        }
+        state.resize(length - distinct);
+    }
+
+    private void readDelta(int mask) throws IOException {
+        if (!synced) {
+            skipDelta(mask);
+            return;
+        }
+        int head;
+        if ((mask & SpectatorWriter.JUMP) != 0) {
+            int x = (int) unzigzag(readVarLong());
+            int y = (int) unzigzag(readVarLong());
+            head = Cell.pack(x, y);
+        } else {
+            Direction d = DIRS[mask & SpectatorWriter.DIR_MASK];
+            int old = state.head();
+            head = Cell.pack(Math.floorMod(Cell.x(old) + d.dx, state.cols()),
+                Math.floorMod(Cell.y(old) + d.dy, state.rows()));
+        }
+        state.move(head);
+        if ((mask & SpectatorWriter.LENGTH) != 0) state.resize((int) unzigzag(readVarLong()));
+        if ((mask & SpectatorWriter.FOOD) != 0) readFood();
+        if ((mask & SpectatorWriter.POWER) != 0) readPower();
+        if ((mask & SpectatorWriter.STATUS) != 0) readStatus();
+        state.setTick(state.tick() + 1);
+    }
+
+    // Before the first keyframe there is nothing to apply a delta to; just step over it
+    private void skipDelta(int mask) throws IOException {
+        if ((mask & SpectatorWriter.JUMP) != 0) {
+            readVarLong();
+            readVarLong();
+        }
+        if ((mask & SpectatorWriter.LENGTH) != 0) readVarLong();
+        if ((mask & SpectatorWriter.FOOD) != 0 && readVarLong() != 0) readByte();
+        if ((mask & SpectatorWriter.POWER) != 0 && readVarLong() != 0) readVarLong();
+        if ((mask & SpectatorWriter.STATUS) != 0) {
+            readVarLong();
+            readVarLong();
+            readByte();
+        }
+    }
+
+    private void readStatus() throws IOException {
+        int score = (int) readVarLong();
+        int level = (int) readVarLong();
+        int flags = readByte();
+        state.setStatus(score, level, (flags & 1) != 0, OUTCOMES[flags >> 1]);
+    }
+
+    private void readFood() throws IOException {
+        long cell = readVarLong();
+        if (cell == 0) {
+            state.setFood(-1, false);
+            return;
+        }
+        cell--;
+        boolean special = readByte() != 0;
+        state.setFood(Cell.pack((int) (cell % state.cols()), (int) (cell / state.cols())), special);
+    }
+
+    private void readPower() throws IOException {
+        int type = (int) readVarLong();
+        if (type == 0) {
+            state.setPowerUp(-1, null);
+            return;
+        }
+        long cell = readVarLong();
+        state.setPowerUp(Cell.pack((int) (cell % state.cols()), (int) (cell / state.cols())), POWER_TYPES[type - 1]);
+    }
+
+    private int readByte() throws IOException {
+        int b = in.readUnsignedByte();
+        bytesRead++;
+        return b;
+    }
+
+    private long readVarLong() throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /** Follows a stream from a file or a local {@link SpectatorFeed} and prints a line a second. */
+    public static void main(String[] args) throws IOException {
+        InputStream is;
+        if (args.length == 2 && args[0].equals("--port")) {
+            is = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[1])).getInputStream();
+        } else if (args.length == 1) {
+            is = Files.newInputStream(Paths.get(args[0]));
+        } else {
+            System.err.println("Usage: SpectatorReader <file> | --port <port>");
+            System.exit(2);
+            return;
+        }
+        try (SpectatorReader reader = new SpectatorReader(is)) {
+            long lastPrint = 0;
+            while (reader.next()) {
+                long now = System.nanoTime();
+                if (reader.isSynced() && now - lastPrint >= 1_000_000_000L) {
+                    print(reader);
+                    lastPrint = now;
+                }
+            }
+            if (reader.isSynced()) print(reader);
+        }
+    }
+
+    private static void print(SpectatorReader r) {
+        SpectatorState s = r.state();
+        long records = r.keyframes() + r.deltas();
+        System.out.printf("tick %d score %d level %d length %d %s | %d keyframes, %d deltas, %.2f bytes/record%n",
+            s.tick(), s.score(), s.level(), s.length(), s.outcome(),
+            r.keyframes(), r.deltas(), records == 0 ? 0.0 : (double) r.bytesRead() / records);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.snake;
+
+/**
+ * A game as seen by a spectator: everything needed to draw the board, rebuilt from a
+ * {@link SpectatorWriter} stream by {@link SpectatorReader}. Cells are packed with
+ * {@link Cell}; food and power-up cells are -1 when absent.
+ *
+ * <p>The snake body is a ring buffer like {@link Snake}'s, so applying a tick's delta (a
+ * new head, a dropped tail) is constant time whatever the length.
+ */
+public class SpectatorState {
+    private int cols, rows;
+    private long tick;
+    private int score, level;
+    private boolean wrap;
+    private GameEngine.Outcome outcome = GameEngine.Outcome.RUNNING;
+    private int food = -1;
+    private boolean specialFood;
+    private int powerUp = -1;
+    private PowerUp.Type powerUpType;
+    private ObstacleMap obstacles = new ObstacleMap(1, 1);
+
+    private int[] body = new int[16];
+    private int headIdx = 0;
+    private int length = 0;
+
+    public int cols() { return cols; }
+    public int rows() { return rows; }
+    public long tick() { return tick; }
+    public int score() { return score; }
+    public int level() { return level; }
+    public boolean isWrap() { return wrap; }
+    public GameEngine.Outcome outcome() { return outcome; }
+    public int food() { return food; }
+    public boolean isSpecialFood() { return specialFood; }
+    public int powerUp() { return powerUp; }
+    public PowerUp.Type powerUpType() { return powerUpType; }
+    public ObstacleMap obstacles() { return obstacles; }
+
+    // Snake body, segment 0 being the head
+    public int length() { return length; }
+    public int segment(int i) {
+        if (i < 0 || i >= length) throw new IndexOutOfBoundsException("Segment " + i + " of " + length);
+        return body[(headIdx + i) & (body.length - 1)];
+    }
+    public int head() { return segment(0); }
+    public int tail() { return segment(length - 1); }
+
+    // Mutators for the codec
+
+    void reset(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        obstacles = new ObstacleMap(cols, rows);
+        length = 0;
+        headIdx = 0;
+    }
+
+    void setTick(long tick) { this.tick = tick; }
+
+    void setStatus(int score, int level, boolean wrap, GameEngine.Outcome outcome) {
+        this.score = score;
+        this.level = level;
+        this.wrap = wrap;
+        this.outcome = outcome;
+    }
+
+    void setFood(int cell, boolean special) {
+        food = cell;
+        specialFood = special;
+    }
+
+    void setPowerUp(int cell, PowerUp.Type type) {
+        powerUp = cell;
+        powerUpType = type;
+    }
+
+    void addLast(int cell) {
+        if (length == body.length) {
+            int[] bigger = new int[body.length * 2];
+            for (int i = 0; i < length; i++) {
+                bigger[i] = body[(headIdx + i) & (body.length - 1)];
+            }
+            body = bigger;
+            headIdx = 0;
+        }
+        body[(headIdx + length) & (body.length - 1)] = cell;
+        length++;
+    }
+
+    /** One tick of movement: the head advances to the cell and the tail follows. */
+    void move(int newHead) {
+        // the slot before the head is the tail's when the ring is full, and free otherwise
+        headIdx = (headIdx - 1) & (body.length - 1);
+        body[headIdx] = newHead;
+    }
+
+    /** Grows by copies of the tail, or shrinks from the tail for negative n. */
+    void resize(int n) {
+        int tail = tail();
+        for (int i = 0; i < n; i++) {
+            addLast(tail);
+        }
+        length = Math.max(1, length + Math.min(0, n));
+    }
+}
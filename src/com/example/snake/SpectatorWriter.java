@@ -0,0 +1,247 @@
+package com.example.snake;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes a game for spectators as a stream of keyframes and per-tick deltas.
+ *
+ * <p>The stream starts with magic {@code "SNKS"} and a version byte; then come records.
+ * A keyframe ({@link #KEYFRAME}) holds the whole state: board size, tick, score, level,
+ * wrap and outcome, food, power-up, obstacles and the snake as its head plus one 2-bit
+ * step per further cell. Any other first byte is a delta for the next tick, a bit mask:
+ * the low two bits are the direction the head moved, and the flags say which fields
+ * follow ({@link #JUMP} head cell, {@link #LENGTH} change, {@link #FOOD},
+ * {@link #POWER}, {@link #STATUS}). An ordinary move is therefore one byte. Numbers are
+ * LEB128 varints, signed ones zigzag-encoded.
+ *
+ * <p>Keyframes go out every {@code keyframeInterval} ticks, so a viewer can join any
+ * time, and whenever a delta cannot describe the change: a new game, a replay seek, or
+ * new obstacles. The writer checks every delta by applying it to its own
+ * {@link SpectatorState}, so a rule it does not model costs a keyframe, not a desync.
+ */
+public class SpectatorWriter implements Closeable {
+    static final int MAGIC = 0x534E4B53; // "SNKS"
+    static final int VERSION = 1;
+    static final int KEYFRAME = 0x80;
+    static final int DIR_MASK = 0x03;
+    static final int JUMP = 0x04;      // head cell follows as zigzag x, y
+    static final int LENGTH = 0x08;    // zigzag length change after the move follows
+    static final int FOOD = 0x10;      // food cell and special flag follow
+    static final int POWER = 0x20;     // power-up type + 1 (0 for none) and cell follow
+    static final int STATUS = 0x40;    // score, level and the status byte follow
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+    private static final Direction[] DIRS = Direction.values();
+
+    private final DataOutputStream out;
+    private final int keyframeInterval;
+    private final SpectatorState sent = new SpectatorState(); // what viewers have now
+    private boolean keyframeRequested = true;
+    private boolean lastWasKeyframe = false;
+    private long lastKeyframeTick;
+    private Food lastFood;
+    private PowerUp lastPower;
+    private int lastObstacleVersion;
+
+    public SpectatorWriter(OutputStream os) throws IOException {
+        this(os, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    public SpectatorWriter(OutputStream os, int keyframeInterval) throws IOException {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("Keyframe interval must be positive");
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(os, 8192));
+        this.keyframeInterval = keyframeInterval;
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    /** Makes the next frame a keyframe, e.g. for a viewer that just joined. */
+    public void requestKeyframe() { keyframeRequested = true; }
+
+    /** Whether the last {@link #frame} wrote a keyframe. */
+    public boolean lastWasKeyframe() { return lastWasKeyframe; }
+
+    /** Writes the engine's state after a tick, as a delta where possible. Call after every tick. */
+    public void frame(GameEngine engine) throws IOException {
+        boolean key = keyframeRequested
+            || engine.ticks() != sent.tick() + 1
+            || engine.ticks() - lastKeyframeTick >= keyframeInterval
+            || engine.obstacleVersion() != lastObstacleVersion
+            || engine.cols() != sent.cols() || engine.rows() != sent.rows();
+        if (!key) {
+            key = !delta(engine);
+        }
+        if (key) {
+            keyframe(engine);
+        }
+        lastWasKeyframe = key;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void keyframe(GameEngine e) throws IOException {
+        keyframeRequested = false;
+        lastKeyframeTick = e.ticks();
+        lastObstacleVersion = e.obstacleVersion();
+        int cols = e.cols();
+        sent.reset(cols, e.rows());
+        sent.setTick(e.ticks());
+
+        out.writeByte(KEYFRAME);
+        writeVarLong(cols);
+        writeVarLong(e.rows());
+        writeVarLong(e.ticks());
+        writeStatus(e);
+        writeFood(e.food());
+        writePower(e.powerUp());
+        ObstacleMap obstacles = e.obstacles();
+        writeVarLong(obstacles.size());
+        IOException[] failed = new IOException[1];
+        obstacles.forEach((x, y) -> {
+            try {
+                writeVarLong((long) y * cols + x);
+                sent.obstacles().add(x, y);
+            } catch (IOException ex) {
+                failed[0] = ex;
+            }
+        });
+        if (failed[0] != null) throw failed[0];
+
+        // snake: length, head, then a step to each next distinct cell; growth stacks
+        // copies of the tail, which come back from the length
+        Snake s = e.snake();
+        int len = s.length();
+        int distinct = 1;
+        for (int i = 1; i < len; i++) {
+            if (s.segment(i) != s.segment(i - 1)) distinct++;
+        }
+        writeVarLong(len);
+        writeVarLong(zigzag(s.headX()));
+        writeVarLong(zigzag(s.headY()));
+        writeVarLong(distinct);
+        sent.addLast(s.segment(0));
+        int pending = 0, bits = 0;
+        for (int i = 1; i < len; i++) {
+            int prev = s.segment(i - 1), seg = s.segment(i);
+            if (seg == prev) continue;
+            int d = step(prev, seg);
+            if (d < 0) throw new IllegalStateException("Snake body is not contiguous at segment " + i);
+            pending = pending << 2 | d;
+            if (++bits == 4) {
+                out.writeByte(pending);
+                pending = bits = 0;
+            }
+            sent.addLast(seg);
+        }
+        if (bits > 0) {
+            out.writeByte(pending << (2 * (4 - bits)));
+        }
+        sent.resize(len - sent.length());
+    }
+
+    /**
+     * Writes the tick as a delta on what viewers have.
+     * @return false, having written nothing, if a delta cannot describe it.
+     */
+    private boolean delta(GameEngine e) throws IOException {
+        Snake s = e.snake();
+        int head = s.segment(0);
+        int d = step(sent.head(), head);
+        int lengthChange = s.length() - sent.length();
+        boolean statusChanged = e.score() != sent.score() || e.level() != sent.level()
+            || s.isWrap() != sent.isWrap() || e.outcome() != sent.outcome();
+        int mask = (d < 0 ? JUMP : d)
+            | (lengthChange != 0 ? LENGTH : 0)
+            | (e.food() != lastFood ? FOOD : 0)
+            | (e.powerUp() != lastPower ? POWER : 0)
+            | (statusChanged ? STATUS : 0);
+
+        // apply it to the mirror first and fall back to a keyframe if it comes out wrong
+        sent.move(head);
+        if (lengthChange != 0) sent.resize(lengthChange);
+        if (sent.length() != s.length() || sent.tail() != s.segment(s.length() - 1)) {
+            return false;
+        }
+        sent.setTick(e.ticks());
+
+        out.writeByte(mask);
+        if ((mask & JUMP) != 0) {
+            writeVarLong(zigzag(s.headX()));
+            writeVarLong(zigzag(s.headY()));
+        }
+        if ((mask & LENGTH) != 0) writeVarLong(zigzag(lengthChange));
+        if ((mask & FOOD) != 0) writeFood(e.food());
+        if ((mask & POWER) != 0) writePower(e.powerUp());
+        if ((mask & STATUS) != 0) writeStatus(e);
+        return true;
+    }
+
+    /** The direction from one cell to an adjacent one, wrapping at the edges, or -1. */
+    private int step(int from, int to) {
+        int cols = sent.cols(), rows = sent.rows();
+        for (int d = 0; d < DIRS.length; d++) {
+            int x = Math.floorMod(Cell.x(from) + DIRS[d].dx, cols);
+            int y = Math.floorMod(Cell.y(from) + DIRS[d].dy, rows);
+            if (Cell.pack(x, y) == to) return d;
+        }
+        return -1;
+    }
+
+    private void writeStatus(GameEngine e) throws IOException {
+        boolean wrap = e.snake().isWrap();
+        writeVarLong(e.score());
+        writeVarLong(e.level());
+        out.writeByte((wrap ? 1 : 0) | e.outcome().ordinal() << 1);
+        sent.setStatus(e.score(), e.level(), wrap, e.outcome());
+    }
+
+    private void writeFood(Food f) throws IOException {
+        lastFood = f;
+        if (f == null) {
+            writeVarLong(0);
+            sent.setFood(-1, false);
+            return;
+        }
+        writeVarLong(1 + (long) f.pos.y * sent.cols() + f.pos.x);
+        out.writeByte(f.isSpecial ? 1 : 0);
+        sent.setFood(Cell.pack(f.pos.x, f.pos.y), f.isSpecial);
+    }
+
+    private void writePower(PowerUp p) throws IOException {
+        lastPower = p;
+        if (p == null) {
+            writeVarLong(0);
+            sent.setPowerUp(-1, null);
+            return;
+        }
+        writeVarLong(p.type.ordinal() + 1);
+        writeVarLong((long) p.pos.y * sent.cols() + p.pos.x);
+        sent.setPowerUp(Cell.pack(p.pos.x, p.pos.y), p.type);
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    // LEB128: seven bits per byte, high bit set on all but the last
+    private void writeVarLong(long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.snake;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * The board's tiles rasterized once: head, food, special food, obstacle, power-up and one
+ * body tile per colour of the gradient palette. Drawing a cell is then a blit of a small
+ * image in the screen's own format, with no shape rasterization and no allocation.
+ */
+final class TileSprites {
+    final BufferedImage head, food, specialFood, obstacle, powerUp;
+    private final BufferedImage[] body;
+
+    /**
+     * @param gc configuration to make images compatible with, or null (e.g. headless)
+     *     for plain ARGB images
+     * @param bodyPalette colours of the body gradient, head end first
+     */
+    TileSprites(GraphicsConfiguration gc, Color[] bodyPalette) {
+        head = tile(gc, Color.YELLOW);
+        food = tile(gc, Color.GREEN);
+        specialFood = tile(gc, Color.MAGENTA);
+        obstacle = tile(gc, Color.DARK_GRAY);
+        powerUp = tile(gc, Color.ORANGE);
+        body = new BufferedImage[bodyPalette.length];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = tile(gc, bodyPalette[i]);
+        }
+    }
+
+    BufferedImage body(int band) { return body[band]; }
+
+    private static BufferedImage tile(GraphicsConfiguration gc, Color c) {
+        int ts = GameConfig.TILE_SIZE;
+        // corners stay transparent, so a bitmask image is enough and blits fast
+        BufferedImage img = gc != null ? gc.createCompatibleImage(ts, ts, Transparency.BITMASK)
+            : new BufferedImage(ts, ts, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(c);
+        g.fillRoundRect(2, 2, ts - 4, ts - 4, 6, 6);
+        g.dispose();
+        return img;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.snake;
+
+import java.util.Arrays;
+
+/**
+ * Hashed timing wheel keyed on game ticks. A timer goes into the slot its deadline hashes
+ * to, so scheduling, cancelling and expiring each cost O(1) however many timers are
+ * pending; a timer due on a later turn of the wheel waits in its slot until its tick comes
+ * round.
+ *
+ * <p>Time only moves when the owner calls {@link #advance}, once per tick, so a paused
+ * game pauses every timer, and timers due on the same tick fire in the order they were
+ * scheduled. Together that makes expiry as deterministic as the rest of the rules.
+ *
+ * <p>A timer is two ints, a kind and an argument, kept in parallel arrays that only grow,
+ * so a running game schedules and fires timers without allocating. Not thread-safe.
+ */
+public class TimingWheel {
+    /** Receives each timer as it expires; it may schedule and cancel timers. */
+    public interface Handler {
+        void expire(int kind, int arg);
+    }
+
+    /** Handle value for "no timer"; {@link #cancel} and {@link #remaining} accept it. */
+    public static final long NONE = -1;
+
+    private static final int CANCELLED = -1;
+
+    private final int mask;
+    private final int[] head, tail;   // per slot, -1 when empty
+    private long now = 0;
+    private int size = 0;
+
+    // Timer entries; free ones are chained through next
+    private long[] deadline;
+    private int[] kind, arg, next, generation;
+    private int free = -1;
+    private int used = 0;
+
+    /** @param slots rounded up to a power of two; a wheel turn should cover most delays */
+    public TimingWheel(int slots) {
+        if (slots <= 0) throw new IllegalArgumentException("Slot count must be positive");
+        int n = 1;
+        while (n < slots) n <<= 1;
+        mask = n - 1;
+        head = new int[n];
+        tail = new int[n];
+        Arrays.fill(head, -1);
+        Arrays.fill(tail, -1);
+        deadline = new long[16];
+        kind = new int[16];
+        arg = new int[16];
+        next = new int[16];
+        generation = new int[16];
+    }
+
+    /** Deep copy with the same time, timers and handles. */
+    public TimingWheel(TimingWheel o) {
+        mask = o.mask;
+        head = o.head.clone();
+        tail = o.tail.clone();
+        now = o.now;
+        size = o.size;
+        deadline = o.deadline.clone();
+        kind = o.kind.clone();
+        arg = o.arg.clone();
+        next = o.next.clone();
+        generation = o.generation.clone();
+        free = o.free;
+        used = o.used;
+    }
+
+    /** The tick reached by the last {@link #advance}. */
+    public long now() { return now; }
+
+    /** Number of pending timers. */
+    public int size() { return size; }
+
+    /**
+     * Schedules a timer to expire {@code delay} ticks from now.
+     * @param kind any non-negative value; handed back to the {@link Handler}
+     * @return a handle for {@link #cancel} and {@link #remaining}
+     */
+    public long schedule(int delay, int kind, int arg) {
+        if (delay < 1) throw new IllegalArgumentException("Delay must be at least one tick: " + delay);
+        if (kind < 0) throw new IllegalArgumentException("Kind must not be negative: " + kind);
+        int e = allocate();
+        long due = now + delay;
+        this.deadline[e] = due;
+        this.kind[e] = kind;
+        this.arg[e] = arg;
+        this.next[e] = -1;
+        int slot = (int) due & mask;
+        if (tail[slot] < 0) {
+            head[slot] = e;
+        } else {
+            next[tail[slot]] = e;
+        }
+        tail[slot] = e;
+        size++;
+        return (long) generation[e] << 32 | e;
+    }
+
+    /**
+     * Stops a pending timer. Its entry is reclaimed the next time the wheel passes its slot.
+     * @return false if the timer already expired or was cancelled
+     */
+    public boolean cancel(long handle) {
+        int e = live(handle);
+        if (e < 0) return false;
+        kind[e] = CANCELLED;
+        generation[e]++;
+        size--;
+        return true;
+    }
+
+    /** Ticks until the timer expires, or -1 if it is no longer pending. */
+    public long remaining(long handle) {
+        int e = live(handle);
+        return e < 0 ? -1 : deadline[e] - now;
+    }
+
+    /** Moves time on by one tick and fires every timer due at the new tick. */
+    public void advance(Handler handler) {
+        now++;
+        int slot = (int) now & mask;
+        int prev = -1;
+        int e = head[slot];
+        while (e >= 0) {
+            int after = next[e];
+            if (kind[e] == CANCELLED || deadline[e] == now) {
+                // unlink before firing, so the handler sees a consistent wheel
+                if (prev < 0) head[slot] = after; else next[prev] = after;
+                if (tail[slot] == e) tail[slot] = prev;
+                int k = kind[e], a = arg[e];
+                release(e);
+                if (k != CANCELLED) {
+                    size--;
+                    handler.expire(k, a);
+                }
+            } else {
+                prev = e;
+            }
+            e = after;
+        }
+    }
+
+    private int live(long handle) {
+        if (handle < 0) return -1;
+        int e = (int) handle;
+        if (e >= used || generation[e] != (int) (handle >>> 32) || kind[e] == CANCELLED) return -1;
+        return e;
+    }
+
+    private int allocate() {
+        if (free >= 0) {
+            int e = free;
+            free = next[e];
+            return e;
+        }
+        if (used == deadline.length) {
+            int n = used * 2;
+            deadline = Arrays.copyOf(deadline, n);
+            kind = Arrays.copyOf(kind, n);
+            arg = Arrays.copyOf(arg, n);
+            next = Arrays.copyOf(next, n);
+            generation = Arrays.copyOf(generation, n);
+        }
+        return used++;
+    }
+
+    private void release(int e) {
+        if (kind[e] != CANCELLED) generation[e]++;
+        kind[e] = CANCELLED;
+        next[e] = free;
+        free = e;
+    }
+}
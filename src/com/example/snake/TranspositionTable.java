@@ -0,0 +1,115 @@
+package com.example.snake;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size lock-free table of search statistics keyed by Zobrist hash, shared by all
+ * threads of an {@link MctsAdvisor} search. Each slot is a key word and a data word
+ * packing the search generation (16 bits), the visit count (20 bits) and the value sum
+ * (28 bits, fixed point); the data word only changes by compare-and-set, so searchers
+ * never block and no visit or value is lost.
+ *
+ * <p>Nothing is cleared between searches: {@link #newSearch} bumps the generation, and
+ * slots written by an earlier search read as empty and are reused. Keys are placed by
+ * linear probing within a small window; when the window is all current entries the state
+ * goes unrecorded, and the search treats it as a leaf. A slot is claimed by its data word
+ * first and keyed after, so a lookup of the old key racing with the claim can be counted
+ * towards the new one; the search tolerates that like any other hash collision.
+ */
+public final class TranspositionTable {
+    private static final int PROBES = 8;
+    private static final int VALUE_BITS = 28, VISIT_BITS = 20;
+    private static final int GENERATION_SHIFT = VALUE_BITS + VISIT_BITS;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+    private static final long VISIT_MASK = (1L << VISIT_BITS) - 1;
+    private static final double VALUE_SCALE = 256;    // values in [0, 1] to 1/256
+
+    /** Most visits one state can record in a search. */
+    public static final int MAX_VISITS = (int) VISIT_MASK;
+
+    private final AtomicLongArray keys, data;
+    private final int mask;
+    private long generation = 1; // 0 is never current, so fresh arrays read as empty
+
+    /** @param capacity slots, rounded up to a power of two */
+    public TranspositionTable(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        int size = Math.max(PROBES, Integer.highestOneBit(capacity - 1) << 1);
+        keys = new AtomicLongArray(size);
+        data = new AtomicLongArray(size);
+        mask = size - 1;
+    }
+
+    public int capacity() { return keys.length(); }
+
+    /** Makes every entry written so far read as empty. Call between searches only. */
+    public void newSearch() {
+        if (++generation == 1L << (64 - GENERATION_SHIFT)) {
+            // wrapped: an entry this old could pass for a current one
+            for (int i = 0; i < keys.length(); i++) {
+                keys.set(i, 0);
+                data.set(i, 0);
+            }
+            generation = 1;
+        }
+    }
+
+    /** Slot holding the key, or -1 if it is not in the table. */
+    public int find(long key) {
+        int i = (int) key & mask;
+        for (int p = 0; p < PROBES; p++, i = (i + 1) & mask) {
+            if (keys.get(i) == key && data.get(i) >>> GENERATION_SHIFT == generation) return i;
+        }
+        return -1;
+    }
+
+    /** Slot holding the key, claiming one for it if needed; -1 if its probe window is full. */
+    public int slot(long key) {
+        int found = find(key);
+        if (found >= 0) return found;
+        int i = (int) key & mask;
+        for (int p = 0; p < PROBES; p++, i = (i + 1) & mask) {
+            long d = data.get(i);
+            if (d >>> GENERATION_SHIFT != generation && data.compareAndSet(i, d, generation << GENERATION_SHIFT)) {
+                keys.set(i, key);
+                return i;
+            }
+            if (keys.get(i) == key) return i; // claimed for the same key meanwhile
+        }
+        return -1;
+    }
+
+    /** Visits recorded in the slot; 0 for -1. */
+    public long visits(int slot) {
+        return slot < 0 ? 0 : data.get(slot) >>> VALUE_BITS & VISIT_MASK;
+    }
+
+    /** Sum of the values recorded in the slot; 0 for -1. */
+    public double value(int slot) {
+        return slot < 0 ? 0 : (data.get(slot) & VALUE_MASK) / VALUE_SCALE;
+    }
+
+    /**
+     * Counts a visit, before its value is known, so that concurrent searchers see the
+     * state as busier and spread out.
+     * @return the visits before this one, or {@link #MAX_VISITS} if the slot is full.
+     */
+    public long addVisit(int slot) {
+        while (true) {
+            long d = data.get(slot);
+            long visits = d >>> VALUE_BITS & VISIT_MASK;
+            if (visits == VISIT_MASK) return MAX_VISITS;
+            if (data.compareAndSet(slot, d, d + (1L << VALUE_BITS))) return visits;
+        }
+    }
+
+    /** Adds the value, in [0, 1], of a visit counted earlier. */
+    public void addValue(int slot, double value) {
+        long v = Math.round(Math.min(1, Math.max(0, value)) * VALUE_SCALE);
+        while (true) {
+            long d = data.get(slot);
+            if ((d & VALUE_MASK) + v > VALUE_MASK) return;
+            if (data.compareAndSet(slot, d, d + v)) return;
+        }
+    }
+}
@@ -0,0 +1,595 @@
+package com.example.snake;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Many headless games stepped together, for training agents. Every board's state lives in
+ * flat primitive arrays (struct of arrays: one array per field, indexed by board) instead
+ * of a {@link GameEngine} object graph per board, so a step is a pass over a few dense
+ * arrays and allocates nothing (short of the rare speed boost stacked past a board's
+ * room for them).
+ *
+ * <p>The rules are {@link GameEngine}'s with random obstacles, down to the order of every
+ * random draw: episode {@code e} of board {@code i} plays exactly the game of
+ * {@code new GameEngine(cols, rows, seed + i + e * boards)} given the same inputs. A board
+ * whose game ends is reset to its next episode within the same {@link #step}, so
+ * {@link #observations} always describe a live game; {@link #dones}, {@link #outcomes} and
+ * {@link #finalScores} report the episode that ended.
+ *
+ * <p>Boards are independent, so steps can be split across threads; results do not depend
+ * on the thread count. Not thread-safe itself: one thread calls {@link #step}.
+ *
+ * <pre>
+ * try (VectorEnv env = new VectorEnv(4096, 28, 24, 1, 8)) {
+ *     int[] actions = new int[env.boards()];
+ *     env.step(actions);   // then read env.observations(), env.rewards(), env.dones()
+ * }
+ * </pre>
+ */
+public class VectorEnv implements AutoCloseable {
+    /** Action: keep going in the current direction. Directions are {@link Direction} ordinals. */
+    public static final int NO_OP = -1;
+    /** Action: toggle wrap-around, as {@link GameEngine#toggleWrap}. */
+    public static final int WRAP = 4;
+
+    /** Reward on dying, on top of the points scored that step. */
+    public static final float DEATH_PENALTY = -1f;
+
+    // Features per board in observations(), in this order
+    public static final int OBS_HEAD_X = 0;
+    public static final int OBS_HEAD_Y = 1;
+    public static final int OBS_DIRECTION = 2;    // Direction ordinal
+    public static final int OBS_LENGTH = 3;
+    public static final int OBS_FOOD_X = 4;
+    public static final int OBS_FOOD_Y = 5;
+    public static final int OBS_FOOD_SPECIAL = 6; // 0 or 1
+    public static final int OBS_POWER_X = 7;      // -1 without a power-up
+    public static final int OBS_POWER_Y = 8;
+    public static final int OBS_POWER_TYPE = 9;   // PowerUp.Type ordinal, or -1
+    public static final int OBS_WRAP = 10;        // 0 or 1
+    public static final int OBS_SCORE = 11;
+    public static final int OBS_LEVEL = 12;
+    public static final int FEATURES = 13;
+
+    // OccupancyGrid's cell encoding, which cells() exposes
+    private static final int OBSTACLE = 0x80;
+    private static final int ITEM = 0x40;
+    private static final int SNAKE_MASK = 0x3F;
+
+    private static final int RUNNING = GameEngine.Outcome.RUNNING.ordinal();
+    private static final int WALL = GameEngine.Outcome.WALL.ordinal();
+    private static final int OBSTACLE_HIT = GameEngine.Outcome.OBSTACLE.ordinal();
+    private static final int SELF = GameEngine.Outcome.SELF.ordinal();
+    private static final int WON = GameEngine.Outcome.WON.ordinal();
+
+    private static final int SPEED_BOOST = PowerUp.Type.SPEED_BOOST.ordinal();
+    private static final int SHRINK = PowerUp.Type.SHRINK.ordinal();
+    private static final int POWER_TYPES = PowerUp.Type.values().length;
+    private static final int BOOST_SLOTS = 4;     // speed boosts a board holds before growing
+    private static final int HEAD_CLEARANCE = 3;  // as GameEngine
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int RIGHT = Direction.RIGHT.ordinal();
+
+    private final int boards, cols, rows, cells;
+    private final long seed;
+    private final int obstacleScale;
+    private final int bodyMask;                   // per-board body ring size - 1
+    private final int[] obstacleOrder;            // cells in the order ObstacleMap visits them
+
+    // Board state, one entry (or one run of entries) per board
+    private final byte[] grid;                    // boards * cells
+    private final int[] free, freeSlot;           // boards * cells: free-cell index, as OccupancyGrid
+    private final int[] freeCount;
+    private final int[] body;                     // boards * (bodyMask + 1): packed cells, a ring
+    private final int[] headIdx, length, direction;
+    private final boolean[] wrap;
+    private final long[] rng;                     // SplitMix64 state, as GameRandom
+    private final long[] ticks;
+    private final int[] score, level, tickMs, obstacleCount;
+    private final int[] food, power, powerType;   // cell indices, -1 for none
+    private final boolean[] foodSpecial;
+    private final long[] powerDespawnAt;          // tick, -1 when no power-up is out
+    private final int[] boosts;
+    private final long[][] boostEndsAt;           // per board, first boosts[b] live; grown when full
+    private final int[] episodes;
+
+    // Step results
+    private final int[] observations;
+    private final float[] rewards;
+    private final boolean[] dones;
+    private final byte[] outcomes;
+    private final int[] finalScores;
+
+    private long maxTicks = 0;
+    private final int threads;
+    private ForkJoinPool pool;
+
+    public VectorEnv(int boards, long seed) {
+        this(boards, GameConfig.COLS, GameConfig.ROWS, seed, 1);
+    }
+
+    /** @param threads boards are stepped in parallel on this many threads; 1 steps them on the caller */
+    public VectorEnv(int boards, int cols, int rows, long seed, int threads) {
+        if (boards <= 0 || cols <= 0 || rows <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Board count, dimensions and threads must be positive");
+        }
+        if ((long) boards * cols * rows > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many cells: " + boards + " boards of " + cols + "x" + rows);
+        }
+        this.boards = boards;
+        this.cols = cols;
+        this.rows = rows;
+        this.cells = cols * rows;
+        this.seed = seed;
+        this.threads = threads;
+        this.obstacleScale = (int) Math.max(1, (long) cells / (GameConfig.COLS * GameConfig.ROWS));
+        // the body never exceeds the board plus duplicates stacked on the tail cell
+        int ring = Integer.highestOneBit(cells + SNAKE_MASK) << 1;
+        this.bodyMask = ring - 1;
+        this.obstacleOrder = obstacleOrder(cols, rows);
+
+        grid = new byte[boards * cells];
+        free = new int[boards * cells];
+        freeSlot = new int[boards * cells];
+        freeCount = new int[boards];
+        body = new int[boards * ring];
+        headIdx = new int[boards];
+        length = new int[boards];
+        direction = new int[boards];
+        wrap = new boolean[boards];
+        rng = new long[boards];
+        ticks = new long[boards];
+        score = new int[boards];
+        level = new int[boards];
+        tickMs = new int[boards];
+        obstacleCount = new int[boards];
+        food = new int[boards];
+        power = new int[boards];
+        powerType = new int[boards];
+        foodSpecial = new boolean[boards];
+        powerDespawnAt = new long[boards];
+        boosts = new int[boards];
+        boostEndsAt = new long[boards][BOOST_SLOTS];
+        episodes = new int[boards];
+
+        observations = new int[boards * FEATURES];
+        rewards = new float[boards];
+        dones = new boolean[boards];
+        outcomes = new byte[boards];
+        finalScores = new int[boards];
+
+        for (int b = 0; b < boards; b++) {
+            reset(b);
+            observe(b);
+        }
+    }
+
+    public int boards() { return boards; }
+    public int cols() { return cols; }
+    public int rows() { return rows; }
+
+    /** Ends episodes that reach this many ticks, with outcome RUNNING; 0 (the default) never does. */
+    public void setMaxTicks(long maxTicks) {
+        this.maxTicks = maxTicks;
+    }
+
+    /** {@link #FEATURES} ints per board, indexed by the {@code OBS_} constants. */
+    public int[] observations() { return observations; }
+
+    /**
+     * The boards' cells, {@code cols * rows} per board in row-major order, in
+     * {@link OccupancyGrid}'s encoding: the low six bits count snake segments, 0x40 marks
+     * food or a power-up, 0x80 an obstacle. Live state; read it between steps only.
+     */
+    public byte[] cells() { return grid; }
+
+    /** Points scored in the last step, plus {@link #DEATH_PENALTY} if the snake died. */
+    public float[] rewards() { return rewards; }
+
+    /** Whether each board's episode ended in the last step (and the board was reset). */
+    public boolean[] dones() { return dones; }
+
+    /** {@link GameEngine.Outcome} ordinal of each episode that just ended; RUNNING if it hit the tick limit. */
+    public byte[] outcomes() { return outcomes; }
+
+    /** Final score of each episode that just ended. */
+    public int[] finalScores() { return finalScores; }
+
+    /** Episodes each board has finished. */
+    public int[] episodes() { return episodes; }
+
+    /**
+     * Applies one action per board, {@link Direction} ordinal, {@link #NO_OP} or
+     * {@link #WRAP}, and advances every board by one tick.
+     */
+    public void step(int[] actions) {
+        if (actions.length != boards) {
+            throw new IllegalArgumentException(actions.length + " actions for " + boards + " boards");
+        }
+        for (int a : actions) {
+            if (a < NO_OP || a > WRAP) throw new IllegalArgumentException("Unknown action " + a);
+        }
+        if (threads == 1) {
+            stepRange(actions, 0, boards);
+            return;
+        }
+        if (pool == null) pool = new ForkJoinPool(threads);
+        int slices = Math.min(boards, threads * 4);
+        try {
+            pool.submit(() -> IntStream.range(0, slices).parallel()
+                    .forEach(s -> stepRange(actions, (int) ((long) boards * s / slices),
+                        (int) ((long) boards * (s + 1) / slices))))
+                .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Step interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Step failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) pool.shutdown();
+    }
+
+    private void stepRange(int[] actions, int from, int to) {
+        for (int b = from; b < to; b++) {
+            stepBoard(b, actions[b]);
+        }
+    }
+
+    private void stepBoard(int b, int action) {
+        if (action == WRAP) {
+            wrap[b] = !wrap[b];
+        } else if (action != NO_OP) {
+            // a single queued turn, taken by the next update
+            Direction d = DIRECTIONS[action], cur = DIRECTIONS[direction[b]];
+            if (d != cur && !d.isOpposite(cur)) direction[b] = action;
+        }
+        int before = score[b];
+        int outcome = tick(b);
+        float reward = score[b] - before;
+        boolean done = outcome != RUNNING || maxTicks > 0 && ticks[b] >= maxTicks;
+        if (done) {
+            if (outcome != RUNNING && outcome != WON) reward += DEATH_PENALTY;
+            outcomes[b] = (byte) outcome;
+            finalScores[b] = score[b];
+            episodes[b]++;
+            reset(b);
+        }
+        rewards[b] = reward;
+        dones[b] = done;
+        observe(b);
+    }
+
+    // GameEngine.tick over the arrays, step for step
+    private int tick(int b) {
+        long t = ++ticks[b];
+        if (powerDespawnAt[b] == t) {
+            setFlag(b, power[b], ITEM, false);
+            power[b] = -1;
+            powerDespawnAt[b] = -1;
+        }
+        long[] ends = boostEndsAt[b];
+        for (int k = 0; k < boosts[b]; k++) {
+            if (ends[k] == t) {
+                ends[k] = ends[--boosts[b]];
+                updateSpeed(b);
+                k--;
+            }
+        }
+
+        // move: the head is marked before the tail is freed, as Snake.update does
+        int ringBase = b * (bodyMask + 1);
+        int h = headIdx[b];
+        Direction d = DIRECTIONS[direction[b]];
+        int head = body[ringBase + h];
+        int nx = Cell.x(head) + d.dx, ny = Cell.y(head) + d.dy;
+        if (wrap[b]) {
+            nx = Math.floorMod(nx, cols);
+            ny = Math.floorMod(ny, rows);
+        }
+        int tail = body[ringBase + ((h + length[b] - 1) & bodyMask)];
+        h = headIdx[b] = (h - 1) & bodyMask;
+        body[ringBase + h] = Cell.pack(nx, ny);
+        addSnake(b, nx, ny);
+        removeSnake(b, Cell.x(tail), Cell.y(tail));
+        if (!wrap[b]) {
+            if (nx < 0 || nx >= cols || ny < 0 || ny >= rows) return WALL;
+        } else {
+            // Snake.wrapPosition takes the head off and puts it back, which reorders the free index
+            removeSnake(b, nx, ny);
+            addSnake(b, nx, ny);
+        }
+
+        int cell = ny * cols + nx;
+        int c = grid[b * cells + cell] & 0xFF;
+        if ((c & OBSTACLE) != 0) return OBSTACLE_HIT;
+        if ((c & SNAKE_MASK) > 1) return SELF;
+
+        if (cell == food[b]) {
+            boolean special = foodSpecial[b];
+            grow(b, special ? 3 : 1);
+            score[b] += special ? 5 : 1;
+            maybeLevelUp(b);
+            if (!spawnFood(b)) return WON;
+        }
+
+        if (power[b] >= 0 && cell == power[b]) {
+            setFlag(b, cell, ITEM, false);
+            applyPowerUp(b, powerType[b]);
+            power[b] = -1;
+            powerDespawnAt[b] = -1;
+        }
+
+        maybeSpawnPowerUp(b);
+        return RUNNING;
+    }
+
+    private void reset(int b) {
+        int base = b * cells;
+        Arrays.fill(grid, base, base + cells, (byte) 0);
+        for (int i = 0; i < cells; i++) {
+            free[base + i] = i;
+            freeSlot[base + i] = i;
+        }
+        freeCount[b] = cells;
+        rng[b] = seed + b + (long) episodes[b] * boards;
+        ticks[b] = 0;
+        score[b] = 0;
+        level[b] = 1;
+        tickMs[b] = GameConfig.BASE_TICK_MS;
+        obstacleCount[b] = 0;
+        food[b] = -1;
+        power[b] = -1;
+        powerDespawnAt[b] = -1;
+        boosts[b] = 0;
+        wrap[b] = false;
+        direction[b] = RIGHT;
+        headIdx[b] = 0;
+        length[b] = 0;
+        int x = cols / 2, y = rows / 2;
+        addLast(b, x, y);
+        addLast(b, x - 1, y);
+        addLast(b, x - 2, y);
+        spawnFood(b);
+        spawnObstacles(b, GameConfig.INITIAL_OBSTACLES * obstacleScale);
+    }
+
+    private void observe(int b) {
+        int o = b * FEATURES;
+        int head = body[b * (bodyMask + 1) + headIdx[b]];
+        observations[o + OBS_HEAD_X] = Cell.x(head);
+        observations[o + OBS_HEAD_Y] = Cell.y(head);
+        observations[o + OBS_DIRECTION] = direction[b];
+        observations[o + OBS_LENGTH] = length[b];
+        observations[o + OBS_FOOD_X] = food[b] % cols;
+        observations[o + OBS_FOOD_Y] = food[b] / cols;
+        observations[o + OBS_FOOD_SPECIAL] = foodSpecial[b] ? 1 : 0;
+        observations[o + OBS_POWER_X] = power[b] < 0 ? -1 : power[b] % cols;
+        observations[o + OBS_POWER_Y] = power[b] < 0 ? -1 : power[b] / cols;
+        observations[o + OBS_POWER_TYPE] = power[b] < 0 ? -1 : powerType[b];
+        observations[o + OBS_WRAP] = wrap[b] ? 1 : 0;
+        observations[o + OBS_SCORE] = score[b];
+        observations[o + OBS_LEVEL] = level[b];
+    }
+
+    // Snake
+
+    private void addLast(int b, int x, int y) {
+        if (length[b] > bodyMask) throw new IllegalStateException("Snake longer than its ring on board " + b);
+        body[b * (bodyMask + 1) + ((headIdx[b] + length[b]) & bodyMask)] = Cell.pack(x, y);
+        length[b]++;
+        addSnake(b, x, y);
+    }
+
+    private void grow(int b, int n) {
+        for (int i = 0; i < n; i++) {
+            int tail = body[b * (bodyMask + 1) + ((headIdx[b] + length[b] - 1) & bodyMask)];
+            addLast(b, Cell.x(tail), Cell.y(tail));
+        }
+    }
+
+    private void shrink(int b, int n) {
+        for (int i = 0; i < n && length[b] > 1; i++) {
+            int tail = body[b * (bodyMask + 1) + ((headIdx[b] + --length[b]) & bodyMask)];
+            removeSnake(b, Cell.x(tail), Cell.y(tail));
+        }
+    }
+
+    // The cell k steps straight ahead of the head, as GameEngine.cellAhead
+    private int cellAhead(int b, int k) {
+        int head = body[b * (bodyMask + 1) + headIdx[b]];
+        Direction d = DIRECTIONS[direction[b]];
+        int x = Cell.x(head) + k * d.dx, y = Cell.y(head) + k * d.dy;
+        if (wrap[b]) {
+            x = Math.floorMod(x, cols);
+            y = Math.floorMod(y, rows);
+        }
+        return Cell.pack(x, y);
+    }
+
+    // Items and obstacles
+
+    private boolean spawnFood(int b) {
+        if (food[b] >= 0) setFlag(b, food[b], ITEM, false);
+        int cell = randomFreeIndex(b);
+        if (cell < 0) return false;
+        foodSpecial[b] = nextDouble(b) < 0.12;
+        food[b] = cell;
+        setFlag(b, cell, ITEM, true);
+        return true;
+    }
+
+    private void maybeSpawnPowerUp(int b) {
+        if (power[b] >= 0) return;
+        if (nextDouble(b) < GameConfig.POWER_UP_SPAWN_CHANCE) {
+            int cell = randomFreeIndex(b);
+            if (cell < 0) return;
+            power[b] = cell;
+            powerType[b] = nextInt(b, POWER_TYPES);
+            setFlag(b, cell, ITEM, true);
+            powerDespawnAt[b] = ticks[b] + ticksFor(b, GameConfig.POWER_UP_DURATION);
+        }
+    }
+
+    private void applyPowerUp(int b, int type) {
+        if (type == SPEED_BOOST) {
+            if (boosts[b] == boostEndsAt[b].length) {
+                // as many stacked boosts as GameEngine allows; rare enough to allocate
+                boostEndsAt[b] = Arrays.copyOf(boostEndsAt[b], 2 * boosts[b]);
+            }
+            boosts[b]++;
+            updateSpeed(b);
+            boostEndsAt[b][boosts[b] - 1] = ticks[b] + ticksFor(b, GameConfig.SPEED_BOOST_DURATION);
+        } else if (type == SHRINK) {
+            shrink(b, GameConfig.SHRINK_AMOUNT);
+        } else {
+            score[b] += obstacleCount[b] / obstacleScale;
+            clearObstacles(b);
+        }
+    }
+
+    private void maybeLevelUp(int b) {
+        int newLevel = 1 + score[b] / GameConfig.LEVEL_UP_SCORE;
+        if (newLevel > level[b]) {
+            level[b] = newLevel;
+            updateSpeed(b);
+            spawnObstacles(b, Math.min(30 * obstacleScale, obstacleCount[b] + obstacleScale));
+        }
+    }
+
+    private void updateSpeed(int b) {
+        int levelMs = Math.max(GameConfig.MIN_TICK_MS, GameConfig.BASE_TICK_MS - (level[b] - 1) * GameConfig.SPEEDUP_STEP);
+        tickMs[b] = Math.max(GameConfig.MIN_TICK_MS, levelMs - boosts[b] * GameConfig.SPEED_BOOST_AMOUNT);
+    }
+
+    private int ticksFor(int b, int millis) {
+        return Math.max(1, Math.round((float) millis / tickMs[b]));
+    }
+
+    private void spawnObstacles(int b, int n) {
+        clearObstacles(b);
+        for (int placed = 0, tries = 0; placed < n && tries < 4 * n; tries++) {
+            int cell = randomFreeIndex(b);
+            if (cell < 0) break;
+            int target = Cell.pack(cell % cols, cell / cols);
+            boolean ahead = false;
+            for (int k = 1; k <= HEAD_CLEARANCE && !ahead; k++) {
+                ahead = cellAhead(b, k) == target;
+            }
+            if (ahead) continue;
+            setFlag(b, cell, OBSTACLE, true);
+            obstacleCount[b]++;
+            placed++;
+        }
+    }
+
+    // In ObstacleMap's visiting order, since the order cells free up decides later draws
+    private void clearObstacles(int b) {
+        int base = b * cells;
+        for (int k = 0; k < cells && obstacleCount[b] > 0; k++) {
+            int cell = obstacleOrder[k];
+            if ((grid[base + cell] & OBSTACLE) != 0) {
+                setFlag(b, cell, OBSTACLE, false);
+                obstacleCount[b]--;
+            }
+        }
+    }
+
+    private static int[] obstacleOrder(int cols, int rows) {
+        int[] order = new int[cols * rows];
+        int side = 1 << ObstacleMap.SHIFT, n = 0;
+        for (int cy = 0; cy < rows; cy += side) {
+            for (int cx = 0; cx < cols; cx += side) {
+                for (int y = cy; y < Math.min(rows, cy + side); y++) {
+                    for (int x = cx; x < Math.min(cols, cx + side); x++) {
+                        order[n++] = y * cols + x;
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    // Occupancy, as OccupancyGrid
+
+    private void addSnake(int b, int x, int y) {
+        if (x < 0 || x >= cols || y < 0 || y >= rows) return;
+        int cell = y * cols + x;
+        int c = grid[b * cells + cell] & 0xFF;
+        if ((c & SNAKE_MASK) == SNAKE_MASK) {
+            throw new IllegalStateException("Too many snake segments on cell " + x + "," + y);
+        }
+        set(b, cell, c + 1);
+    }
+
+    private void removeSnake(int b, int x, int y) {
+        if (x < 0 || x >= cols || y < 0 || y >= rows) return;
+        int cell = y * cols + x;
+        int c = grid[b * cells + cell] & 0xFF;
+        if ((c & SNAKE_MASK) == 0) return;
+        set(b, cell, c - 1);
+    }
+
+    private void setFlag(int b, int cell, int flag, boolean on) {
+        int c = grid[b * cells + cell] & 0xFF;
+        set(b, cell, on ? (c | flag) : (c & ~flag));
+    }
+
+    private void set(int b, int cell, int value) {
+        int base = b * cells;
+        boolean wasFree = grid[base + cell] == 0;
+        grid[base + cell] = (byte) value;
+        if (wasFree && value != 0) {
+            int slot = freeSlot[base + cell];
+            int last = free[base + --freeCount[b]];
+            free[base + slot] = last;
+            freeSlot[base + last] = slot;
+            freeSlot[base + cell] = -1;
+        } else if (!wasFree && value == 0) {
+            free[base + freeCount[b]] = cell;
+            freeSlot[base + cell] = freeCount[b]++;
+        }
+    }
+
+    private int randomFreeIndex(int b) {
+        if (freeCount[b] == 0) return -1;
+        return free[b * cells + nextInt(b, freeCount[b])];
+    }
+
+    // Random draws, as GameRandom (SplitMix64) through java.util.Random's algorithms
+
+    private long nextLong(int b) {
+        long z = (rng[b] += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private int next(int b, int bits) {
+        return (int) (nextLong(b) >>> (64 - bits));
+    }
+
+    private int nextInt(int b, int bound) {
+        int r = next(b, 31);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return (int) ((bound * (long) r) >> 31);
+        }
+        for (int u = r; u - (r = u % bound) + m < 0; u = next(b, 31)) {
+            // reject the biased tail, as Random.nextInt does
+        }
+        return r;
+    }
+
+    private double nextDouble(int b) {
+        return (((long) next(b, 26) << 27) + next(b, 27)) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.snake;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InputRingTest {
+    @Test
+    void capacityRoundsUpToAPowerOfTwo() {
+        assertEquals(1, new InputRing(1).capacity());
+        assertEquals(64, new InputRing(64).capacity());
+        assertEquals(128, new InputRing(65).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new InputRing(0));
+    }
+
+    @Test
+    void fullRingRejectsUntilPolled() {
+        InputRing ring = new InputRing(8);
+        assertEquals(-1, ring.poll());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ring.offer(i, 100 + i), "offer " + i);
+        }
+        assertFalse(ring.offer(8, 108), "ring is full");
+        assertFalse(ring.offer(9, 109), "still full");
+        assertEquals(0, ring.poll());
+        assertEquals(100, ring.polledStamp());
+        assertTrue(ring.offer(8, 108), "room for one");
+        assertFalse(ring.offer(9, 109));
+        for (int i = 1; i <= 8; i++) {
+            assertEquals(i, ring.poll(), "the rejected commands were dropped, not queued");
+            assertEquals(100 + i, ring.polledStamp());
+        }
+        assertEquals(-1, ring.poll());
+    }
+
+    @Test
+    void commandsComeOutInOrderAcrossWraparound() {
+        InputRing ring = new InputRing(8);
+        int next = 0, expected = 0;
+        // uneven batches, so the ends meet at every slot over many laps
+        for (int round = 0; round < 500; round++) {
+            int offers = 1 + round % 8, polls = 1 + (round * 5) % 8;
+            for (int i = 0; i < offers; i++) {
+                if (ring.offer(next, 1000L * next)) next++;
+            }
+            for (int i = 0; i < polls; i++) {
+                int code = ring.poll();
+                if (code < 0) {
+                    assertEquals(next, expected, "empty only once everything offered was taken");
+                    break;
+                }
+                assertEquals(expected, code);
+                assertEquals(1000L * expected, ring.polledStamp());
+                expected++;
+            }
+        }
+        assertTrue(next > 50 * ring.capacity(), next + " commands");
+    }
+
+    @Test
+    void oneProducerOneConsumerSeeEveryCommandInOrder() throws InterruptedException {
+        InputRing ring = new InputRing(16);
+        int n = 200_000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                while (!ring.offer(i, ~(long) i)) Thread.yield();
+            }
+        }, "input-ring-producer");
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int expected = 0; expected < n; ) {
+                    int code = ring.poll();
+                    if (code < 0) {
+                        Thread.yield();
+                        continue;
+                    }
+                    assertEquals(expected, code);
+                    assertEquals(~(long) expected, ring.polledStamp());
+                    expected++;
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }, "input-ring-consumer");
+        producer.setDaemon(true); // left spinning on a full ring if the consumer fails
+        consumer.setDaemon(true);
+        producer.start();
+        consumer.start();
+        producer.join(30_000);
+        consumer.join(30_000);
+        assertNull(failure.get());
+        assertFalse(consumer.isAlive(), "consumer did not finish");
+        assertEquals(-1, ring.poll());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.snake;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LeaderboardStoreTest {
+    private static final int MAGIC = 0x534E4B4C;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void newerVersionIsSetAsideNotOverwritten() throws IOException {
+        byte[] original = ByteBuffer.allocate(64).putInt(MAGIC).putInt(99).putLong(12345).array();
+        checkSetAside(original);
+    }
+
+    @Test
+    void foreignFileIsSetAsideNotOverwritten() throws IOException {
+        checkSetAside("not a leaderboard at all, just some text".getBytes());
+    }
+
+    @Test
+    void everyGameIsKeptNotJustTheTop() throws IOException {
+        Path file = dir.resolve("leaderboard");
+        int games = 5000;
+        try (LeaderboardStore store = new LeaderboardStore(file, 10)) {
+            store.loaded().join();
+            for (int i = 0; i < games; i++) {
+                store.record(game(i % 1000));
+            }
+        }
+
+        assertEquals(8 + 44L * games, Files.size(file));
+        try (LeaderboardStore store = new LeaderboardStore(file, 10)) {
+            store.loaded().join();
+            List<LeaderboardStore.Entry> top = store.top(10);
+            assertEquals(10, top.size());
+            assertEquals(999, top.get(0).score);
+            assertEquals(999, top.get(4).score);
+            assertEquals(998, top.get(5).score);
+        }
+    }
+
+    private void checkSetAside(byte[] original) throws IOException {
+        Path file = dir.resolve("leaderboard");
+        Files.write(file, original);
+
+        try (LeaderboardStore store = new LeaderboardStore(file, 10)) {
+            store.loaded().join();
+            store.record(game(42));
+        }
+
+        List<Path> aside = siblings(file.getFileName() + ".unreadable-*");
+        assertEquals(1, aside.size());
+        assertArrayEquals(original, Files.readAllBytes(aside.get(0)));
+        try (LeaderboardStore store = new LeaderboardStore(file, 10)) {
+            store.loaded().join();
+            assertEquals(42, store.best());
+            assertEquals(1, store.top(10).size());
+        }
+    }
+
+    private List<Path> siblings(String glob) throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(dir, glob)) {
+            paths.forEach(found::add);
+        }
+        return found;
+    }
+
+    private static LeaderboardStore.Entry game(int score) {
+        return new LeaderboardStore.Entry(System.currentTimeMillis(), 1, 100, score, 1, 5, GameEngine.Outcome.WALL);
+    }
+}
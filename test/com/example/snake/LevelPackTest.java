@@ -0,0 +1,170 @@
+package com.example.snake;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LevelPackTest {
+    // more than one chunk each way, with partial chunks at the right and bottom edges
+    private static final int COLS = 70, ROWS = 45;
+    private static final int LEADERBOARD_MAGIC = 0x534E4B4C; // "SNKL"
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void levelsReadBackAsWritten() throws IOException {
+        ObstacleMap[] layouts = layouts(12, 5);
+        Path file = write("levels.snkl", layouts);
+        try (LevelPack pack = new LevelPack(file)) {
+            assertEquals(COLS, pack.cols());
+            assertEquals(ROWS, pack.rows());
+            assertEquals(layouts.length, pack.size());
+            ObstacleMap loaded = new ObstacleMap(COLS, ROWS);
+            // load in reverse too, so each level overwrites a different one
+            for (int pass = 0; pass < 2; pass++) {
+                for (int k = 0; k < layouts.length; k++) {
+                    int i = pass == 0 ? k : layouts.length - 1 - k;
+                    pack.load(i, loaded);
+                    assertEquals(layouts[i].size(), pack.obstacles(i), "level " + i);
+                    assertSameCells(layouts[i], loaded, "level " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void fingerprintFollowsTheLevels() throws IOException {
+        ObstacleMap[] layouts = layouts(6, 5);
+        long fingerprint;
+        try (LevelPack pack = new LevelPack(write("a.snkl", layouts))) {
+            fingerprint = pack.fingerprint();
+        }
+        try (LevelPack pack = new LevelPack(write("b.snkl", layouts))) {
+            assertEquals(fingerprint, pack.fingerprint(), "same levels");
+        }
+        layouts[3].add(0, 0);
+        layouts[3].add(COLS - 1, ROWS - 1);
+        try (LevelPack pack = new LevelPack(write("c.snkl", layouts))) {
+            assertNotEquals(fingerprint, pack.fingerprint(), "one level changed");
+        }
+        ObstacleMap[] reordered = layouts(6, 5);
+        ObstacleMap first = reordered[0];
+        reordered[0] = reordered[1];
+        reordered[1] = first;
+        try (LevelPack pack = new LevelPack(write("d.snkl", reordered))) {
+            assertNotEquals(fingerprint, pack.fingerprint(), "levels reordered");
+        }
+    }
+
+    @Test
+    void replaysRecordTheFingerprint() throws IOException {
+        ObstacleMap[] layouts = layouts(3, 5);
+        try (LevelPack pack = new LevelPack(write("levels.snkl", layouts))) {
+            GameEngine engine = new GameEngine(COLS, ROWS, 1, pack);
+            Path replay = dir.resolve("game.snkr");
+            new ReplayWriter(replay, engine).finish(0);
+            try (ReplayReader in = new ReplayReader(replay)) {
+                assertEquals(pack.fingerprint(), in.levelsFingerprint());
+                assertThrows(IllegalArgumentException.class, in::newEngine);
+                assertSameCells(engine.obstacles(), in.newEngine(pack).obstacles(), "replayed level 1");
+            }
+        }
+    }
+
+    @Test
+    void levelRunningPastTheEndIsRejected() throws IOException {
+        Path file = write("levels.snkl", layouts(2, 5));
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer b = ByteBuffer.wrap(bytes);
+        int at = levelOffset(b, 1);
+        b.putInt(at + 4, b.getInt(at + 4) + 1); // claims one chunk more than it stores
+        Files.write(file, bytes);
+        try (LevelPack pack = new LevelPack(file)) {
+            ObstacleMap map = new ObstacleMap(COLS, ROWS);
+            pack.load(0, map);
+            int before = map.size();
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> pack.load(1, map));
+            assertTrue(e.getMessage().contains("level 1"), e.getMessage());
+            assertEquals(before, map.size(), "map left as it was");
+        }
+    }
+
+    @Test
+    void chunkOffTheBoardIsRejected() throws IOException {
+        Path file = write("levels.snkl", layouts(2, 5));
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer b = ByteBuffer.wrap(bytes);
+        int at = levelOffset(b, 0);
+        assertTrue(b.getInt(at + 4) > 0);
+        b.putInt(at + 8, 1000);
+        Files.write(file, bytes);
+        try (LevelPack pack = new LevelPack(file)) {
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> pack.load(0, new ObstacleMap(COLS, ROWS)));
+            assertTrue(e.getMessage().contains("chunk 1000"), e.getMessage());
+        }
+    }
+
+    @Test
+    void truncatedPackIsRejected() throws IOException {
+        Path file = write("levels.snkl", layouts(2, 5));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4)); // cuts into the index
+        assertThrows(IOException.class, () -> new LevelPack(file));
+        Files.write(file, Arrays.copyOf(bytes, LevelPack.HEADER_BYTES - 1));
+        assertThrows(IOException.class, () -> new LevelPack(file));
+    }
+
+    @Test
+    void leaderboardMagicIsNotALevelPack() throws IOException {
+        Path file = write("levels.snkl", layouts(2, 5));
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(0, LEADERBOARD_MAGIC);
+        Files.write(file, bytes);
+        IOException e = assertThrows(IOException.class, () -> new LevelPack(file));
+        assertTrue(e.getMessage().startsWith("Not a level pack"), e.getMessage());
+    }
+
+    private ObstacleMap[] layouts(int levels, long seed) {
+        Random rnd = new Random(seed);
+        ObstacleMap[] layouts = new ObstacleMap[levels];
+        for (int i = 0; i < levels; i++) {
+            layouts[i] = LevelPackWriter.generate(COLS, ROWS, i + 1, rnd);
+        }
+        layouts[levels - 1] = new ObstacleMap(COLS, ROWS); // an empty level stores no chunks
+        return layouts;
+    }
+
+    private Path write(String name, ObstacleMap[] layouts) throws IOException {
+        Path file = dir.resolve(name);
+        try (LevelPackWriter writer = new LevelPackWriter(file, COLS, ROWS)) {
+            for (ObstacleMap layout : layouts) writer.add(layout);
+        }
+        return file;
+    }
+
+    private static int levelOffset(ByteBuffer pack, int level) {
+        return (int) pack.getLong((int) pack.getLong(24) + 8 * level);
+    }
+
+    private static void assertSameCells(ObstacleMap expected, ObstacleMap actual, String where) {
+        assertEquals(expected.size(), actual.size(), where + ": size");
+        for (int y = 0; y < ROWS; y++) {
+            for (int x = 0; x < COLS; x++) {
+                assertEquals(expected.contains(x, y), actual.contains(x, y), where + ": cell " + x + "," + y);
+            }
+        }
+    }
+}
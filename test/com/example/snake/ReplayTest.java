@@ -0,0 +1,144 @@
+package com.example.snake;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayTest {
+    private static final long SEED = 3;
+    private static final int MAX_TICKS = 3000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayEndsWhereTheGameDid() throws IOException {
+        Path file = dir.resolve("game.snkr");
+        List<String> states = record(file);
+        long ticks = states.size() - 1;
+        try (ReplayPlayer player = new ReplayPlayer(file)) {
+            while (player.advance()) {
+                assertEquals(states.get((int) player.ticks()), state(player.engine()));
+            }
+            assertTrue(player.isFinished());
+            assertEquals(ticks, player.ticks());
+            assertEquals(states.get((int) ticks), state(player.engine()));
+        }
+    }
+
+    @Test
+    void seeksMatchAStraightPlayThrough() throws IOException {
+        Path file = dir.resolve("game.snkr");
+        List<String> states = record(file);
+        int ticks = states.size() - 1;
+        // a checkpoint every tick fills the list at tick MAX_CHECKPOINTS, so it is thinned
+        // several times over the game and seeks land on both sides of each thinning
+        assertTrue(ticks > 4 * ReplayPlayer.MAX_CHECKPOINTS, "game lasted only " + ticks + " ticks");
+        try (ReplayPlayer player = new ReplayPlayer(file, 1, null)) {
+            int boundary = ReplayPlayer.MAX_CHECKPOINTS;
+            seek(player, boundary + 5, states);
+            seek(player, boundary - 5, states);
+            seek(player, 2 * boundary + 1, states);
+            seek(player, boundary, states);
+            seek(player, 0, states);
+            seek(player, ticks, states);
+            seek(player, 2 * boundary - 1, states);
+            Random rnd = new Random(9);
+            for (int i = 0; i < 200; i++) {
+                seek(player, rnd.nextInt(ticks + 1), states);
+            }
+            player.seek(ticks + 100);
+            assertEquals(ticks, player.ticks(), "seek past the end stops at the end");
+            assertTrue(player.isFinished());
+        }
+    }
+
+    @Test
+    void fileCutMidEventReadsUpToTheLastWholeEvent() throws IOException {
+        Path file = dir.resolve("game.snkr");
+        GameEngine engine = new GameEngine(SEED);
+        try (ReplayWriter writer = new ReplayWriter(file, engine)) {
+            writer.direction(0, Direction.UP);
+            writer.wrapToggle(1);
+            writer.direction(100, Direction.LEFT); // delta 99 takes two bytes
+            writer.finish(120);
+        }
+        byte[] whole = Files.readAllBytes(file);
+        int[] ends = new int[3];
+        try (ReplayReader in = new ReplayReader(file)) {
+            for (int i = 0; i < ends.length; i++) {
+                in.take();
+                ends[i] = in.position();
+            }
+            assertEquals(Long.MAX_VALUE, in.peekTick());
+            assertEquals(120, in.endTick());
+        }
+        assertEquals(2, ends[2] - ends[1], "the last event is one varint of two bytes");
+
+        Path cut = dir.resolve("cut.snkr");
+        Files.write(cut, Arrays.copyOf(whole, ends[1] + 1));
+        try (ReplayReader in = new ReplayReader(cut)) {
+            assertEquals(0, in.peekTick());
+            assertEquals(Direction.UP.ordinal(), in.take());
+            assertEquals(1, in.peekTick());
+            assertEquals(ReplayWriter.WRAP, in.take());
+            assertEquals(Long.MAX_VALUE, in.peekTick());
+            assertEquals(-1, in.endTick());
+        }
+    }
+
+    /** Plays a greedy game with some wrap toggles into the file; entry t is the state after tick t. */
+    private static List<String> record(Path file) throws IOException {
+        GameEngine engine = new GameEngine(SEED);
+        Bot bot = new GreedyBot();
+        Random rnd = new Random(4);
+        List<String> states = new ArrayList<>();
+        states.add(state(engine));
+        // recorded as the panel records key presses: at the tick they are applied before
+        try (ReplayWriter writer = new ReplayWriter(file, engine)) {
+            Direction last = null;
+            while (!engine.isOver() && engine.ticks() < MAX_TICKS) {
+                Direction d = bot.decide(engine);
+                if (d != last) {
+                    writer.direction(engine.ticks(), d);
+                    engine.steer(d);
+                    last = d;
+                }
+                if (rnd.nextInt(50) == 0) {
+                    writer.wrapToggle(engine.ticks());
+                    engine.toggleWrap();
+                }
+                engine.tick();
+                states.add(state(engine));
+            }
+            writer.finish(engine.ticks());
+        }
+        return states;
+    }
+
+    private static void seek(ReplayPlayer player, int tick, List<String> states) {
+        player.seek(tick);
+        assertEquals(tick, player.ticks());
+        assertEquals(states.get(tick), state(player.engine()), "after seeking to " + tick);
+    }
+
+    private static String state(GameEngine engine) {
+        Snake snake = engine.snake();
+        PowerUp power = engine.powerUp();
+        return "tick " + engine.ticks() + " score " + engine.score() + " level " + engine.level()
+            + " head " + snake.headX() + "," + snake.headY() + " length " + snake.length()
+            + " wrap " + snake.isWrap() + " food " + engine.food().pos.x + "," + engine.food().pos.y
+            + " power " + (power == null ? "-" : power.type + "@" + power.pos.x + "," + power.pos.y)
+            + " " + engine.outcome();
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.snake;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.example.snake.SessionStore.Column;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionStoreTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final GameEngine.Outcome[] OUTCOMES = GameEngine.Outcome.values();
+
+    @TempDir
+    Path dir;
+
+    /** One game's values, in {@link Column} order. */
+    private static long[] game(Random rnd, int i) {
+        return new long[] {
+            START + 1000L * i, rnd.nextInt(5000), 1 + rnd.nextInt(8), 3 + rnd.nextInt(200),
+            rnd.nextInt(20000), rnd.nextInt(12), rnd.nextInt(3000), 1 + rnd.nextInt(OUTCOMES.length - 1)
+        };
+    }
+
+    private static void append(SessionStore store, long[] g) throws IOException {
+        store.append(g[0], (int) g[1], (int) g[2], (int) g[3], g[4], (int) g[5], g[6], OUTCOMES[(int) g[7]]);
+    }
+
+    private static List<long[]> games(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<long[]> games = new ArrayList<>();
+        for (int i = 0; i < n; i++) games.add(game(rnd, i));
+        return games;
+    }
+
+    @Test
+    void appendedGamesAreCountedOnceFlushedAndKept() throws IOException {
+        Path file = dir.resolve("sessions");
+        List<long[]> games = games(SessionStore.CHUNK_ROWS + 500, 1);
+        try (SessionStore store = new SessionStore(file)) {
+            assertEquals(0, store.size());
+            append(store, games.get(0));
+            assertEquals(0, store.size(), "staged, not flushed");
+            assertEquals(0, store.query().count());
+            store.flush();
+            assertEquals(1, store.size());
+            for (long[] g : games.subList(1, games.size())) append(store, g);
+        } // close flushes
+        try (SessionStore store = new SessionStore(file)) {
+            assertEquals(games.size(), store.size());
+            assertEquals(games.size(), store.query().count());
+            assertEquals(max(games, Column.SCORE), store.query().max(Column.SCORE));
+            assertEquals(START, store.query().min(Column.TIME));
+            assertEquals(START + 1000L * (games.size() - 1), store.query().max(Column.TIME));
+        }
+    }
+
+    @Test
+    void reloadTakesTheNewestGoodSummaryFromEitherSlot() throws IOException {
+        Path file = dir.resolve("sessions");
+        List<long[]> games = games(60, 2);
+        try (SessionStore store = new SessionStore(file)) {
+            for (int i = 0; i < 10; i++) append(store, games.get(i));
+            store.flush(); // slot 0 counts 10
+            for (int i = 10; i < 30; i++) append(store, games.get(i));
+            store.flush(); // slot 1 counts 30
+        }
+        try (SessionStore store = new SessionStore(file)) {
+            assertEquals(30, store.size(), "newest summary, in slot 1");
+        }
+
+        breakSlot(file, 1); // as if the write of slot 1 had been cut short
+        try (SessionStore store = new SessionStore(file)) {
+            assertEquals(10, store.size(), "falls back to slot 0");
+            assertEquals(max(games.subList(0, 10), Column.SCORE), store.query().max(Column.SCORE));
+            for (int i = 30; i < 45; i++) append(store, games.get(i));
+            store.flush(); // over the broken slot 1, never over slot 0
+        }
+        try (SessionStore store = new SessionStore(file)) {
+            assertEquals(25, store.size());
+            List<long[]> kept = new ArrayList<>(games.subList(0, 10));
+            kept.addAll(games.subList(30, 45));
+            assertEquals(sum(kept, Column.SCORE), Math.round(store.query().mean(Column.SCORE) * 25));
+            for (int i = 45; i < 60; i++) append(store, games.get(i));
+            store.flush(); // slot 0 counts 40
+        }
+
+        breakSlot(file, 0);
+        try (SessionStore store = new SessionStore(file)) {
+            assertEquals(25, store.size(), "falls back to slot 1");
+        }
+    }
+
+    @Test
+    void partialChunkAfterTheLastIsCutOff() throws IOException {
+        Path file = dir.resolve("sessions");
+        List<long[]> games = games(100, 3);
+        try (SessionStore store = new SessionStore(file)) {
+            for (long[] g : games) append(store, g);
+        }
+        long size = Files.size(file);
+        assertEquals(SessionStore.HEADER_BYTES + SessionStore.CHUNK_BYTES, size);
+
+        // a chunk started but not completed, as a crash during its allocation leaves it
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(1000), size);
+        }
+        try (SessionStore store = new SessionStore(file)) {
+            assertEquals(games.size(), store.size());
+        }
+        assertEquals(size, Files.size(file));
+
+        // a whole chunk after one that is not full can only be left from a failed write too
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(1), size + SessionStore.CHUNK_BYTES - 1);
+        }
+        try (SessionStore store = new SessionStore(file)) {
+            assertEquals(games.size(), store.size());
+            append(store, games.get(0));
+        }
+        assertEquals(size, Files.size(file));
+        try (SessionStore store = new SessionStore(file)) {
+            assertEquals(games.size() + 1, store.size());
+        }
+
+        // the first chunk itself cut short: its allocation never completed, so nothing counts
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(size - 10);
+        }
+        try (SessionStore store = new SessionStore(file)) {
+            assertEquals(0, store.size());
+        }
+        assertEquals(SessionStore.HEADER_BYTES, Files.size(file));
+    }
+
+    @Test
+    void otherFilesAreNotSessionHistories() throws IOException {
+        Path file = dir.resolve("game.snks");
+        try (SpectatorWriter writer = new SpectatorWriter(Files.newOutputStream(file))) {
+            GameEngine engine = new GameEngine(1);
+            for (int i = 0; i < 4; i++) {
+                writer.requestKeyframe();
+                writer.frame(engine);
+            }
+        }
+        assertTrue(Files.size(file) >= SessionStore.HEADER_BYTES);
+        IOException e = assertThrows(IOException.class, () -> new SessionStore(file));
+        assertTrue(e.getMessage().startsWith("Not a session history"), e.getMessage());
+    }
+
+    @Test
+    void aggregatesMatchAPlainScan() throws IOException {
+        Path file = dir.resolve("sessions");
+        List<long[]> games = games(2 * SessionStore.CHUNK_ROWS + 3000, 4);
+        try (SessionStore store = new SessionStore(file)) {
+            for (long[] g : games) append(store, g);
+            store.flush();
+            SessionQuery all = store.query();
+            checkAggregates(all, games);
+            // a cut-off inside a chunk, one that takes every chunk, and one that takes none
+            long mid = START + 1000L * (SessionStore.CHUNK_ROWS + 1234);
+            checkAggregates(all.since(mid), games.subList(SessionStore.CHUNK_ROWS + 1234, games.size()));
+            checkAggregates(all.since(START), games);
+            checkAggregates(all.since(START + 1000L * games.size()), games.subList(0, 0));
+            List<long[]> highLevels = new ArrayList<>();
+            for (long[] g : games) if (g[Column.LEVEL.ordinal()] >= 5) highLevels.add(g);
+            checkAggregates(all.where(Column.LEVEL, 5, Long.MAX_VALUE), highLevels);
+
+            // games appended after a query was made stay out of it
+            append(store, games.get(0));
+            store.flush();
+            assertEquals(games.size(), all.count());
+            assertEquals(games.size() + 1, store.query().count());
+        }
+    }
+
+    private static void checkAggregates(SessionQuery q, List<long[]> games) {
+        int score = Column.SCORE.ordinal(), level = Column.LEVEL.ordinal();
+        assertEquals(games.size(), q.count());
+        assertEquals(max(games, Column.SCORE), q.max(Column.SCORE));
+
+        long[] scores = new long[games.size()];
+        for (int i = 0; i < scores.length; i++) scores[i] = games.get(i)[score];
+        Arrays.sort(scores);
+        double[] percents = {0, 1, 25, 50, 90, 99, 99.9, 100};
+        long[] expected = new long[percents.length];
+        for (int p = 0; p < percents.length && scores.length > 0; p++) {
+            long rank = Math.max(1, (long) Math.ceil(percents[p] / 100 * scores.length));
+            expected[p] = scores[(int) rank - 1];
+        }
+        assertArrayEquals(expected, q.percentiles(Column.SCORE, percents), "percentiles");
+
+        long width = 250;
+        long[] histogram = new long[scores.length == 0 ? 0 : (int) (scores[scores.length - 1] / width) + 1];
+        for (long s : scores) histogram[(int) (s / width)]++;
+        assertArrayEquals(histogram, q.histogram(Column.SCORE, width), "histogram");
+
+        long[] sums = new long[16], counts = new long[16];
+        int top = -1;
+        for (long[] g : games) {
+            int v = (int) g[level];
+            sums[v] += g[score];
+            counts[v]++;
+            top = Math.max(top, v);
+        }
+        double[] means = new double[top + 1];
+        for (int v = 0; v <= top; v++) means[v] = counts[v] == 0 ? Double.NaN : (double) sums[v] / counts[v];
+        assertArrayEquals(means, q.means(Column.LEVEL, Column.SCORE), "mean score by level");
+        assertArrayEquals(Arrays.copyOf(counts, top + 1), q.counts(Column.LEVEL), "games by level");
+    }
+
+    /** Spoils the first chunk's summary slot so its checksum no longer matches. */
+    private static void breakSlot(Path file, int slot) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(4).putInt(0, 12345), SessionStore.HEADER_BYTES + (long) slot * SessionStore.SLOT_BYTES);
+        }
+    }
+
+    private static long max(List<long[]> games, Column c) {
+        long m = 0;
+        for (long[] g : games) m = Math.max(m, g[c.ordinal()]);
+        return m;
+    }
+
+    private static long sum(List<long[]> games, Column c) {
+        long s = 0;
+        for (long[] g : games) s += g[c.ordinal()];
+        return s;
+    }
+}
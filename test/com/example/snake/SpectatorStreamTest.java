@@ -0,0 +1,131 @@
+package com.example.snake;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Plays seeded games into a {@link SpectatorWriter} and checks the reader sees every tick as the engine had it. */
+class SpectatorStreamTest {
+    private static final int GAMES = 8;
+    private static final long MAX_TICKS = 4000;
+
+    @Test
+    void readerFollowsTheEngineEveryTick() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        List<String> frames = new ArrayList<>();
+        int wraps = 0, grew = 0, shrank = 0, levelUps = 0;
+        try (SpectatorWriter writer = new SpectatorWriter(bytes, 500)) {
+            Random rnd = new Random(21);
+            for (int game = 0; game < GAMES; game++) {
+                GameEngine engine = new GameEngine(GameConfig.COLS, GameConfig.ROWS, 40 + game);
+                writer.frame(engine);
+                frames.add(state(engine));
+                while (!engine.isOver() && engine.ticks() < MAX_TICKS) {
+                    // the odd random turn, and wrap on for long stretches
+                    engine.steer(rnd.nextInt(8) == 0 ? Direction.values()[rnd.nextInt(4)] : chase(engine));
+                    if (rnd.nextInt(60) == 0) engine.toggleWrap();
+                    Snake snake = engine.snake();
+                    int x = snake.headX(), y = snake.headY(), length = snake.length(), level = engine.level();
+                    engine.tick();
+                    if (Math.abs(snake.headX() - x) + Math.abs(snake.headY() - y) > 1) wraps++;
+                    if (snake.length() > length) grew++;
+                    if (snake.length() < length) shrank++;
+                    if (engine.level() > level) levelUps++;
+                    writer.frame(engine);
+                    frames.add(state(engine));
+                }
+            }
+        }
+        assertTrue(wraps > 0, "no wraps across an edge");
+        assertTrue(grew > 0, "no growth");
+        assertTrue(shrank > 0, "no shrink power-ups");
+        assertTrue(levelUps > 0, "no level-ups");
+
+        try (SpectatorReader reader = new SpectatorReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (int i = 0; i < frames.size(); i++) {
+                assertTrue(reader.next(), "stream ended at frame " + i + " of " + frames.size());
+                assertTrue(reader.isSynced());
+                assertEquals(frames.get(i), state(reader.state()), "frame " + i);
+            }
+            assertFalse(reader.next());
+            assertTrue(reader.deltas() > 10 * reader.keyframes(),
+                reader.deltas() + " deltas to " + reader.keyframes() + " keyframes");
+        }
+    }
+
+    /** Like {@link GreedyBot}, but heads for the power-up while there is one, so shrinks happen. */
+    private static Direction chase(GameEngine engine) {
+        Snake snake = engine.snake();
+        OccupancyGrid grid = engine.grid();
+        PowerUp power = engine.powerUp();
+        Point target = power != null ? power.pos : engine.food().pos;
+        Direction heading = snake.direction();
+        Direction best = heading;
+        int bestDist = Integer.MAX_VALUE;
+        for (Direction d : Direction.values()) {
+            if (d.isOpposite(heading)) continue;
+            int x = snake.headX() + d.dx, y = snake.headY() + d.dy;
+            if (snake.isWrap()) {
+                x = Math.floorMod(x, engine.cols());
+                y = Math.floorMod(y, engine.rows());
+            }
+            if (!grid.inBounds(x, y) || grid.isObstacle(x, y) || grid.hasSnake(x, y)) continue;
+            int dist = Math.abs(target.x - x) + Math.abs(target.y - y);
+            if (dist < bestDist) {
+                bestDist = dist;
+                best = d;
+            }
+        }
+        return best;
+    }
+
+    private static String state(GameEngine e) {
+        Snake s = e.snake();
+        Food food = e.food();
+        PowerUp power = e.powerUp();
+        StringBuilder sb = new StringBuilder();
+        sb.append(e.cols()).append('x').append(e.rows()).append(" tick ").append(e.ticks())
+            .append(" score ").append(e.score()).append(" level ").append(e.level())
+            .append(" wrap ").append(s.isWrap()).append(' ').append(e.outcome())
+            .append(" food ").append(food == null ? -1 : Cell.pack(food.pos.x, food.pos.y))
+            .append(food != null && food.isSpecial ? " special" : "")
+            .append(" power ").append(power == null ? -1 : Cell.pack(power.pos.x, power.pos.y))
+            .append(' ').append(power == null ? null : power.type)
+            .append(" snake");
+        for (int i = 0; i < s.length(); i++) sb.append(' ').append(s.segment(i));
+        obstacles(sb, e.obstacles());
+        return sb.toString();
+    }
+
+    private static String state(SpectatorState st) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(st.cols()).append('x').append(st.rows()).append(" tick ").append(st.tick())
+            .append(" score ").append(st.score()).append(" level ").append(st.level())
+            .append(" wrap ").append(st.isWrap()).append(' ').append(st.outcome())
+            .append(" food ").append(st.food()).append(st.isSpecialFood() ? " special" : "")
+            .append(" power ").append(st.powerUp()).append(' ').append(st.powerUpType())
+            .append(" snake");
+        for (int i = 0; i < st.length(); i++) sb.append(' ').append(st.segment(i));
+        obstacles(sb, st.obstacles());
+        return sb.toString();
+    }
+
+    private static void obstacles(StringBuilder sb, ObstacleMap map) {
+        sb.append(" obstacles");
+        for (int y = 0; y < map.rows(); y++) {
+            for (int x = 0; x < map.cols(); x++) {
+                if (map.contains(x, y)) sb.append(' ').append(x).append(',').append(y);
+            }
+        }
+    }
+}
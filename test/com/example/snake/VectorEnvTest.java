@@ -0,0 +1,134 @@
+package com.example.snake;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Holds VectorEnv to its promise: episode e of board i plays exactly the game of
+ * {@code new GameEngine(cols, rows, seed + i + e * boards)} given the same inputs.
+ */
+class VectorEnvTest {
+    private static final int BOARDS = 64;
+    private static final long SEED = 11;
+    private static final int STEPS = 4000;
+
+    @Test
+    void everyBoardPlaysTheEngineGame() {
+        try (VectorEnv env = new VectorEnv(BOARDS, GameConfig.COLS, GameConfig.ROWS, SEED, 1)) {
+            int finished = playAgainstEngines(env, new Random(5));
+            assertTrue(finished > BOARDS, "only " + finished + " episodes ended");
+        }
+    }
+
+    @Test
+    void largerBoardsAndThreadsPlayTheEngineGame() {
+        try (VectorEnv env = new VectorEnv(BOARDS, 61, 45, SEED, 3)) {
+            playAgainstEngines(env, new Random(6));
+        }
+    }
+
+    @Test
+    void threadCountDoesNotChangeResults() {
+        try (VectorEnv one = new VectorEnv(BOARDS, GameConfig.COLS, GameConfig.ROWS, SEED, 1);
+             VectorEnv four = new VectorEnv(BOARDS, GameConfig.COLS, GameConfig.ROWS, SEED, 4)) {
+            Random rnd = new Random(7);
+            int[] actions = new int[BOARDS];
+            for (int step = 0; step < 1000; step++) {
+                for (int b = 0; b < BOARDS; b++) actions[b] = randomAction(rnd);
+                one.step(actions);
+                four.step(actions);
+                assertArrayEquals(one.observations(), four.observations());
+                assertArrayEquals(one.dones(), four.dones());
+                assertArrayEquals(one.cells(), four.cells());
+            }
+        }
+    }
+
+    /** Steps the env and one engine per board with the same random actions; returns episodes ended. */
+    private static int playAgainstEngines(VectorEnv env, Random rnd) {
+        int cols = env.cols(), rows = env.rows();
+        GameEngine[] engines = new GameEngine[BOARDS];
+        int[] episode = new int[BOARDS];
+        for (int b = 0; b < BOARDS; b++) {
+            engines[b] = new GameEngine(cols, rows, SEED + b);
+            assertMatches(env, b, engines[b], "board " + b + " at start");
+        }
+        int[] actions = new int[BOARDS];
+        int finished = 0;
+        for (int step = 0; step < STEPS; step++) {
+            for (int b = 0; b < BOARDS; b++) {
+                int a = randomAction(rnd);
+                actions[b] = a;
+                if (a == VectorEnv.WRAP) {
+                    engines[b].toggleWrap();
+                } else if (a != VectorEnv.NO_OP) {
+                    engines[b].steer(Direction.values()[a]);
+                }
+                engines[b].tick();
+            }
+            env.step(actions);
+            for (int b = 0; b < BOARDS; b++) {
+                GameEngine engine = engines[b];
+                String where = "board " + b + " episode " + episode[b] + " tick " + engine.ticks();
+                assertEquals(engine.isOver(), env.dones()[b], where + ": done");
+                if (env.dones()[b]) {
+                    assertEquals(engine.outcome().ordinal(), env.outcomes()[b], where + ": outcome");
+                    assertEquals(engine.score(), env.finalScores()[b], where + ": final score");
+                    episode[b]++;
+                    finished++;
+                    engine = engines[b] = new GameEngine(cols, rows, SEED + b + (long) episode[b] * BOARDS);
+                    where = "board " + b + " episode " + episode[b] + " at start";
+                }
+                assertMatches(env, b, engine, where);
+                if (step % 64 == 0) assertCellsMatch(env, b, engine, where);
+            }
+        }
+        return finished;
+    }
+
+    // mostly turns, with a wrap toggle now and then
+    private static int randomAction(Random rnd) {
+        int r = rnd.nextInt(20);
+        return r == 0 ? VectorEnv.WRAP : r < 8 ? VectorEnv.NO_OP : rnd.nextInt(4);
+    }
+
+    private static void assertMatches(VectorEnv env, int b, GameEngine engine, String where) {
+        int[] obs = env.observations();
+        int o = b * VectorEnv.FEATURES;
+        Snake snake = engine.snake();
+        assertEquals(snake.headX(), obs[o + VectorEnv.OBS_HEAD_X], where + ": head x");
+        assertEquals(snake.headY(), obs[o + VectorEnv.OBS_HEAD_Y], where + ": head y");
+        assertEquals(snake.direction().ordinal(), obs[o + VectorEnv.OBS_DIRECTION], where + ": direction");
+        assertEquals(snake.length(), obs[o + VectorEnv.OBS_LENGTH], where + ": length");
+        assertEquals(engine.food().pos.x, obs[o + VectorEnv.OBS_FOOD_X], where + ": food x");
+        assertEquals(engine.food().pos.y, obs[o + VectorEnv.OBS_FOOD_Y], where + ": food y");
+        assertEquals(engine.food().isSpecial ? 1 : 0, obs[o + VectorEnv.OBS_FOOD_SPECIAL], where + ": special food");
+        PowerUp power = engine.powerUp();
+        assertEquals(power == null ? -1 : power.pos.x, obs[o + VectorEnv.OBS_POWER_X], where + ": power-up x");
+        assertEquals(power == null ? -1 : power.pos.y, obs[o + VectorEnv.OBS_POWER_Y], where + ": power-up y");
+        assertEquals(power == null ? -1 : power.type.ordinal(), obs[o + VectorEnv.OBS_POWER_TYPE], where + ": power-up type");
+        assertEquals(snake.isWrap() ? 1 : 0, obs[o + VectorEnv.OBS_WRAP], where + ": wrap");
+        assertEquals(engine.score(), obs[o + VectorEnv.OBS_SCORE], where + ": score");
+        assertEquals(engine.level(), obs[o + VectorEnv.OBS_LEVEL], where + ": level");
+    }
+
+    private static void assertCellsMatch(VectorEnv env, int b, GameEngine engine, String where) {
+        byte[] cells = env.cells();
+        OccupancyGrid grid = engine.grid();
+        int cols = env.cols(), base = b * cols * env.rows();
+        for (int y = 0; y < env.rows(); y++) {
+            for (int x = 0; x < cols; x++) {
+                int c = cells[base + y * cols + x] & 0xFF;
+                String cell = where + ": cell " + x + "," + y;
+                assertEquals(grid.snakeCount(x, y), c & 0x3F, cell + " snake");
+                assertEquals(grid.isObstacle(x, y), (c & 0x80) != 0, cell + " obstacle");
+                assertEquals(grid.isFree(x, y), c == 0, cell + " free");
+            }
+        }
+    }
+}